@@ -2,6 +2,7 @@ package com.richardmogou.config;
 
 import com.richardmogou.model.*;
 import com.richardmogou.repository.*;
+import com.richardmogou.service.GradeRollupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +26,8 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired private GradeRepository gradeRepository;
     @Autowired private SemesterRepository semesterRepository;
     @Autowired private ClassSectionRepository classSectionRepository;
+    @Autowired private SubjectAverageRepository subjectAverageRepository;
+    @Autowired private GradeRollupService gradeRollupService;
     @Autowired private PasswordEncoder passwordEncoder;
 
     @Override
@@ -35,6 +38,11 @@ public class DataInitializer implements CommandLineRunner {
         // Check if data already exists (e.g., by checking for a specific user)
         if (userRepository.existsByUsername("admin")) {
             logger.info("Initial data already exists. Skipping data initialization.");
+            // Databases created before subject average rollups existed need a one-time backfill
+            if (subjectAverageRepository.count() == 0 && gradeRepository.count() > 0) {
+                logger.info("Backfilling subject average rollups from existing grades...");
+                gradeRollupService.rebuildAll();
+            }
             return;
         }
 
@@ -158,6 +166,9 @@ public class DataInitializer implements CommandLineRunner {
         gradeRepository.save(new Grade(86.5, "Thorough lab reports", student5, biology, spring2025));
 
         logger.info("Created initial grades for students across semesters.");
+
+        // Seed grades bypass GradeService, so build their rollups in one pass
+        gradeRollupService.rebuildAll();
         logger.info("Initial data loading complete.");
     }
 }
\ No newline at end of file
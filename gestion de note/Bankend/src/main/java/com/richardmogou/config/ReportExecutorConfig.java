@@ -0,0 +1,66 @@
+package com.richardmogou.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Thread pools for report generation.
+ * <p>
+ * The render pool is used to render bulk PDF reports in parallel.
+ * It is bounded so that large batches cannot take every core away from interactive requests;
+ * when its queue is full, the requesting thread renders the report itself, which slows down that
+ * batch instead of queuing without limit.
+ * <p>
+ * The job pool runs background report jobs, at most {@code reports.jobs.max-concurrent} at a time.
+ * Its queue is bounded too, but submissions beyond it are rejected rather than run by the caller,
+ * since the caller is an HTTP request that should return immediately.
+ */
+@Configuration
+public class ReportExecutorConfig {
+
+    @Value("${reports.pdf.render-threads:0}")
+    private int renderThreads; // 0 = half of the available cores
+
+    @Value("${reports.pdf.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${reports.jobs.max-concurrent:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${reports.jobs.queue-capacity:100}")
+    private int jobQueueCapacity;
+
+    @Bean(name = "reportRenderExecutor")
+    public ThreadPoolTaskExecutor reportRenderExecutor() {
+        int threads = renderThreads > 0
+                ? renderThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-render-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean(name = "reportJobExecutor")
+    public ThreadPoolTaskExecutor reportJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentJobs);
+        executor.setMaxPoolSize(maxConcurrentJobs);
+        executor.setQueueCapacity(jobQueueCapacity);
+        executor.setThreadNamePrefix("report-job-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        // Jobs left unfinished at shutdown are resumed from the database on the next start
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
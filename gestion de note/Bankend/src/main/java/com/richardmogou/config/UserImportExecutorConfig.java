@@ -0,0 +1,38 @@
+package com.richardmogou.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Thread pool hashing passwords for bulk user imports.
+ * <p>
+ * BCrypt is slow by design (about 100 ms per password), so a term-start import of thousands of
+ * users is CPU-bound; the pool has one thread per core unless configured otherwise. Its queue is
+ * bounded, and when it is full the importing thread hashes passwords itself.
+ */
+@Configuration
+public class UserImportExecutorConfig {
+
+    @Value("${users.import.hash-threads:0}")
+    private int hashThreads; // 0 = one per available core
+
+    @Value("${users.import.hash-queue-capacity:256}")
+    private int queueCapacity;
+
+    @Bean(name = "passwordHashExecutor")
+    public ThreadPoolTaskExecutor passwordHashExecutor() {
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
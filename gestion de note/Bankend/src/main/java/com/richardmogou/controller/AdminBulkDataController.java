@@ -0,0 +1,91 @@
+package com.richardmogou.controller;
+
+import com.richardmogou.dto.GradeImportResultDto;
+import com.richardmogou.dto.MessageResponse;
+import com.richardmogou.service.GradeBulkDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+
+/**
+ * Bulk transfers of the grades table as CSV, for warehouse exports and term-start loads, and as
+ * Arrow for analytics.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/bulk")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminBulkDataController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminBulkDataController.class);
+
+    private static final MediaType CSV_MEDIA_TYPE = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final MediaType ARROW_MEDIA_TYPE = MediaType.parseMediaType("application/vnd.apache.arrow.stream");
+
+    private static final String FORMAT_CSV = "csv";
+    private static final String FORMAT_ARROW = "arrow";
+
+    @Autowired
+    private GradeBulkDataService gradeBulkDataService;
+
+    // GET /api/admin/bulk/grades - Export every grade, streamed while it is read
+    // (format=csv, or arrow for an Arrow IPC stream readable by pyarrow, pandas, DuckDB...)
+    @GetMapping("/grades")
+    public ResponseEntity<StreamingResponseBody> exportGrades(@RequestParam(defaultValue = FORMAT_CSV) String format) {
+        boolean arrow = FORMAT_ARROW.equals(format);
+        if (!arrow && !FORMAT_CSV.equals(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unsupported export format '" + format + "', expected " + FORMAT_CSV + " or " + FORMAT_ARROW);
+        }
+        logger.info("Exporting all grades in bulk as {}", format);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=grades_" + LocalDate.now() + "." + format);
+
+        StreamingResponseBody body = outputStream -> {
+            outputStream.flush(); // Start the download before the query runs
+            if (arrow) {
+                gradeBulkDataService.exportGradesArrow(outputStream);
+            } else {
+                gradeBulkDataService.exportGrades(outputStream);
+            }
+        };
+        return ResponseEntity
+                .ok()
+                .headers(headers)
+                .contentType(arrow ? ARROW_MEDIA_TYPE : CSV_MEDIA_TYPE)
+                .body(body);
+    }
+
+    // POST /api/admin/bulk/grades - Insert or update grades from a CSV file
+    // (grade_id,username,subject,semester,score,date_assigned,comments; empty grade_id inserts)
+    @PostMapping(value = "/grades", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importGrades(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: The grade file is empty"));
+        }
+        try (InputStream in = file.getInputStream()) {
+            GradeImportResultDto result = gradeBulkDataService.importGrades(in);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Bulk grade import rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error reading bulk grade file", e);
+            return ResponseEntity.badRequest().body(new MessageResponse("Error reading file: " + e.getMessage()));
+        }
+    }
+}
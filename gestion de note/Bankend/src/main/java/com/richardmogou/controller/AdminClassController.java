@@ -0,0 +1,91 @@
+package com.richardmogou.controller;
+
+import com.richardmogou.dto.BulkEnrollmentRequestDto;
+import com.richardmogou.dto.BulkEnrollmentResultDto;
+import com.richardmogou.dto.EnrollmentImportResultDto;
+import com.richardmogou.dto.MessageResponse;
+import com.richardmogou.service.ClassSectionService;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/classes") // Base path for class section admin operations
+@PreAuthorize("hasRole('ADMIN')") // Secure all endpoints in this controller for ADMIN role
+public class AdminClassController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminClassController.class);
+
+    @Autowired
+    private ClassSectionService classSectionService;
+
+    // POST /api/admin/classes/{id}/students - Enroll several students at once
+    @PostMapping("/{id}/students")
+    public ResponseEntity<?> enrollStudents(@PathVariable Long id, @Valid @RequestBody BulkEnrollmentRequestDto request) {
+        return applyRosterChange(id, "enroll students in", () -> classSectionService.enrollStudents(id, request.getStudentIds()));
+    }
+
+    // POST /api/admin/classes/{id}/students/remove - Unenroll several students at once
+    @PostMapping("/{id}/students/remove")
+    public ResponseEntity<?> unenrollStudents(@PathVariable Long id, @Valid @RequestBody BulkEnrollmentRequestDto request) {
+        return applyRosterChange(id, "unenroll students from", () -> classSectionService.unenrollStudents(id, request.getStudentIds()));
+    }
+
+    // PUT /api/admin/classes/{id}/students - Replace the roster with exactly the given students
+    @PutMapping("/{id}/students")
+    public ResponseEntity<?> replaceRoster(@PathVariable Long id, @Valid @RequestBody BulkEnrollmentRequestDto request) {
+        return applyRosterChange(id, "replace roster of", () -> classSectionService.replaceRoster(id, request.getStudentIds()));
+    }
+
+    // POST /api/admin/classes/semester/{semesterId}/enrollments - Enroll students across a semester from a CSV mapping file
+    @PostMapping(value = "/semester/{semesterId}/enrollments", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importSemesterEnrollments(
+            @PathVariable Long semesterId,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "false") boolean replace) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: The mapping file is empty"));
+        }
+        try {
+            EnrollmentImportResultDto result = classSectionService.importSemesterEnrollments(semesterId, file.getInputStream(), replace);
+            logger.info("Imported enrollments for semester {}: {} added, {} removed, {} rejected lines",
+                    semesterId, result.getTotalAdded(), result.getTotalRemoved(), result.getErrors().size());
+            return ResponseEntity.ok(result);
+        } catch (EntityNotFoundException e) {
+            logger.warn("Enrollment import failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Enrollment import rejected for semester {}: {}", semesterId, e.getMessage());
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error reading enrollment file for semester {}", semesterId, e);
+            return ResponseEntity.badRequest().body(new MessageResponse("Error reading file: " + e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> applyRosterChange(Long id, String action, Supplier<BulkEnrollmentResultDto> change) {
+        try {
+            BulkEnrollmentResultDto result = change.get();
+            logger.info("Class {}: {} added, {} removed, {} enrolled", id, result.getAdded(), result.getRemoved(), result.getStudentCount());
+            return ResponseEntity.ok(result);
+        } catch (EntityNotFoundException e) {
+            logger.warn("Failed to {} class {}: {}", action, id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Failed to {} class {}: {}", action, id, e.getMessage());
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+}
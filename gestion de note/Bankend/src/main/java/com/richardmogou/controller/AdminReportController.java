@@ -1,7 +1,7 @@
 package com.richardmogou.controller;
 
-import com.richardmogou.dto.MessageResponse;
 import com.richardmogou.service.PdfService;
+import com.richardmogou.service.StudentReportBatch;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +13,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -26,6 +28,10 @@ public class AdminReportController {
 
     private static final Logger logger = LoggerFactory.getLogger(AdminReportController.class);
 
+    // Output formats of the class and semester batch endpoints
+    private static final String FORMAT_ZIP = "zip";
+    private static final String FORMAT_PDF = "pdf";
+
     @Autowired
     private PdfService pdfService;
 
@@ -58,114 +64,132 @@ public class AdminReportController {
         }
     }
 
-    // POST /api/admin/reports/bulk - Generate PDF reports for multiple students
-    @PostMapping("/bulk")
-    public ResponseEntity<?> generateBulkReports(@RequestBody List<Long> studentIds) {
-        logger.info("Generating bulk PDF reports for {} students", studentIds.size());
-
-        if (studentIds.isEmpty()) {
-            return ResponseEntity
-                    .badRequest()
-                    .body(new MessageResponse("Error: No student IDs provided"));
-        }
+    // GET /api/admin/reports/student/{id}/transcript - Generate the transcript PDF of a specific student
+    @GetMapping("/student/{id}/transcript")
+    public ResponseEntity<InputStreamResource> generateStudentTranscript(@PathVariable Long id) {
+        logger.info("Generating transcript PDF for student ID: {}", id);
 
         try {
-            ByteArrayInputStream zipInputStream = pdfService.generateBulkStudentReports(studentIds);
+            ByteArrayInputStream pdfInputStream = pdfService.generateStudentTranscript(id);
 
             HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=student_reports.zip");
+            headers.add(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=transcript_" + id + ".pdf");
 
             return ResponseEntity
                     .ok()
                     .headers(headers)
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(new InputStreamResource(zipInputStream));
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(new InputStreamResource(pdfInputStream));
 
         } catch (EntityNotFoundException e) {
-            logger.warn("Cannot generate bulk reports: {}", e.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(new MessageResponse("Error: " + e.getMessage()));
+            logger.warn("Cannot generate transcript: Student not found with ID: {}", id);
+            return ResponseEntity.notFound().build();
         } catch (IOException e) {
-            logger.error("Error generating bulk PDF reports: {}", e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Error generating bulk reports: " + e.getMessage()));
+            logger.error("Error generating PDF transcript for student ID {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         } catch (Exception e) {
-            logger.error("Unexpected error during bulk PDF report generation: {}", e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Unexpected error generating bulk reports: " + e.getMessage()));
+            logger.error("Unexpected error during PDF transcript generation for student ID {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
-    // POST /api/admin/reports/class/{id} - Generate PDF reports for all students in a class
-    @PostMapping("/class/{id}")
-    public ResponseEntity<?> generateClassReports(@PathVariable Long id) {
-        logger.info("Generating PDF reports for all students in class ID: {}", id);
+    // POST /api/admin/reports/bulk - Generate PDF reports for multiple students
+    @PostMapping("/bulk")
+    public ResponseEntity<StreamingResponseBody> generateBulkReports(@RequestBody List<Long> studentIds) {
+        logger.info("Generating bulk PDF reports for {} students", studentIds.size());
+
+        if (studentIds.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error: No student IDs provided");
+        }
 
         try {
-            ByteArrayInputStream zipInputStream = pdfService.generateClassReports(id);
+            StudentReportBatch batch = pdfService.prepareBulkStudentReports(studentIds);
+            return streamReportsZip(batch, "student_reports.zip");
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=class_" + id + "_reports.zip");
+        } catch (EntityNotFoundException e) {
+            logger.warn("Cannot generate bulk reports: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Unexpected error during bulk PDF report generation: {}", e.getMessage(), e);
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error generating bulk reports: " + e.getMessage());
+        }
+    }
 
-            return ResponseEntity
-                    .ok()
-                    .headers(headers)
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(new InputStreamResource(zipInputStream));
+    // POST /api/admin/reports/class/{id}?format=zip|pdf - Generate PDF reports for all students in a class,
+    // as a ZIP of one PDF per student (default) or as a single merged PDF
+    @PostMapping("/class/{id}")
+    public ResponseEntity<StreamingResponseBody> generateClassReports(@PathVariable Long id,
+                                                                      @RequestParam(defaultValue = FORMAT_ZIP) String format) {
+        logger.info("Generating PDF reports ({}) for all students in class ID: {}", format, id);
+        checkBatchFormat(format);
+
+        try {
+            StudentReportBatch batch = pdfService.prepareClassReports(id);
+            return streamReports(batch, format, "class_" + id + "_reports");
 
         } catch (EntityNotFoundException e) {
             logger.warn("Cannot generate class reports: {}", e.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(new MessageResponse("Error: " + e.getMessage()));
-        } catch (IOException e) {
-            logger.error("Error generating PDF reports for class ID {}: {}", id, e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Error generating class reports: " + e.getMessage()));
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error: " + e.getMessage());
         } catch (Exception e) {
             logger.error("Unexpected error during class PDF report generation for class ID {}: {}", id, e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Unexpected error generating class reports: " + e.getMessage()));
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error generating class reports: " + e.getMessage());
         }
     }
 
-    // POST /api/admin/reports/semester/{id} - Generate PDF reports for all students in a semester
+    // POST /api/admin/reports/semester/{id}?format=zip|pdf - Generate PDF reports for all students in a semester,
+    // as a ZIP of one PDF per student (default) or as a single merged PDF
     @PostMapping("/semester/{id}")
-    public ResponseEntity<?> generateSemesterReports(@PathVariable Long id) {
-        logger.info("Generating PDF reports for all students in semester ID: {}", id);
+    public ResponseEntity<StreamingResponseBody> generateSemesterReports(@PathVariable Long id,
+                                                                         @RequestParam(defaultValue = FORMAT_ZIP) String format) {
+        logger.info("Generating PDF reports ({}) for all students in semester ID: {}", format, id);
+        checkBatchFormat(format);
 
         try {
-            ByteArrayInputStream zipInputStream = pdfService.generateSemesterReports(id);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=semester_" + id + "_reports.zip");
-
-            return ResponseEntity
-                    .ok()
-                    .headers(headers)
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(new InputStreamResource(zipInputStream));
+            StudentReportBatch batch = pdfService.prepareSemesterReports(id);
+            return streamReports(batch, format, "semester_" + id + "_reports");
 
         } catch (EntityNotFoundException e) {
             logger.warn("Cannot generate semester reports: {}", e.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(new MessageResponse("Error: " + e.getMessage()));
-        } catch (IOException e) {
-            logger.error("Error generating PDF reports for semester ID {}: {}", id, e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Error generating semester reports: " + e.getMessage()));
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error: " + e.getMessage());
         } catch (Exception e) {
             logger.error("Unexpected error during semester PDF report generation for semester ID {}: {}", id, e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Unexpected error generating semester reports: " + e.getMessage()));
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected error generating semester reports: " + e.getMessage());
         }
     }
+
+    private void checkBatchFormat(String format) {
+        if (!FORMAT_ZIP.equals(format) && !FORMAT_PDF.equals(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error: Unsupported format '" + format + "', expected 'zip' or 'pdf'");
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamReports(StudentReportBatch batch, String format, String baseName) {
+        return FORMAT_PDF.equals(format) ? streamMergedPdf(batch, baseName + ".pdf") : streamReportsZip(batch, baseName + ".zip");
+    }
+
+    // The merged document is written once all reports are rendered, its pages buffered in temporary files
+    private ResponseEntity<StreamingResponseBody> streamMergedPdf(StudentReportBatch batch, String filename) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
+
+        StreamingResponseBody body = outputStream -> pdfService.writeMergedReportsPdf(batch, outputStream);
+        return ResponseEntity
+                .ok()
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
+    // Streams the ZIP while the reports are rendered; errors after this point can only abort the response
+    private ResponseEntity<StreamingResponseBody> streamReportsZip(StudentReportBatch batch, String filename) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
+
+        StreamingResponseBody body = outputStream -> pdfService.writeReportsZip(batch, outputStream);
+        return ResponseEntity
+                .ok()
+                .headers(headers)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(body);
+    }
 }
@@ -0,0 +1,108 @@
+package com.richardmogou.controller;
+
+import com.richardmogou.dto.MessageResponse;
+import com.richardmogou.dto.ReportJobDto;
+import com.richardmogou.dto.ReportJobRequestDto;
+import com.richardmogou.model.User;
+import com.richardmogou.service.ReportJobArtifact;
+import com.richardmogou.service.ReportJobService;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/report-jobs") // Background report generation
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminReportJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminReportJobController.class);
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private FileDownloadResponder fileDownloadResponder;
+
+    // POST /api/admin/report-jobs - Queue a PDF or Excel report; poll the returned job until it completes
+    @PostMapping
+    public ResponseEntity<?> submitJob(@Valid @RequestBody ReportJobRequestDto request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Long requestedById = authentication != null && authentication.getPrincipal() instanceof User user ? user.getId() : null;
+
+        try {
+            ReportJobDto job = reportJobService.submitJob(request, requestedById);
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.getId()).toUri();
+            return ResponseEntity.accepted().location(location).body(job);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Report job rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IllegalStateException e) {
+            logger.warn("Report job rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    // GET /api/admin/report-jobs - List report jobs, most recent first
+    @GetMapping
+    public ResponseEntity<PagedModel<ReportJobDto>> listJobs(@PageableDefault(size = 20) Pageable pageable) {
+        return ResponseEntity.ok(new PagedModel<>(reportJobService.listJobs(pageable)));
+    }
+
+    // GET /api/admin/report-jobs/{id} - Get the state and progress of a report job
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getJob(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(reportJobService.getJob(id));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    // GET /api/admin/report-jobs/{id}/artifact - Download the report produced by a completed job (supports Range requests)
+    @GetMapping("/{id}/artifact")
+    public void downloadArtifact(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ReportJobArtifact artifact;
+        try {
+            artifact = reportJobService.getArtifact(id);
+        } catch (EntityNotFoundException e) {
+            logger.warn("Cannot download report job artifact: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Error: " + e.getMessage());
+        }
+
+        fileDownloadResponder.serve(artifact.path(), artifact.filename(), artifact.contentType(), request, response);
+    }
+
+    // DELETE /api/admin/report-jobs/{id} - Delete a finished or queued job and its artifact
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteJob(@PathVariable Long id) {
+        try {
+            reportJobService.deleteJob(id);
+            return ResponseEntity.ok(new MessageResponse("Report job deleted successfully!"));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+}
@@ -3,20 +3,28 @@ package com.richardmogou.controller; // Standard package
 import com.richardmogou.dto.MessageResponse;
 import com.richardmogou.dto.UserCreateRequestDto;
 import com.richardmogou.dto.UserDto;
+import com.richardmogou.dto.UserImportResultDto;
 import com.richardmogou.dto.UserUpdateRequestDto;
 import com.richardmogou.model.Role;
+import com.richardmogou.service.UserImportService;
 import com.richardmogou.service.UserService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
 
 @CrossOrigin(origins = "*", maxAge = 3600) // Adjust for production
 @RestController
@@ -26,9 +34,14 @@ public class AdminUserController {
 
     private static final Logger logger = LoggerFactory.getLogger(AdminUserController.class);
 
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserImportService userImportService;
+
     // GET /api/admin/users - Retrieve all users (optional filter by role)
     @GetMapping
     public ResponseEntity<List<UserDto>> getAllUsers(@RequestParam(required = false) Role role) {
@@ -78,6 +91,34 @@ public class AdminUserController {
         }
     }
 
+    // POST /api/admin/users/import - Create users in bulk from an XLSX or CSV file
+    // (username,password,first_name,last_name,email[,role]; role defaults to STUDENT)
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importUsers(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: The user file is empty"));
+        }
+        String filename = file.getOriginalFilename();
+        boolean xlsx = (filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".xlsx"))
+                || XLSX_CONTENT_TYPE.equals(file.getContentType());
+        try (InputStream in = file.getInputStream()) {
+            UserImportResultDto result = userImportService.importUsers(in, xlsx);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Bulk user import rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            // A username or email was taken between the uniqueness check and the inserts
+            logger.warn("Bulk user import conflicted with concurrent changes: {}", e.getMostSpecificCause().getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(new MessageResponse("Error: A username or email in the file was taken during the import, nothing was created"));
+        } catch (IOException e) {
+            logger.error("Error reading bulk user file", e);
+            return ResponseEntity.badRequest().body(new MessageResponse("Error reading file: " + e.getMessage()));
+        }
+    }
+
     // PUT /api/admin/users/{id} - Update an existing user
     @PutMapping("/{id}")
     public ResponseEntity<?> updateUser(@PathVariable Long id, @Valid @RequestBody UserUpdateRequestDto userUpdateDto) {
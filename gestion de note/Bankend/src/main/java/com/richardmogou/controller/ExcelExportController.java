@@ -1,21 +1,31 @@
 package com.richardmogou.controller;
 
-import com.richardmogou.dto.MessageResponse;
+import com.richardmogou.service.ClassGradebook;
 import com.richardmogou.service.ExcelService;
+import com.richardmogou.service.GradeExport;
+import com.richardmogou.service.ReportArtifactCache;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -24,165 +34,260 @@ public class ExcelExportController {
 
     private static final Logger logger = LoggerFactory.getLogger(ExcelExportController.class);
 
+    private static final MediaType XLSX_MEDIA_TYPE = MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    private static final MediaType CSV_MEDIA_TYPE = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final MediaType GZIP_MEDIA_TYPE = MediaType.parseMediaType("application/gzip");
+
+    // Output formats of the export endpoints, also used as file extensions
+    private static final String FORMAT_XLSX = "xlsx";
+    private static final String FORMAT_CSV = "csv";
+    private static final String FORMAT_CSV_GZ = "csv.gz";
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    // Cached exports may be stored by the browser, but must be revalidated with their ETag
+    private static final CacheControl EXPORT_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private ExcelService excelService;
 
+    @Autowired
+    private ReportArtifactCache reportArtifactCache; // Class and semester exports, by scope watermark and format
+
+    // Larger exports are still served, but regenerated for every download
+    @Value("${reports.cache.export-max-bytes:16777216}")
+    private int maxCachedExportBytes;
+
 
     @GetMapping("/student/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TEACHER') or (hasRole('STUDENT') and @userSecurity.isCurrentUser(#id))")
-    public ResponseEntity<?> exportStudentGrades(@PathVariable Long id) {
-        logger.info("Exporting Excel report for student ID: {}", id);
+    public ResponseEntity<StreamingResponseBody> exportStudentGrades(@PathVariable Long id,
+                                                                     @RequestParam(defaultValue = FORMAT_XLSX) String format,
+                                                                     WebRequest request) {
+        logger.info("Exporting grades ({}) for student ID: {}", format, id);
+        checkExportFormat(format);
 
         try {
-            ByteArrayInputStream excelStream = excelService.generateStudentGradesExcel(id);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=student_grades_" + id + ".xlsx");
-
-            return ResponseEntity
-                    .ok()
-                    .headers(headers)
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(new InputStreamResource(excelStream));
+            GradeExport export = excelService.prepareStudentGradesExport(id);
+            return streamExport(export, format, "student_grades_" + id, request);
 
         } catch (EntityNotFoundException e) {
-            logger.warn("Cannot export Excel: Student not found with ID: {}", id);
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(new MessageResponse("Error: " + e.getMessage()));
-        } catch (IOException e) {
-            logger.error("Error generating Excel report for student ID {}: {}", id, e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Error generating Excel report: " + e.getMessage()));
+            logger.warn("Cannot export grades: Student not found with ID: {}", id);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error: " + e.getMessage());
         }
     }
 
     // GET /api/excel/class/{id} - Export grades for a specific class
     @GetMapping("/class/{id}")
     @PreAuthorize("hasRole('ADMIN') or (hasRole('TEACHER') and @userSecurity.isTeacherOfClass(#id))")
-    public ResponseEntity<?> exportClassGrades(@PathVariable Long id) {
-        logger.info("Exporting Excel report for class ID: {}", id);
+    public ResponseEntity<StreamingResponseBody> exportClassGrades(@PathVariable Long id,
+                                                                   @RequestParam(defaultValue = FORMAT_XLSX) String format,
+                                                                   WebRequest request) {
+        logger.info("Exporting grades ({}) for class ID: {}", format, id);
+        checkExportFormat(format);
 
         try {
-            ByteArrayInputStream excelStream = excelService.generateClassGradesExcel(id);
+            GradeExport export = excelService.prepareClassGradesExport(id);
+            return streamExport(export, format, "class_grades_" + id, request);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=class_grades_" + id + ".xlsx");
+        } catch (EntityNotFoundException | IllegalStateException e) {
+            logger.warn("Cannot export grades: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error: " + e.getMessage());
+        }
+    }
 
-            return ResponseEntity
-                    .ok()
-                    .headers(headers)
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(new InputStreamResource(excelStream));
+    // GET /api/excel/class/{id}/gradebook - Export the gradebook of a class: roster, statistics and grades sheets
+    @GetMapping("/class/{id}/gradebook")
+    @PreAuthorize("hasRole('ADMIN') or (hasRole('TEACHER') and @userSecurity.isTeacherOfClass(#id))")
+    public ResponseEntity<StreamingResponseBody> exportClassGradebook(@PathVariable Long id) {
+        logger.info("Exporting gradebook for class ID: {}", id);
 
+        ClassGradebook gradebook;
+        try {
+            gradebook = excelService.prepareClassGradebook(id);
         } catch (EntityNotFoundException | IllegalStateException e) {
-            logger.warn("Cannot export Excel: {}", e.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(new MessageResponse("Error: " + e.getMessage()));
-        } catch (IOException e) {
-            logger.error("Error generating Excel report for class ID {}: {}", id, e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Error generating Excel report: " + e.getMessage()));
+            logger.warn("Cannot export gradebook: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error: " + e.getMessage());
         }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=class_gradebook_" + id + "." + FORMAT_XLSX);
+
+        // The gradebook is already loaded: writing it needs no transaction
+        StreamingResponseBody body = outputStream -> excelService.writeGradebook(gradebook, outputStream);
+        return ResponseEntity
+                .ok()
+                .headers(headers)
+                .contentType(XLSX_MEDIA_TYPE)
+                .body(body);
     }
 
     // GET /api/excel/subject/{id} - Export grades for a specific subject
     @GetMapping("/subject/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TEACHER')")
-    public ResponseEntity<?> exportSubjectGrades(
+    public ResponseEntity<StreamingResponseBody> exportSubjectGrades(
             @PathVariable Long id,
-            @RequestParam(required = false) Long semesterId) {
-        
-        logger.info("Exporting Excel report for subject ID: {} and semester ID: {}", id, semesterId);
+            @RequestParam(required = false) Long semesterId,
+            @RequestParam(defaultValue = FORMAT_XLSX) String format,
+            WebRequest request) {
+
+        logger.info("Exporting grades ({}) for subject ID: {} and semester ID: {}", format, id, semesterId);
+        checkExportFormat(format);
 
         try {
-            ByteArrayInputStream excelStream = excelService.generateSubjectGradesExcel(id, semesterId);
+            GradeExport export = excelService.prepareSubjectGradesExport(id, semesterId);
 
-            String filename = "subject_grades_" + id;
+            String baseName = "subject_grades_" + id;
             if (semesterId != null) {
-                filename += "_semester_" + semesterId;
+                baseName += "_semester_" + semesterId;
             }
-            filename += ".xlsx";
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
-
-            return ResponseEntity
-                    .ok()
-                    .headers(headers)
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(new InputStreamResource(excelStream));
+            return streamExport(export, format, baseName, request);
 
         } catch (EntityNotFoundException e) {
-            logger.warn("Cannot export Excel: {}", e.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(new MessageResponse("Error: " + e.getMessage()));
-        } catch (IOException e) {
-            logger.error("Error generating Excel report for subject ID {}: {}", id, e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Error generating Excel report: " + e.getMessage()));
+            logger.warn("Cannot export grades: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error: " + e.getMessage());
         }
     }
 
     // GET /api/excel/semester/{id} - Export grades for a specific semester
     @GetMapping("/semester/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('TEACHER')")
-    public ResponseEntity<?> exportSemesterGrades(@PathVariable Long id) {
-        logger.info("Exporting Excel report for semester ID: {}", id);
+    public ResponseEntity<StreamingResponseBody> exportSemesterGrades(@PathVariable Long id,
+                                                                      @RequestParam(defaultValue = FORMAT_XLSX) String format,
+                                                                      WebRequest request) {
+        logger.info("Exporting grades ({}) for semester ID: {}", format, id);
+        checkExportFormat(format);
 
         try {
-            ByteArrayInputStream excelStream = excelService.generateSemesterGradesExcel(id);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=semester_grades_" + id + ".xlsx");
-
-            return ResponseEntity
-                    .ok()
-                    .headers(headers)
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(new InputStreamResource(excelStream));
+            GradeExport export = excelService.prepareSemesterGradesExport(id);
+            return streamExport(export, format, "semester_grades_" + id, request);
 
         } catch (EntityNotFoundException e) {
-            logger.warn("Cannot export Excel: {}", e.getMessage());
-            return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(new MessageResponse("Error: " + e.getMessage()));
-        } catch (IOException e) {
-            logger.error("Error generating Excel report for semester ID {}: {}", id, e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Error generating Excel report: " + e.getMessage()));
+            logger.warn("Cannot export grades: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Error: " + e.getMessage());
         }
     }
 
     // GET /api/excel/all - Export all grades (admin only)
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> exportAllGrades() {
-        logger.info("Exporting Excel report for all grades");
+    public ResponseEntity<StreamingResponseBody> exportAllGrades(@RequestParam(defaultValue = FORMAT_XLSX) String format,
+                                                                 WebRequest request) {
+        logger.info("Exporting all grades ({})", format);
+        checkExportFormat(format);
 
-        try {
-            ByteArrayInputStream excelStream = excelService.generateAllGradesExcel();
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=all_grades.xlsx");
-
-            return ResponseEntity
-                    .ok()
-                    .headers(headers)
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .body(new InputStreamResource(excelStream));
-
-        } catch (IOException e) {
-            logger.error("Error generating Excel report for all grades: {}", e.getMessage(), e);
-            return ResponseEntity
-                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Error generating Excel report: " + e.getMessage()));
+        return streamExport(excelService.prepareAllGradesExport(), format, "all_grades", request);
+    }
+
+    private void checkExportFormat(String format) {
+        if (!FORMAT_XLSX.equals(format) && !FORMAT_CSV.equals(format) && !FORMAT_CSV_GZ.equals(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Error: Unsupported format '" + format + "', expected 'xlsx', 'csv' or 'csv.gz'");
+        }
+    }
+
+    // Writes an export in one format
+    private interface ExportWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamExport(GradeExport export, String format, String baseName,
+                                                               WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + baseName + "." + format);
+
+        ExportWriter writer;
+        MediaType contentType;
+        if (FORMAT_CSV.equals(format)) {
+            writer = out -> excelService.writeCsv(export, out);
+            contentType = CSV_MEDIA_TYPE;
+        } else if (FORMAT_CSV_GZ.equals(format)) {
+            // Compressed as it is written; closing the gzip stream adds its trailer and leaves the response open
+            writer = out -> {
+                try (GZIPOutputStream gzip = new GZIPOutputStream(StreamUtils.nonClosing(out), GZIP_BUFFER_SIZE)) {
+                    excelService.writeCsv(export, gzip);
+                }
+            };
+            contentType = GZIP_MEDIA_TYPE;
+        } else {
+            writer = out -> excelService.writeExcel(export, out);
+            contentType = XLSX_MEDIA_TYPE;
+        }
+
+        // The grades are read through a cursor while the response is written, on an async thread. The
+        // headers are flushed first so that the client sees the download start right away; errors after
+        // this point can only abort the response.
+        if (export.cacheKey() == null) {
+            StreamingResponseBody body = outputStream -> {
+                outputStream.flush();
+                writer.write(outputStream);
+            };
+            return ResponseEntity.ok().headers(headers).contentType(contentType).body(body);
+        }
+
+        // The key changes with the watermark of the export's scope, so a stored copy is current for as
+        // long as its key is. The ETag is weak: a regenerated copy has the same content, not the same bytes.
+        String cacheKey = "export-" + export.cacheKey() + "-" + format;
+        String etag = "W/\"" + cacheKey + "\"";
+        // checkNotModified sets the ETag on the response itself, for 200s as well as 304s
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(EXPORT_CACHE_CONTROL).build();
+        }
+        headers.setCacheControl(EXPORT_CACHE_CONTROL);
+
+        byte[] cached = reportArtifactCache.get(cacheKey);
+        if (cached != null) {
+            logger.info("Serving cached export {}", cacheKey);
+            StreamingResponseBody body = outputStream -> outputStream.write(cached);
+            return ResponseEntity.ok().headers(headers).contentType(contentType).contentLength(cached.length).body(body);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            outputStream.flush();
+            CapturingOutputStream capture = new CapturingOutputStream(outputStream, maxCachedExportBytes);
+            writer.write(capture);
+            byte[] data = capture.captured();
+            if (data != null) {
+                reportArtifactCache.put(cacheKey, data);
+            }
+        };
+        return ResponseEntity.ok().headers(headers).contentType(contentType).body(body);
+    }
+
+    // Copies what is written into memory, up to a limit past which the copy is dropped
+    private static final class CapturingOutputStream extends FilterOutputStream {
+
+        private final int maxBytes;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private CapturingOutputStream(OutputStream out, int maxBytes) {
+            super(out);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            capture(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        // The complete copy, or null if the output was too large
+        private byte[] captured() {
+            return copy != null ? copy.toByteArray() : null;
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (copy != null && copy.size() + len > maxBytes) {
+                copy = null;
+            }
+            if (copy != null) {
+                copy.write(b, off, len);
+            }
         }
     }
 }
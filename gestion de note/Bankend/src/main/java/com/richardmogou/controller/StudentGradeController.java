@@ -128,4 +128,34 @@ public class StudentGradeController {
              return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    // GET /api/student/grades/my/transcript - Download the transcript PDF of the authenticated student
+    @GetMapping("/my/transcript")
+    public ResponseEntity<InputStreamResource> downloadMyTranscript() {
+        Long studentId = getCurrentUserId();
+        logger.info("Requesting transcript PDF download for student ID: {}", studentId);
+
+        try {
+            ByteArrayInputStream pdfInputStream = pdfService.generateStudentTranscript(studentId);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=transcript_" + studentId + ".pdf");
+
+            return ResponseEntity
+                    .ok()
+                    .headers(headers)
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(new InputStreamResource(pdfInputStream));
+
+        } catch (EntityNotFoundException e) {
+            logger.warn("Cannot generate transcript: Student not found with ID: {}", studentId);
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            logger.error("Error generating PDF transcript for student ID {}: {}", studentId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (Exception e) {
+            logger.error("Unexpected error during PDF transcript generation for student ID {}: {}", studentId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.richardmogou.controller;
+
+import com.richardmogou.dto.AssessmentDto;
+import com.richardmogou.dto.AssessmentRequestDto;
+import com.richardmogou.dto.MessageResponse;
+import com.richardmogou.service.AssessmentService;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/teacher/assessments") // Base path for assessment operations
+@PreAuthorize("hasAnyRole('TEACHER', 'ADMIN')")
+public class TeacherAssessmentController {
+
+    private static final Logger logger = LoggerFactory.getLogger(TeacherAssessmentController.class);
+
+    @Autowired
+    private AssessmentService assessmentService;
+
+    // GET /api/teacher/assessments - Retrieve assessments (optionally filtered by subject/semester)
+    @GetMapping
+    public ResponseEntity<List<AssessmentDto>> getAssessments(
+            @RequestParam(required = false) Long subjectId,
+            @RequestParam(required = false) Long semesterId) {
+        try {
+            return ResponseEntity.ok(assessmentService.findAllAssessments(subjectId, semesterId));
+        } catch (EntityNotFoundException e) {
+            logger.warn("Error fetching assessments: {}", e.getMessage());
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    // GET /api/teacher/assessments/{id} - Retrieve a specific assessment by ID
+    @GetMapping("/{id}")
+    public ResponseEntity<AssessmentDto> getAssessmentById(@PathVariable Long id) {
+        return assessmentService.findAssessmentById(id)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> {
+                    logger.warn("Assessment not found with ID: {}", id);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "Assessment not found with ID: " + id);
+                });
+    }
+
+    // POST /api/teacher/assessments - Create a new assessment
+    @PostMapping
+    public ResponseEntity<?> createAssessment(@Valid @RequestBody AssessmentRequestDto assessmentRequestDto) {
+        try {
+            AssessmentDto createdAssessment = assessmentService.createAssessment(assessmentRequestDto);
+            logger.info("Created assessment with ID: {}", createdAssessment.getId());
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdAssessment);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Failed to create assessment, invalid reference: {}", e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    // PUT /api/teacher/assessments/{id} - Update an existing assessment
+    @PutMapping("/{id}")
+    public ResponseEntity<?> updateAssessment(@PathVariable Long id, @Valid @RequestBody AssessmentRequestDto assessmentRequestDto) {
+        try {
+            return assessmentService.updateAssessment(id, assessmentRequestDto)
+                    .map(updatedAssessment -> {
+                        logger.info("Updated assessment with ID: {}", id);
+                        return ResponseEntity.ok(updatedAssessment);
+                    })
+                    .orElseThrow(() -> {
+                        logger.warn("Assessment not found for update with ID: {}", id);
+                        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Assessment not found with ID: " + id);
+                    });
+        } catch (IllegalArgumentException e) {
+            logger.warn("Failed to update assessment {}: {}", id, e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    // DELETE /api/teacher/assessments/{id} - Delete an assessment without grades
+    @DeleteMapping("/{id}")
+    public ResponseEntity<MessageResponse> deleteAssessment(@PathVariable Long id) {
+        try {
+            if (assessmentService.deleteAssessment(id)) {
+                logger.info("Deleted assessment with ID: {}", id);
+                return ResponseEntity.ok(new MessageResponse("Assessment deleted successfully!"));
+            }
+        } catch (IllegalStateException e) {
+            logger.warn("Cannot delete assessment {}: {}", id, e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.CONFLICT)
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        }
+        logger.warn("Assessment not found for deletion with ID: {}", id);
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Assessment not found with ID: " + id);
+    }
+}
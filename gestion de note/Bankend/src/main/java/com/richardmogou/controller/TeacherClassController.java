@@ -1,13 +1,18 @@
 package com.richardmogou.controller;
 
-import com.richardmogou.dto.ClassSectionDto;
+import com.richardmogou.dto.ClassSectionSummaryDto;
 import com.richardmogou.dto.StudentDto;
+import com.richardmogou.model.Role;
 import com.richardmogou.model.User;
 import com.richardmogou.service.ClassSectionService;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -40,71 +45,66 @@ public class TeacherClassController {
         return userPrincipal.getId();
     }
 
-    // GET /api/teacher/classes - Retrieve all classes assigned to the authenticated teacher
+    // Helper method to check whether the current user is an admin (admins see every class)
+    private boolean isCurrentUserAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof User user && user.getRole() == Role.ADMIN;
+    }
+
+    // GET /api/teacher/classes - Retrieve summaries of the classes assigned to the authenticated teacher (all classes for admins)
     @GetMapping
-    public ResponseEntity<List<ClassSectionDto>> getMyClasses(
+    public ResponseEntity<List<ClassSectionSummaryDto>> getMyClasses(
             @RequestParam(required = false) Long subjectId,
             @RequestParam(required = false) Long semesterId) {
-        Long teacherId = getCurrentUserId();
-        logger.info("Fetching classes for teacher ID: {} (Subject filter: {}, Semester filter: {})", 
+        Long teacherId = isCurrentUserAdmin() ? null : getCurrentUserId();
+        logger.info("Fetching class summaries for teacher ID: {} (Subject filter: {}, Semester filter: {})",
                 teacherId, subjectId, semesterId);
         try {
-            List<ClassSectionDto> classes = classSectionService.findAllClassSections(teacherId, subjectId, semesterId);
+            List<ClassSectionSummaryDto> classes = classSectionService.findClassSectionSummaries(teacherId, subjectId, semesterId);
             return ResponseEntity.ok(classes);
-        } catch (EntityNotFoundException e) {
-            logger.warn("Error fetching classes for teacher {}: {}", teacherId, e.getMessage());
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
         } catch (Exception e) {
             logger.error("Unexpected error fetching classes for teacher {}", teacherId, e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while fetching classes.");
         }
     }
 
-    // GET /api/teacher/classes/{id} - Retrieve a specific class by ID
-    @GetMapping("/{id}")
-    public ResponseEntity<ClassSectionDto> getClassById(@PathVariable Long id) {
+    // Loads a class summary and verifies the authenticated teacher may access it
+    private ClassSectionSummaryDto getAccessibleClass(Long id, String deniedMessage) {
         Long teacherId = getCurrentUserId();
-        logger.info("Fetching class ID: {} for teacher ID: {}", id, teacherId);
-
-        return classSectionService.findClassSectionById(id)
-                .map(classDto -> {
-                    // Verify the class is assigned to the authenticated teacher
-                    if (classDto.getTeacherId() != null && !classDto.getTeacherId().equals(teacherId)) {
-                        logger.warn("Teacher {} attempted to access class {} assigned to teacher {}",
-                                teacherId, id, classDto.getTeacherId());
-                        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to this class.");
-                    }
-                    return ResponseEntity.ok(classDto);
-                })
+        ClassSectionSummaryDto classDto = classSectionService.findClassSectionSummaryById(id)
                 .orElseThrow(() -> {
                     logger.warn("Class not found with ID: {} for teacher {}", id, teacherId);
                     return new ResponseStatusException(HttpStatus.NOT_FOUND, "Class not found with ID: " + id);
                 });
+
+        // Verify the class is assigned to the authenticated teacher
+        if (!isCurrentUserAdmin() && classDto.getTeacherId() != null && !classDto.getTeacherId().equals(teacherId)) {
+            logger.warn("Teacher {} attempted to access class {} assigned to teacher {}",
+                    teacherId, id, classDto.getTeacherId());
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, deniedMessage);
+        }
+        return classDto;
     }
 
-    // GET /api/teacher/classes/{id}/students - Retrieve all students in a specific class
+    // GET /api/teacher/classes/{id} - Retrieve the summary of a specific class by ID
+    @GetMapping("/{id}")
+    public ResponseEntity<ClassSectionSummaryDto> getClassById(@PathVariable Long id) {
+        logger.info("Fetching class ID: {} for user ID: {}", id, getCurrentUserId());
+        return ResponseEntity.ok(getAccessibleClass(id, "Access denied to this class."));
+    }
+
+    // GET /api/teacher/classes/{id}/students?page=&size=&sort= - Retrieve one page of the students in a specific class
     @GetMapping("/{id}/students")
-    public ResponseEntity<List<StudentDto>> getStudentsInClass(@PathVariable Long id) {
-        Long teacherId = getCurrentUserId();
-        logger.info("Fetching students for class ID: {} by teacher ID: {}", id, teacherId);
+    public ResponseEntity<PagedModel<StudentDto>> getStudentsInClass(
+            @PathVariable Long id,
+            @PageableDefault(size = 50, sort = {"lastName", "firstName"}, direction = Sort.Direction.ASC) Pageable pageable) {
+        logger.info("Fetching students page {} for class ID: {} by user ID: {}", pageable.getPageNumber(), id, getCurrentUserId());
 
         // First check if the class exists and is assigned to the teacher
-        ClassSectionDto classDto = classSectionService.findClassSectionById(id)
-                .orElseThrow(() -> {
-                    logger.warn("Class not found with ID: {} for teacher {}", id, teacherId);
-                    return new ResponseStatusException(HttpStatus.NOT_FOUND, "Class not found with ID: " + id);
-                });
-
-        // Verify the class is assigned to the authenticated teacher
-        if (classDto.getTeacherId() != null && !classDto.getTeacherId().equals(teacherId)) {
-            logger.warn("Teacher {} attempted to access students in class {} assigned to teacher {}",
-                    teacherId, id, classDto.getTeacherId());
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Access denied to students in this class.");
-        }
+        getAccessibleClass(id, "Access denied to students in this class.");
 
         try {
-            List<StudentDto> students = classSectionService.findStudentsByClassSectionId(id);
-            return ResponseEntity.ok(students);
+            return ResponseEntity.ok(new PagedModel<>(classSectionService.findStudentsByClassSectionId(id, pageable)));
         } catch (EntityNotFoundException e) {
             logger.warn("Error fetching students for class {}: {}", id, e.getMessage());
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
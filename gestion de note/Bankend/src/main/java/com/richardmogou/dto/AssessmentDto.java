@@ -0,0 +1,22 @@
+package com.richardmogou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssessmentDto {
+    private Long id;
+    private String name;
+
+    private Long subjectId;
+    private String subjectName;
+
+    private Long semesterId;
+    private String semesterName;
+
+    private Double weight;
+    private Double maxPoints;
+}
@@ -0,0 +1,34 @@
+package com.richardmogou.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssessmentRequestDto {
+
+    @NotBlank(message = "Assessment name cannot be blank")
+    @Size(max = 100, message = "Assessment name cannot exceed 100 characters")
+    private String name;
+
+    @NotNull(message = "Subject ID cannot be null")
+    private Long subjectId;
+
+    private Long semesterId; // Optional
+
+    @NotNull(message = "Weight cannot be null")
+    @DecimalMin(value = "0.0", inclusive = false, message = "Weight must be positive")
+    private Double weight;
+
+    @NotNull(message = "Max points cannot be null")
+    @DecimalMin(value = "0.0", inclusive = false, message = "Max points must be positive")
+    @DecimalMax(value = "100.0", message = "Max points must be at most 100")
+    private Double maxPoints;
+}
@@ -0,0 +1,17 @@
+package com.richardmogou.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollmentRequestDto {
+
+    @NotNull(message = "Student IDs cannot be null")
+    private List<Long> studentIds; // May be empty when replacing a roster (clears the class)
+}
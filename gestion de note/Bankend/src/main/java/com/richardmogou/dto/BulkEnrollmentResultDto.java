@@ -0,0 +1,15 @@
+package com.richardmogou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollmentResultDto {
+    private Long classSectionId;
+    private int added;   // Students newly enrolled
+    private int removed; // Students unenrolled
+    private long studentCount; // Roster size after the operation
+}
@@ -0,0 +1,29 @@
+package com.richardmogou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lightweight view of a class section for listings: metadata and enrollment count, no roster.
+ * The roster itself is served page by page from /api/teacher/classes/{id}/students.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClassSectionSummaryDto {
+    private Long id;
+    private String name;
+
+    private Long subjectId;
+    private String subjectName;
+
+    private Long semesterId;
+    private String semesterName;
+
+    private Long teacherId;
+    private String teacherUsername;
+    private String teacherFullName;
+
+    private long studentCount;
+}
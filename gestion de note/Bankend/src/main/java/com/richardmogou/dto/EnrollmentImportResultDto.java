@@ -0,0 +1,22 @@
+package com.richardmogou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a semester-wide enrollment import from a mapping file.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnrollmentImportResultDto {
+    private Long semesterId;
+    private int linesRead;
+    private int totalAdded;
+    private int totalRemoved;
+    private List<BulkEnrollmentResultDto> classResults;
+    private List<String> errors; // One message per rejected line, e.g. "Line 12: unknown class 'Math 9'"
+}
@@ -26,4 +26,8 @@ public class GradeDto {
     // Semester info
     private Long semesterId;
     private String semesterName;
+
+    // Assessment info (null for grades not tied to an assessment)
+    private Long assessmentId;
+    private String assessmentName;
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.richardmogou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk grade import.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradeImportResultDto {
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long rejected;
+    private boolean copyProtocol; // Whether the rows were loaded with PostgreSQL COPY rather than batched inserts
+    private List<String> errors; // First rejected rows, e.g. "Line 12: unknown student 'jdoe'"
+}
@@ -27,4 +27,7 @@ public class GradeRequestDto {
 
     // Semester ID (optional)
     private Long semesterId;
+
+    // Assessment ID (optional). When set, subject and semester are taken from the assessment.
+    private Long assessmentId;
 }
\ No newline at end of file
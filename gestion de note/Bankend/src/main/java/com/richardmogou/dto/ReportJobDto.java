@@ -0,0 +1,32 @@
+package com.richardmogou.dto;
+
+import com.richardmogou.model.ReportJobStatus;
+import com.richardmogou.model.ReportJobType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobDto {
+    private Long id;
+    private ReportJobType type;
+    private ReportJobStatus status;
+    private Long targetId;
+    private Long requestedById;
+
+    // Progress; total is null until the job has loaded its data
+    private Integer processedItems;
+    private Integer totalItems;
+
+    private String filename;
+    private Long artifactSize;
+    private String errorMessage;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
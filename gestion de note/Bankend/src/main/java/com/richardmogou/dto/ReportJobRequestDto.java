@@ -0,0 +1,18 @@
+package com.richardmogou.dto;
+
+import com.richardmogou.model.ReportJobType;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ReportJobRequestDto {
+
+    @NotNull(message = "Report type cannot be null")
+    private ReportJobType type;
+
+    private Long targetId; // Required for class, semester and single student reports
+
+    private List<Long> studentIds; // Required for PDF_STUDENTS
+}
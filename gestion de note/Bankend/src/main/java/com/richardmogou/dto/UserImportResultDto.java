@@ -0,0 +1,20 @@
+package com.richardmogou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk user import.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResultDto {
+    private int rowsRead;
+    private int created;
+    private int rejected;
+    private List<UserImportRowDto> rows; // One per data row, in file order
+}
@@ -0,0 +1,18 @@
+package com.richardmogou.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one row of a bulk user import.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportRowDto {
+    private int line;
+    private String username;
+    private Long userId; // Set when the user was created
+    private String error; // Set when the row was rejected, e.g. "Email is already in use"
+}
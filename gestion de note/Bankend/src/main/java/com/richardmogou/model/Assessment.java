@@ -0,0 +1,58 @@
+package com.richardmogou.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+
+/**
+ * A graded piece of work (quiz, midterm, final...) within a subject and semester.
+ * Grades attach to an assessment so that each one can carry its own weight and scale.
+ */
+@Entity
+@Table(name = "assessments")
+@BatchSize(size = 50)
+@Data
+@NoArgsConstructor
+public class Assessment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotBlank(message = "Assessment name cannot be blank")
+    @Column(nullable = false, length = 100) // e.g., "Quiz 1", "Midterm", "Final Exam"
+    private String name;
+
+    @NotNull(message = "Subject cannot be null")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "subject_id", nullable = false)
+    private Subject subject;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "semester_id")
+    private Semester semester;
+
+    @NotNull(message = "Weight cannot be null")
+    @DecimalMin(value = "0.0", inclusive = false, message = "Weight must be positive")
+    @Column(nullable = false)
+    private Double weight = 1.0; // Relative weight within the subject average
+
+    @NotNull(message = "Max points cannot be null")
+    @DecimalMin(value = "0.0", inclusive = false, message = "Max points must be positive")
+    @DecimalMax(value = "100.0", message = "Max points must be at most 100") // Grade scores are capped at 100
+    @Column(nullable = false)
+    private Double maxPoints = 100.0; // Scores are normalized to 0-100 using this value
+
+    public Assessment(String name, Subject subject, Semester semester, Double weight, Double maxPoints) {
+        this.name = name;
+        this.subject = subject;
+        this.semester = semester;
+        this.weight = weight;
+        this.maxPoints = maxPoints;
+    }
+}
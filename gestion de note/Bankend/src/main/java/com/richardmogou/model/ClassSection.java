@@ -6,17 +6,33 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Table(name = "class_sections")
+// Fetch plans for class section read paths, selected per repository method with @EntityGraph
+@NamedEntityGraph(name = ClassSection.GRAPH_SUMMARY, attributeNodes = { // Metadata only, no roster
+        @NamedAttributeNode("subject"),
+        @NamedAttributeNode("semester"),
+        @NamedAttributeNode("teacher")
+})
+@NamedEntityGraph(name = ClassSection.GRAPH_WITH_STUDENTS, attributeNodes = { // Metadata and roster
+        @NamedAttributeNode("subject"),
+        @NamedAttributeNode("semester"),
+        @NamedAttributeNode("teacher"),
+        @NamedAttributeNode("students")
+})
 @Data
 @EqualsAndHashCode(exclude = {"teacher", "students"}) // Exclude bidirectional relationships to prevent circular references
 @NoArgsConstructor
 public class ClassSection {
 
+    public static final String GRAPH_SUMMARY = "ClassSection.summary";
+    public static final String GRAPH_WITH_STUDENTS = "ClassSection.withStudents";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -45,8 +61,19 @@ public class ClassSection {
         joinColumns = @JoinColumn(name = "class_id"),
         inverseJoinColumns = @JoinColumn(name = "student_id")
     )
+    @BatchSize(size = 50) // Rosters of several classes are initialized together
     private Set<Student> students = new HashSet<>();
 
+    // Export watermark: incremented by ExportWatermarkService whenever the class's grade export
+    // changes, never written through the entity. Null until the first change.
+    @Column(name = "grades_version", insertable = false, updatable = false)
+    private Long gradesVersion;
+
+    // Access version: incremented whenever the teacher or roster changes, so that every node can tell
+    // whether its ClassAccessIndex entry is current. Never written through the entity; null until the first change.
+    @Column(name = "access_version", insertable = false, updatable = false)
+    private Long accessVersion;
+
     // Constructor with essential fields
     public ClassSection(String name, Subject subject, Semester semester) {
         this.name = name;
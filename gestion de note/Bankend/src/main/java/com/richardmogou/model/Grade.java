@@ -12,11 +12,22 @@ import java.time.LocalDate;
 
 @Entity
 @Table(name = "grades")
+// Fetch plans for grade read paths, selected per repository method with @EntityGraph
+@NamedEntityGraph(name = Grade.GRAPH_DETAILS, attributeNodes = { // Grade DTOs, exports, statistics
+        @NamedAttributeNode("student"),
+        @NamedAttributeNode("subject"),
+        @NamedAttributeNode("semester"),
+        @NamedAttributeNode("assessment")
+})
+@NamedEntityGraph(name = Grade.GRAPH_WITH_SUBJECT, attributeNodes = @NamedAttributeNode("subject")) // Per-student reports
 @Data
 @NoArgsConstructor
 @AllArgsConstructor // Add this to explicitly generate all-args constructor too
 public class Grade {
 
+    public static final String GRAPH_DETAILS = "Grade.details";
+    public static final String GRAPH_WITH_SUBJECT = "Grade.withSubject";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -50,6 +61,11 @@ public class Grade {
     @JoinColumn(name = "semester_id")
     private Semester semester;
 
+    // Optional link to the assessment (quiz, midterm...) this grade was given for
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "assessment_id")
+    private Assessment assessment;
+
     // Constructor
     public Grade(Double score, String comments, Student student, Subject subject) {
         this.score = score;
@@ -0,0 +1,77 @@
+package com.richardmogou.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A report generated in the background. The row is the durable state of the job:
+ * unfinished jobs belong to the node whose pool holds them, which refreshes their
+ * heartbeat while it is alive; they are queued again when that node restarts or
+ * when another node finds the heartbeat expired. Finished ones point to their
+ * artifact in the report artifact directory of the node that ran them.
+ */
+@Entity
+@Table(name = "report_jobs")
+@Data
+@NoArgsConstructor
+public class ReportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ReportJobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private ReportJobStatus status = ReportJobStatus.QUEUED;
+
+    private Long targetId; // Class section, semester or student, depending on the type
+
+    @Column(columnDefinition = "TEXT") // Comma-separated student IDs for PDF_STUDENTS
+    private String studentIds;
+
+    private Long requestedById;
+
+    private Integer totalItems; // Reports to render, known once the job has loaded its data
+
+    private Integer processedItems;
+
+    @Column(length = 255)
+    private String filename; // Download name of the artifact
+
+    @Column(length = 100)
+    private String contentType;
+
+    @Column(length = 500)
+    private String artifactPath;
+
+    private Long artifactSize;
+
+    @Column(columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    @Column(length = 100)
+    private String ownerNode; // Node queuing or running the job, then the node that ran it
+
+    private LocalDateTime heartbeatAt; // Last sign of life of the owner while the job is unfinished
+
+    public ReportJob(ReportJobType type, Long targetId, String studentIds, Long requestedById) {
+        this.type = type;
+        this.targetId = targetId;
+        this.studentIds = studentIds;
+        this.requestedById = requestedById;
+    }
+}
@@ -0,0 +1,11 @@
+package com.richardmogou.model;
+
+/**
+ * Lifecycle of a background report job.
+ */
+public enum ReportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
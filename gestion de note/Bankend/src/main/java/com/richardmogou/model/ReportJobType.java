@@ -0,0 +1,15 @@
+package com.richardmogou.model;
+
+/**
+ * Kinds of report a background report job can produce.
+ * PDF jobs produce a ZIP of grade reports, Excel jobs a single workbook.
+ */
+public enum ReportJobType {
+    PDF_STUDENTS,   // Grade reports for a list of students
+    PDF_CLASS,      // Grade reports for every student in a class section
+    PDF_SEMESTER,   // Grade reports for every student graded in a semester
+    EXCEL_STUDENT,
+    EXCEL_CLASS,
+    EXCEL_SEMESTER,
+    EXCEL_ALL
+}
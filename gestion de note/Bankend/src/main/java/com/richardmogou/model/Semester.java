@@ -5,11 +5,13 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDate;
 
 @Entity
 @Table(name = "semesters")
+@BatchSize(size = 50)
 @Data
 @NoArgsConstructor
 public class Semester {
@@ -30,6 +32,11 @@ public class Semester {
     @Column(nullable = false)
     private LocalDate endDate;
 
+    // Export watermark: incremented by ExportWatermarkService whenever the semester's grade export
+    // changes, never written through the entity. Null until the first change.
+    @Column(name = "grades_version", insertable = false, updatable = false)
+    private Long gradesVersion;
+
     // Optional: Relationship back to Grades (if needed for semester-specific queries)
     // @OneToMany(mappedBy = "semester", cascade = CascadeType.ALL, orphanRemoval = true)
     // private Set<Grade> grades = new HashSet<>();
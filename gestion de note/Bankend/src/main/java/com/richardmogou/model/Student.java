@@ -1,26 +1,41 @@
 package com.richardmogou.model;
 
-import jakarta.persistence.Entity;
-import jakarta.persistence.ManyToMany;
-import jakarta.persistence.Table;
+import jakarta.persistence.*;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
 @Table(name = "students")
+// Enrolled classes with the associations shown for each of them (student summary)
+@NamedEntityGraph(name = Student.GRAPH_ENROLLED_CLASSES,
+        attributeNodes = @NamedAttributeNode(value = "enrolledClasses", subgraph = "classSection"),
+        subgraphs = @NamedSubgraph(name = "classSection", attributeNodes = {
+                @NamedAttributeNode("subject"),
+                @NamedAttributeNode("semester"),
+                @NamedAttributeNode("teacher")
+        }))
 @Data // Lombok
 @EqualsAndHashCode(callSuper = true, exclude = {"enrolledClasses"}) // Exclude enrolledClasses to prevent circular reference
 @NoArgsConstructor // Lombok
 public class Student extends User {
 
+    public static final String GRAPH_ENROLLED_CLASSES = "Student.enrolledClasses";
+
     // Student-specific fields
     @ManyToMany(mappedBy = "students")
+    @BatchSize(size = 50)
     private Set<ClassSection> enrolledClasses = new HashSet<>();
 
+    // Report version: incremented by ReportVersionTracker whenever the student's grade report
+    // changes, never written through the entity. Null until the first change.
+    @Column(name = "report_version", insertable = false, updatable = false)
+    private Long reportVersion;
+
     // Constructor calling the superclass constructor
     public Student(String username, String password, String firstName, String lastName, String email) {
         super(username, password, firstName, lastName, email, Role.STUDENT); // Set role automatically
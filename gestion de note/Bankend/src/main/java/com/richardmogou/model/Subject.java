@@ -6,9 +6,11 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 @Entity
 @Table(name = "subjects")
+@BatchSize(size = 50)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor // Add this to explicitly generate all-args constructor too
@@ -0,0 +1,61 @@
+package com.richardmogou.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Precomputed weighted rollup of a student's grades in one subject.
+ * Maintained incrementally on every grade write, so reading an average
+ * costs one row regardless of how many assessments were graded.
+ */
+@Entity
+@Table(name = "subject_averages",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"student_id", "subject_id"}))
+@Data
+@EqualsAndHashCode(exclude = {"student", "subject"})
+@NoArgsConstructor
+public class SubjectAverage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "student_id", nullable = false)
+    private Student student;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "subject_id", nullable = false)
+    private Subject subject;
+
+    // Sum of (normalized score * assessment weight) over all grades
+    @Column(nullable = false)
+    private Double weightedScoreSum = 0.0;
+
+    // Sum of assessment weights over all grades
+    @Column(nullable = false)
+    private Double weightSum = 0.0;
+
+    @Column(nullable = false)
+    private Long gradeCount = 0L;
+
+    public SubjectAverage(Student student, Subject subject, Double weightedScoreSum, Double weightSum, Long gradeCount) {
+        this.student = student;
+        this.subject = subject;
+        this.weightedScoreSum = weightedScoreSum;
+        this.weightSum = weightSum;
+        this.gradeCount = gradeCount;
+    }
+
+    /**
+     * @return The weighted average on a 0-100 scale, or null if nothing has been graded.
+     */
+    public Double getAverage() {
+        if (gradeCount == null || gradeCount <= 0 || weightSum == null || weightSum <= 0) {
+            return null;
+        }
+        return weightedScoreSum / weightSum;
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -16,6 +17,7 @@ import java.util.Collections;
 
 @Entity // Make User a concrete entity
 @Table(name = "users") // Explicitly name the base table
+@BatchSize(size = 50) // Declared on the hierarchy root so Student and Teacher proxies are batch-loaded too
 @Inheritance(strategy = InheritanceType.JOINED) // Use JOINED inheritance strategy
 @Data // Lombok annotation for getters, setters, toString, equals, hashCode
 @NoArgsConstructor // Lombok annotation for no-args constructor
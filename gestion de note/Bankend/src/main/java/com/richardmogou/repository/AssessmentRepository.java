@@ -0,0 +1,38 @@
+package com.richardmogou.repository;
+
+import com.richardmogou.model.Assessment;
+import com.richardmogou.model.Semester;
+import com.richardmogou.model.Subject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AssessmentRepository extends JpaRepository<Assessment, Long> {
+
+    /**
+     * Finds all assessments for a specific subject.
+     *
+     * @param subject The subject entity.
+     * @return A list of assessments for the given subject.
+     */
+    List<Assessment> findBySubject(Subject subject);
+
+    /**
+     * Finds all assessments for a specific semester.
+     *
+     * @param semester The semester entity.
+     * @return A list of assessments for the given semester.
+     */
+    List<Assessment> findBySemester(Semester semester);
+
+    /**
+     * Finds all assessments for a specific subject in a specific semester.
+     *
+     * @param subject The subject entity.
+     * @param semester The semester entity.
+     * @return A list of assessments for the given subject and semester combination.
+     */
+    List<Assessment> findBySubjectAndSemester(Subject subject, Semester semester);
+}
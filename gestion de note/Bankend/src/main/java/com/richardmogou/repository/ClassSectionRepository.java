@@ -2,20 +2,48 @@ package com.richardmogou.repository;
 
 
 import com.richardmogou.model.*;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ClassSectionRepository extends JpaRepository<ClassSection, Long> {
 
+    // The derived finders below feed the full ClassSection DTO (metadata and roster), so they load
+    // both with ClassSection.GRAPH_WITH_STUDENTS. Listings without a roster use findSummaries.
+
+    /**
+     * Finds a class section together with its subject, semester, teacher and roster.
+     *
+     * @param id The ID of the class section.
+     * @return An Optional containing the class section if found, otherwise empty.
+     */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
+    Optional<ClassSection> findWithStudentsById(Long id);
+
+    /**
+     * Finds all class sections together with their subject, semester, teacher and roster.
+     *
+     * @return A list of all class sections.
+     */
+    @Override
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
+    List<ClassSection> findAll();
+
     /**
      * Finds all classes taught by a specific teacher.
      *
      * @param teacher The teacher entity.
      * @return A list of classes taught by the given teacher.
      */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
     List<ClassSection> findByTeacher(Teacher teacher);
 
     /**
@@ -24,6 +52,7 @@ public interface ClassSectionRepository extends JpaRepository<ClassSection, Long
      * @param subject The subject entity.
      * @return A list of classes for the given subject.
      */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
     List<ClassSection> findBySubject(Subject subject);
 
     /**
@@ -32,6 +61,7 @@ public interface ClassSectionRepository extends JpaRepository<ClassSection, Long
      * @param semester The semester entity.
      * @return A list of classes for the given semester.
      */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
     List<ClassSection> findBySemester(Semester semester);
 
     /**
@@ -41,6 +71,7 @@ public interface ClassSectionRepository extends JpaRepository<ClassSection, Long
      * @param semester The semester entity.
      * @return A list of classes taught by the given teacher in the given semester.
      */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
     List<ClassSection> findByTeacherAndSemester(Teacher teacher, Semester semester);
 
     /**
@@ -50,6 +81,7 @@ public interface ClassSectionRepository extends JpaRepository<ClassSection, Long
      * @param semester The semester entity.
      * @return A list of classes for the given subject in the given semester.
      */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
     List<ClassSection> findBySubjectAndSemester(Subject subject, Semester semester);
 
     /**
@@ -59,6 +91,7 @@ public interface ClassSectionRepository extends JpaRepository<ClassSection, Long
      * @param subject The subject entity.
      * @return A list of classes taught by the given teacher for the given subject.
      */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
     List<ClassSection> findByTeacherAndSubject(Teacher teacher, Subject subject);
 
     /**
@@ -69,6 +102,7 @@ public interface ClassSectionRepository extends JpaRepository<ClassSection, Long
      * @param semester The semester entity.
      * @return A list of classes taught by the given teacher for the given subject in the given semester.
      */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
     List<ClassSection> findByTeacherAndSubjectAndSemester(Teacher teacher, Subject subject, Semester semester);
 
     /**
@@ -77,6 +111,7 @@ public interface ClassSectionRepository extends JpaRepository<ClassSection, Long
      * @param student The student entity.
      * @return A list of classes that the given student is enrolled in.
      */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
     List<ClassSection> findByStudentsContaining(Student student);
 
     /**
@@ -86,5 +121,186 @@ public interface ClassSectionRepository extends JpaRepository<ClassSection, Long
      * @param semester The semester entity.
      * @return A list of classes that the given student is enrolled in for the given semester.
      */
+    @EntityGraph(ClassSection.GRAPH_WITH_STUDENTS)
     List<ClassSection> findByStudentsContainingAndSemester(Student student, Semester semester);
+
+    /**
+     * Finds class sections matching the optional filters, with subject, semester and teacher
+     * fetched in the same query. The student roster is not loaded.
+     *
+     * @param teacherId Optional teacher ID (null to ignore).
+     * @param subjectId Optional subject ID (null to ignore).
+     * @param semesterId Optional semester ID (null to ignore).
+     * @return A list of matching classes, ordered by name.
+     */
+    @EntityGraph(ClassSection.GRAPH_SUMMARY)
+    @Query("SELECT c FROM ClassSection c " +
+           "WHERE (:teacherId IS NULL OR c.teacher.id = :teacherId) " +
+           "AND (:subjectId IS NULL OR c.subject.id = :subjectId) " +
+           "AND (:semesterId IS NULL OR c.semester.id = :semesterId) " +
+           "ORDER BY c.name")
+    List<ClassSection> findSummaries(@Param("teacherId") Long teacherId,
+                                     @Param("subjectId") Long subjectId,
+                                     @Param("semesterId") Long semesterId);
+
+    /**
+     * Finds a class section with subject, semester and teacher fetched, without its roster.
+     *
+     * @param id The ID of the class section.
+     * @return An Optional containing the class section if found, otherwise empty.
+     */
+    @EntityGraph(ClassSection.GRAPH_SUMMARY)
+    @Query("SELECT c FROM ClassSection c WHERE c.id = :id")
+    Optional<ClassSection> findSummaryById(@Param("id") Long id);
+
+    /**
+     * Counts enrolled students per class directly on the class_student join table.
+     *
+     * @param classIds The IDs of the class sections.
+     * @return One [classId, studentCount] row per class that has at least one student.
+     */
+    @Query(value = "SELECT cs.class_id, COUNT(cs.student_id) FROM class_student cs " +
+                   "WHERE cs.class_id IN (:classIds) GROUP BY cs.class_id", nativeQuery = true)
+    List<Object[]> countStudentsByClassIds(@Param("classIds") Collection<Long> classIds);
+
+    /**
+     * Counts the students enrolled in a class directly on the class_student join table.
+     *
+     * @param classId The ID of the class section.
+     * @return The roster size.
+     */
+    @Query(value = "SELECT COUNT(*) FROM class_student WHERE class_id = :classId", nativeQuery = true)
+    long countStudentsByClassId(@Param("classId") Long classId);
+
+    // --- Projections for the in-memory access index (ClassAccessIndex) ---
+
+    /**
+     * Lists the teacher assigned to every class section.
+     *
+     * @return One row per class section: [classId, teacherId, accessVersion], teacherId and accessVersion may be null.
+     */
+    @Query("SELECT c.id, t.id, c.accessVersion FROM ClassSection c LEFT JOIN c.teacher t")
+    List<Object[]> findAllTeacherAssignments();
+
+    /**
+     * Lists the access version of every class section.
+     *
+     * @return One row per class section: [classId, accessVersion], accessVersion may be null.
+     */
+    @Query("SELECT c.id, c.accessVersion FROM ClassSection c")
+    List<Object[]> findAllAccessVersions();
+
+    /**
+     * Finds the teacher and access version of a class section.
+     *
+     * @param classId The ID of the class section.
+     * @return [teacherId, accessVersion], either may be null; empty if the class does not exist.
+     */
+    @Query("SELECT t.id, c.accessVersion FROM ClassSection c LEFT JOIN c.teacher t WHERE c.id = :classId")
+    List<Object[]> findTeacherAndAccessVersionByClassId(@Param("classId") Long classId);
+
+    /**
+     * Increments the access version of a class section, after a change to its teacher or roster.
+     *
+     * @param classId The ID of the class section.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE class_sections SET access_version = COALESCE(access_version, 0) + 1 WHERE id = :classId", nativeQuery = true)
+    void incrementAccessVersion(@Param("classId") Long classId);
+
+    /**
+     * Lists every enrollment, grouped by class.
+     *
+     * @return One row per enrollment: [classId, studentId], ordered by class then student.
+     */
+    @Query(value = "SELECT class_id, student_id FROM class_student ORDER BY class_id, student_id", nativeQuery = true)
+    List<Object[]> findAllEnrollments();
+
+    /**
+     * Finds the IDs of the students enrolled in a class section.
+     *
+     * @param classId The ID of the class section.
+     * @return The student IDs in ascending order.
+     */
+    @Query(value = "SELECT student_id FROM class_student WHERE class_id = :classId ORDER BY student_id", nativeQuery = true)
+    List<Number> findStudentIdsByClassId(@Param("classId") Long classId);
+
+    // --- Set-based roster changes (one statement per class, no entity loading) ---
+
+    /**
+     * Enrolls the given students that exist and are not enrolled yet.
+     *
+     * @param classId The ID of the class section.
+     * @param studentIds The IDs of the students to enroll (must not be empty).
+     * @return The number of students newly enrolled.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO class_student (class_id, student_id) " +
+                   "SELECT :classId, s.id FROM students s WHERE s.id IN (:studentIds) " +
+                   "AND NOT EXISTS (SELECT 1 FROM class_student cs WHERE cs.class_id = :classId AND cs.student_id = s.id)",
+           nativeQuery = true)
+    int insertMissingStudents(@Param("classId") Long classId, @Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * Unenrolls the given students.
+     *
+     * @param classId The ID of the class section.
+     * @param studentIds The IDs of the students to unenroll (must not be empty).
+     * @return The number of students removed.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM class_student WHERE class_id = :classId AND student_id IN (:studentIds)", nativeQuery = true)
+    int deleteStudents(@Param("classId") Long classId, @Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * Increments the export watermark of a class section.
+     *
+     * @param classId The ID of the class section.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE class_sections SET grades_version = COALESCE(grades_version, 0) + 1 WHERE id = :classId", nativeQuery = true)
+    void incrementGradesVersion(@Param("classId") Long classId);
+
+    /**
+     * Increments the export watermark of the classes a student's grade in a subject and semester belongs to.
+     *
+     * @param studentId The ID of the student.
+     * @param subjectId The ID of the subject.
+     * @param semesterId The ID of the semester.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE class_sections SET grades_version = COALESCE(grades_version, 0) + 1 " +
+                   "WHERE subject_id = :subjectId AND semester_id = :semesterId " +
+                   "AND id IN (SELECT cs.class_id FROM class_student cs WHERE cs.student_id = :studentId)",
+           nativeQuery = true)
+    void incrementGradesVersionsForStudent(@Param("studentId") Long studentId, @Param("subjectId") Long subjectId,
+                                           @Param("semesterId") Long semesterId);
+
+    /**
+     * Increments the export watermark of every class section.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE class_sections SET grades_version = COALESCE(grades_version, 0) + 1", nativeQuery = true)
+    void incrementAllGradesVersions();
+
+    /**
+     * Unenrolls every student that is not in the given set.
+     *
+     * @param classId The ID of the class section.
+     * @param studentIds The IDs of the students to keep (must not be empty).
+     * @return The number of students removed.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM class_student WHERE class_id = :classId AND student_id NOT IN (:studentIds)", nativeQuery = true)
+    int deleteStudentsNotIn(@Param("classId") Long classId, @Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * Unenrolls every student of a class.
+     *
+     * @param classId The ID of the class section.
+     * @return The number of students removed.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM class_student WHERE class_id = :classId", nativeQuery = true)
+    int deleteAllStudents(@Param("classId") Long classId);
 }
@@ -0,0 +1,19 @@
+package com.richardmogou.repository;
+
+import java.time.LocalDate;
+
+/**
+ * One row of a grade export, selected as a projection so that exports never put grade entities
+ * in the persistence context.
+ *
+ * @param subjectName The name of the subject, or null if the grade has none.
+ * @param semesterName The name of the semester, or null if the grade has none.
+ */
+public record GradeExportRow(Long gradeId, Long studentId, String studentFirstName, String studentLastName,
+                             String subjectName, Double score, LocalDate dateAssigned, String semesterName,
+                             String comments) {
+
+    public String studentName() {
+        return studentFirstName + " " + studentLastName;
+    }
+}
@@ -1,23 +1,66 @@
 package com.richardmogou.repository; // Standard package
 
+import com.richardmogou.model.Assessment;
 import com.richardmogou.model.Grade;
 import com.richardmogou.model.Semester;
 import com.richardmogou.model.Student;
 import com.richardmogou.model.Subject;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 @Repository
 public interface GradeRepository extends JpaRepository<Grade, Long> {
 
+    // Finders returning grades for display or export load the student, subject, semester and
+    // assessment in the same statement (Grade.GRAPH_DETAILS); write paths keep plain lazy loading.
+
+    /**
+     * Finds all grades with their associations for display or export.
+     *
+     * @return A list of all grades.
+     */
+    @Override
+    @EntityGraph(Grade.GRAPH_DETAILS)
+    List<Grade> findAll();
+
+    /**
+     * Finds a grade with its associations for display.
+     *
+     * @param id The ID of the grade.
+     * @return An Optional containing the grade if found, otherwise empty.
+     */
+    @EntityGraph(Grade.GRAPH_DETAILS)
+    Optional<Grade> findDetailedById(Long id);
+
+    /**
+     * Finds all grades of several students with their subject, as needed by grade reports.
+     *
+     * @param studentIds The IDs of the students.
+     * @return A list of grades for the given students, ordered by ID.
+     */
+    @EntityGraph(Grade.GRAPH_WITH_SUBJECT)
+    List<Grade> findWithSubjectByStudentIdInOrderByIdAsc(Collection<Long> studentIds);
+
     /**
      * Finds all grades for a specific student.
      *
      * @param student The student entity.
      * @return A list of grades for the given student.
      */
+    @EntityGraph(Grade.GRAPH_DETAILS)
     List<Grade> findByStudent(Student student);
 
     /**
@@ -26,6 +69,7 @@ public interface GradeRepository extends JpaRepository<Grade, Long> {
      * @param subject The subject entity.
      * @return A list of grades for the given subject.
      */
+    @EntityGraph(Grade.GRAPH_DETAILS)
     List<Grade> findBySubject(Subject subject);
 
     /**
@@ -35,6 +79,7 @@ public interface GradeRepository extends JpaRepository<Grade, Long> {
      * @param subject The subject entity.
      * @return A list of grades for the given student and subject combination.
      */
+    @EntityGraph(Grade.GRAPH_DETAILS)
     List<Grade> findByStudentAndSubject(Student student, Subject subject);
 
     /**
@@ -43,8 +88,18 @@ public interface GradeRepository extends JpaRepository<Grade, Long> {
      * @param semester The semester entity.
      * @return A list of grades for the given semester.
      */
+    @EntityGraph(Grade.GRAPH_DETAILS)
     List<Grade> findBySemester(Semester semester);
 
+    /**
+     * Finds the students graded in a semester, without loading the grades.
+     *
+     * @param semesterId The ID of the semester.
+     * @return The student IDs, ordered by their first grade in the semester.
+     */
+    @Query("SELECT g.student.id FROM Grade g WHERE g.semester.id = :semesterId GROUP BY g.student.id ORDER BY MIN(g.id)")
+    List<Long> findStudentIdsBySemesterId(@Param("semesterId") Long semesterId);
+
     /**
      * Finds all grades for a specific student and semester.
      *
@@ -52,6 +107,7 @@ public interface GradeRepository extends JpaRepository<Grade, Long> {
      * @param semester The semester entity.
      * @return A list of grades for the given student and semester combination.
      */
+    @EntityGraph(Grade.GRAPH_DETAILS)
     List<Grade> findByStudentAndSemester(Student student, Semester semester);
     
     /**
@@ -61,6 +117,7 @@ public interface GradeRepository extends JpaRepository<Grade, Long> {
      * @param semester The semester entity.
      * @return A list of grades for the given subject and semester combination.
      */
+    @EntityGraph(Grade.GRAPH_DETAILS)
     List<Grade> findBySubjectAndSemester(Subject subject, Semester semester);
     
     /**
@@ -71,6 +128,7 @@ public interface GradeRepository extends JpaRepository<Grade, Long> {
      * @param semester The semester entity.
      * @return A list of grades for the given student, subject, and semester combination.
      */
+    @EntityGraph(Grade.GRAPH_DETAILS)
     List<Grade> findByStudentAndSubjectAndSemester(Student student, Subject subject, Semester semester);
     
     /**
@@ -81,6 +139,168 @@ public interface GradeRepository extends JpaRepository<Grade, Long> {
      * @param semester The semester entity.
      * @return A list of grades for the given students, subject, and semester combination.
      */
+    @EntityGraph(Grade.GRAPH_DETAILS)
     List<Grade> findByStudentInAndSubjectAndSemester(List<Student> students, Subject subject, Semester semester);
 
+    /**
+     * Checks whether any grade has been recorded against an assessment.
+     *
+     * @param assessment The assessment entity.
+     * @return true if at least one grade references the assessment, false otherwise.
+     */
+    boolean existsByAssessment(Assessment assessment);
+
+    /**
+     * Finds the IDs of all students graded on a specific assessment.
+     *
+     * @param assessmentId The ID of the assessment.
+     * @return A list of distinct student IDs.
+     */
+    @Query("SELECT DISTINCT g.student.id FROM Grade g WHERE g.assessment.id = :assessmentId")
+    List<Long> findStudentIdsByAssessmentId(@Param("assessmentId") Long assessmentId);
+
+    /**
+     * Finds the highest score recorded against an assessment.
+     *
+     * @param assessmentId The ID of the assessment.
+     * @return The highest score, or null if the assessment has no grades.
+     */
+    @Query("SELECT MAX(g.score) FROM Grade g WHERE g.assessment.id = :assessmentId")
+    Double findMaxScoreByAssessmentId(@Param("assessmentId") Long assessmentId);
+
+    /**
+     * Aggregates a student's grades into weighted sums per subject.
+     * Each row is [studentId, subjectId, weightedScoreSum, weightSum, gradeCount]; scores are
+     * normalized to 0-100 using the assessment's max points, and grades without an assessment weigh 1.
+     *
+     * @param studentId The ID of the student.
+     * @return One row per subject the student has grades in.
+     */
+    @Query("SELECT g.student.id, g.subject.id, " +
+           "SUM(COALESCE(a.weight, 1.0) * CASE WHEN a.id IS NULL THEN g.score ELSE g.score * 100.0 / a.maxPoints END), " +
+           "SUM(COALESCE(a.weight, 1.0)), COUNT(g) " +
+           "FROM Grade g LEFT JOIN g.assessment a " +
+           "WHERE g.student.id = :studentId AND g.score IS NOT NULL " +
+           "GROUP BY g.student.id, g.subject.id")
+    List<Object[]> aggregateWeightedScoresByStudentId(@Param("studentId") Long studentId);
+
+    /**
+     * Same aggregation as {@link #aggregateWeightedScoresByStudentId(Long)}, for every student.
+     *
+     * @return One row per (student, subject) pair that has grades.
+     */
+    @Query("SELECT g.student.id, g.subject.id, " +
+           "SUM(COALESCE(a.weight, 1.0) * CASE WHEN a.id IS NULL THEN g.score ELSE g.score * 100.0 / a.maxPoints END), " +
+           "SUM(COALESCE(a.weight, 1.0)), COUNT(g) " +
+           "FROM Grade g LEFT JOIN g.assessment a " +
+           "WHERE g.score IS NOT NULL " +
+           "GROUP BY g.student.id, g.subject.id")
+    List<Object[]> aggregateWeightedScores();
+
+    /**
+     * Same aggregation as {@link #aggregateWeightedScoresByStudentId(Long)}, split by semester,
+     * with the semester and subject details needed by transcripts.
+     *
+     * @param studentId The ID of the student.
+     * @return Rows of semester ID, name, start date and end date (all null for grades without a semester),
+     *         subject name and coefficient, weighted score sum, weight sum and grade count,
+     *         ordered by semester start date then subject name.
+     */
+    @Query("SELECT s.id, s.name, s.startDate, s.endDate, sub.name, sub.coefficient, " +
+           "SUM(COALESCE(a.weight, 1.0) * CASE WHEN a.id IS NULL THEN g.score ELSE g.score * 100.0 / a.maxPoints END), " +
+           "SUM(COALESCE(a.weight, 1.0)), COUNT(g) " +
+           "FROM Grade g JOIN g.subject sub LEFT JOIN g.semester s LEFT JOIN g.assessment a " +
+           "WHERE g.student.id = :studentId AND g.score IS NOT NULL " +
+           "GROUP BY s.id, s.name, s.startDate, s.endDate, sub.id, sub.name, sub.coefficient " +
+           "ORDER BY s.startDate NULLS LAST, s.id, sub.name")
+    List<Object[]> aggregateWeightedScoresBySemesterForStudent(@Param("studentId") Long studentId);
+
+    // Export streams read rows through a database cursor, EXPORT_FETCH_SIZE rows per round trip.
+    // They must be consumed and closed inside a transaction (PostgreSQL only uses a cursor when
+    // autocommit is off).
+
+    String EXPORT_FETCH_SIZE = "500";
+
+    String EXPORT_SELECT = "SELECT new com.richardmogou.repository.GradeExportRow(g.id, st.id, st.firstName, st.lastName, " +
+                           "sub.name, g.score, g.dateAssigned, sem.name, g.comments) " +
+                           "FROM Grade g JOIN g.student st LEFT JOIN g.subject sub LEFT JOIN g.semester sem ";
+
+    /**
+     * Streams the export rows of a student's grades.
+     *
+     * @param studentId The ID of the student.
+     * @return The rows, ordered by grade ID.
+     */
+    @Query(EXPORT_SELECT + "WHERE st.id = :studentId ORDER BY g.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<GradeExportRow> streamExportRowsByStudentId(@Param("studentId") Long studentId);
+
+    /**
+     * Streams the export rows of the grades of a class: the grades its students received in the
+     * class's subject and semester.
+     *
+     * @param classSectionId The ID of the class section.
+     * @return The rows, ordered by grade ID.
+     */
+    @Query(EXPORT_SELECT + "WHERE EXISTS (SELECT 1 FROM ClassSection c JOIN c.students s WHERE c.id = :classSectionId " +
+           "AND s = st AND c.subject = g.subject AND c.semester = g.semester) ORDER BY g.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<GradeExportRow> streamExportRowsByClassSectionId(@Param("classSectionId") Long classSectionId);
+
+    /**
+     * Streams the export rows of a subject's grades.
+     *
+     * @param subjectId The ID of the subject.
+     * @return The rows, ordered by grade ID.
+     */
+    @Query(EXPORT_SELECT + "WHERE sub.id = :subjectId ORDER BY g.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<GradeExportRow> streamExportRowsBySubjectId(@Param("subjectId") Long subjectId);
+
+    /**
+     * Streams the export rows of a subject's grades in one semester.
+     *
+     * @param subjectId The ID of the subject.
+     * @param semesterId The ID of the semester.
+     * @return The rows, ordered by grade ID.
+     */
+    @Query(EXPORT_SELECT + "WHERE sub.id = :subjectId AND sem.id = :semesterId ORDER BY g.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<GradeExportRow> streamExportRowsBySubjectIdAndSemesterId(@Param("subjectId") Long subjectId,
+                                                                    @Param("semesterId") Long semesterId);
+
+    /**
+     * Streams the export rows of a semester's grades.
+     *
+     * @param semesterId The ID of the semester.
+     * @return The rows, ordered by grade ID.
+     */
+    @Query(EXPORT_SELECT + "WHERE sem.id = :semesterId ORDER BY g.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<GradeExportRow> streamExportRowsBySemesterId(@Param("semesterId") Long semesterId);
+
+    /**
+     * Streams the export rows of all grades.
+     *
+     * @return The rows, ordered by grade ID.
+     */
+    @Query(EXPORT_SELECT + "ORDER BY g.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READ_ONLY, value = "true")})
+    Stream<GradeExportRow> streamAllExportRows();
+
+    /**
+     * Finds the grades of a class gradebook: the grades its students received in the class's
+     * subject and semester, with their assessment.
+     *
+     * @param classSectionId The ID of the class section.
+     * @return The rows, ordered by grade ID.
+     */
+    @Query("SELECT new com.richardmogou.repository.GradebookGradeRow(g.id, st.id, a.id, a.name, a.maxPoints, a.weight, " +
+           "g.score, g.dateAssigned, g.comments) " +
+           "FROM Grade g JOIN g.student st LEFT JOIN g.assessment a " +
+           "WHERE EXISTS (SELECT 1 FROM ClassSection c JOIN c.students s WHERE c.id = :classSectionId " +
+           "AND s = st AND c.subject = g.subject AND c.semester = g.semester) ORDER BY g.id")
+    @QueryHints(@QueryHint(name = HINT_READ_ONLY, value = "true"))
+    List<GradebookGradeRow> findGradebookRowsByClassSectionId(@Param("classSectionId") Long classSectionId);
+
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.richardmogou.repository;
+
+import java.time.LocalDate;
+
+/**
+ * One grade of a class gradebook, with the assessment it belongs to, selected as a projection like
+ * {@link GradeExportRow}.
+ *
+ * @param assessmentId The ID of the assessment, or null if the grade has none; the assessment
+ *                     fields are then null too.
+ */
+public record GradebookGradeRow(Long gradeId, Long studentId, Long assessmentId, String assessmentName,
+                                Double maxPoints, Double weight, Double score, LocalDate dateAssigned,
+                                String comments) {
+}
@@ -0,0 +1,159 @@
+package com.richardmogou.repository;
+
+import com.richardmogou.model.ReportJob;
+import com.richardmogou.model.ReportJobStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+
+    /**
+     * Finds the jobs of a node in a given state, oldest first. Used to resume its jobs on startup.
+     *
+     * @param ownerNode The node owning the jobs.
+     * @param status The state to look for.
+     * @return The matching jobs in submission order.
+     */
+    List<ReportJob> findByOwnerNodeAndStatusOrderByIdAsc(String ownerNode, ReportJobStatus status);
+
+    /**
+     * Lists jobs, most recent first.
+     *
+     * @param pageable Paging information.
+     * @return A page of jobs.
+     */
+    Page<ReportJob> findAllByOrderByIdDesc(Pageable pageable);
+
+    /**
+     * Moves a queued job to the running state if it is still queued on the given node.
+     * Used to claim a job, so that a job deleted or taken over by another node in the meantime is not run.
+     *
+     * @param jobId The ID of the job.
+     * @param queued The queued state.
+     * @param running The running state.
+     * @param ownerNode The node claiming the job.
+     * @param startedAt The start time to record, also the job's first heartbeat.
+     * @return 1 if the job was claimed, 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.status = :running, j.startedAt = :startedAt, j.heartbeatAt = :startedAt " +
+           "WHERE j.id = :jobId AND j.status = :queued AND j.ownerNode = :ownerNode")
+    int claim(@Param("jobId") Long jobId, @Param("queued") ReportJobStatus queued, @Param("running") ReportJobStatus running,
+              @Param("ownerNode") String ownerNode, @Param("startedAt") LocalDateTime startedAt);
+
+    /**
+     * Records the number of items of a running job, leaving the rest of the row alone.
+     *
+     * @param jobId The ID of the job.
+     * @param totalItems The number of items the job will process.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.totalItems = :totalItems WHERE j.id = :jobId")
+    void updateTotalItems(@Param("jobId") Long jobId, @Param("totalItems") Integer totalItems);
+
+    /**
+     * Records the outcome of a running job if the given job's node still owns it, so that a node
+     * whose job was taken over after its heartbeat expired does not overwrite the new run.
+     *
+     * @param job The job with its outcome, as run by its owner node.
+     * @param running The running state.
+     * @return 1 if the outcome was recorded, 0 if the job is no longer running on that node.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.status = :#{#job.status}, j.filename = :#{#job.filename}, " +
+           "j.contentType = :#{#job.contentType}, j.artifactPath = :#{#job.artifactPath}, " +
+           "j.artifactSize = :#{#job.artifactSize}, j.errorMessage = :#{#job.errorMessage}, " +
+           "j.processedItems = :#{#job.processedItems}, j.finishedAt = :#{#job.finishedAt} " +
+           "WHERE j.id = :#{#job.id} AND j.ownerNode = :#{#job.ownerNode} AND j.status = :running")
+    int saveOutcomeIfOwner(@Param("job") ReportJob job, @Param("running") ReportJobStatus running);
+
+    /**
+     * Puts a node's jobs that were running when it stopped back in its queue, along with jobs from
+     * before owners were recorded.
+     *
+     * @param unfinished The queued and running states.
+     * @param queued The queued state.
+     * @param ownerNode The node starting up.
+     * @param now The heartbeat to record.
+     * @return The number of jobs requeued.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.status = :queued, j.startedAt = null, j.processedItems = null, " +
+           "j.ownerNode = :ownerNode, j.heartbeatAt = :now " +
+           "WHERE j.status IN :unfinished AND (j.ownerNode = :ownerNode OR j.ownerNode IS NULL)")
+    int requeueOwnJobs(@Param("unfinished") Collection<ReportJobStatus> unfinished, @Param("queued") ReportJobStatus queued,
+                       @Param("ownerNode") String ownerNode, @Param("now") LocalDateTime now);
+
+    /**
+     * Refreshes the heartbeat of a node's unfinished jobs.
+     *
+     * @param unfinished The queued and running states.
+     * @param ownerNode The node that is alive.
+     * @param now The heartbeat to record.
+     * @return The number of jobs refreshed.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.heartbeatAt = :now WHERE j.ownerNode = :ownerNode AND j.status IN :unfinished")
+    int heartbeat(@Param("unfinished") Collection<ReportJobStatus> unfinished, @Param("ownerNode") String ownerNode,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * Finds unfinished jobs whose owner has not refreshed their heartbeat since the given time.
+     *
+     * @param unfinished The queued and running states.
+     * @param expiredBefore The oldest heartbeat of a live owner.
+     * @return The IDs of the abandoned jobs, oldest first.
+     */
+    @Query("SELECT j.id FROM ReportJob j WHERE j.status IN :unfinished AND j.heartbeatAt < :expiredBefore ORDER BY j.id")
+    List<Long> findExpiredJobIds(@Param("unfinished") Collection<ReportJobStatus> unfinished,
+                                 @Param("expiredBefore") LocalDateTime expiredBefore);
+
+    /**
+     * Moves an abandoned job to a node's queue if its heartbeat is still expired, so that only
+     * one node takes it over.
+     *
+     * @param jobId The ID of the job.
+     * @param unfinished The queued and running states.
+     * @param queued The queued state.
+     * @param ownerNode The node taking the job over.
+     * @param now The heartbeat to record.
+     * @param expiredBefore The oldest heartbeat of a live owner.
+     * @return 1 if the job was taken over, 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReportJob j SET j.status = :queued, j.startedAt = null, j.processedItems = null, " +
+           "j.ownerNode = :ownerNode, j.heartbeatAt = :now " +
+           "WHERE j.id = :jobId AND j.status IN :unfinished AND j.heartbeatAt < :expiredBefore")
+    int takeOver(@Param("jobId") Long jobId, @Param("unfinished") Collection<ReportJobStatus> unfinished,
+                 @Param("queued") ReportJobStatus queued, @Param("ownerNode") String ownerNode,
+                 @Param("now") LocalDateTime now, @Param("expiredBefore") LocalDateTime expiredBefore);
+
+    /**
+     * Deletes a job unless it is in the given state.
+     *
+     * @param jobId The ID of the job.
+     * @param status The state in which the job must not be deleted.
+     * @return 1 if the job was deleted, 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ReportJob j WHERE j.id = :jobId AND j.status <> :status")
+    int deleteByIdAndStatusNot(@Param("jobId") Long jobId, @Param("status") ReportJobStatus status);
+}
@@ -2,6 +2,9 @@ package com.richardmogou.repository; // Standard package
 
 import com.richardmogou.model.Semester;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -36,4 +39,20 @@ public interface SemesterRepository extends JpaRepository<Semester, Long> {
      */
     List<Semester> findByStartDateLessThanEqualAndEndDateGreaterThanEqual(LocalDate date, LocalDate date2);
 
+    /**
+     * Increments the export watermark of a semester.
+     *
+     * @param id The ID of the semester.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE semesters SET grades_version = COALESCE(grades_version, 0) + 1 WHERE id = :id", nativeQuery = true)
+    void incrementGradesVersion(@Param("id") Long id);
+
+    /**
+     * Increments the export watermark of every semester.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE semesters SET grades_version = COALESCE(grades_version, 0) + 1", nativeQuery = true)
+    void incrementAllGradesVersions();
+
 }
\ No newline at end of file
@@ -1,9 +1,17 @@
 package com.richardmogou.repository; // Standard package
 
 import com.richardmogou.model.Student;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,6 +23,38 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
     // Find a student by their email (inherited from User)
     Optional<Student> findByEmail(String email);
 
+    // Find a student with the enrolled classes and their subject, semester and teacher in one statement
+    @EntityGraph(Student.GRAPH_ENROLLED_CLASSES)
+    Optional<Student> findWithEnrolledClassesById(Long id);
+
+    // Find one page of the students enrolled in a class section
+    Page<Student> findByEnrolledClassesId(Long classSectionId, Pageable pageable);
+
+    // Find which of the given IDs belong to existing students
+    @Query("SELECT s.id FROM Student s WHERE s.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Resolve usernames to IDs in one query; each row is [username, id]
+    @Query("SELECT s.username, s.id FROM Student s WHERE s.username IN :usernames")
+    List<Object[]> findIdsByUsernames(@Param("usernames") Collection<String> usernames);
+
+    // Lock a student's row until the end of the transaction, to serialize the rebuilds of their rollups
+    @Query(value = "SELECT id FROM students WHERE id = :id FOR UPDATE", nativeQuery = true)
+    List<Long> lockById(@Param("id") Long id);
+
+    // Version of a student's grade report, 0 before its first change; empty if the student does not exist
+    @Query("SELECT COALESCE(s.reportVersion, 0) FROM Student s WHERE s.id = :id")
+    Optional<Long> findReportVersionById(@Param("id") Long id);
+
+    // Increment the report versions of some students, or of all of them
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE students SET report_version = COALESCE(report_version, 0) + 1 WHERE id IN :ids", nativeQuery = true)
+    void incrementReportVersions(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE students SET report_version = COALESCE(report_version, 0) + 1", nativeQuery = true)
+    void incrementAllReportVersions();
+
     // Add other student-specific query methods here if needed
     // Example:
     // List<Student> findByEnrollmentDateAfter(LocalDate date);
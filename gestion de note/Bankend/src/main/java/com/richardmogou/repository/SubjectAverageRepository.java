@@ -0,0 +1,65 @@
+package com.richardmogou.repository;
+
+import com.richardmogou.model.SubjectAverage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SubjectAverageRepository extends JpaRepository<SubjectAverage, Long> {
+
+    /**
+     * Finds all subject rollups for a student, with the subject fetched in the same query.
+     *
+     * @param studentId The ID of the student.
+     * @return A list of rollups, one per subject the student has grades in.
+     */
+    @Query("SELECT sa FROM SubjectAverage sa JOIN FETCH sa.subject WHERE sa.student.id = :studentId")
+    List<SubjectAverage> findByStudentIdWithSubject(@Param("studentId") Long studentId);
+
+    /**
+     * Finds all subject rollups for several students, with the subject fetched in the same query.
+     *
+     * @param studentIds The IDs of the students.
+     * @return A list of rollups, one per (student, subject) pair with grades.
+     */
+    @Query("SELECT sa FROM SubjectAverage sa JOIN FETCH sa.subject WHERE sa.student.id IN :studentIds")
+    List<SubjectAverage> findByStudentIdsWithSubject(@Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * Finds the rollup for a specific student and subject.
+     *
+     * @param studentId The ID of the student.
+     * @param subjectId The ID of the subject.
+     * @return An Optional containing the rollup if the student has grades in the subject, otherwise empty.
+     */
+    Optional<SubjectAverage> findByStudentIdAndSubjectId(Long studentId, Long subjectId);
+
+    /**
+     * Atomically adds a delta to an existing rollup row.
+     *
+     * @return The number of rows updated (0 if no rollup exists yet for the pair).
+     */
+    @Modifying
+    @Query("UPDATE SubjectAverage sa SET sa.weightedScoreSum = sa.weightedScoreSum + :weightedScore, " +
+           "sa.weightSum = sa.weightSum + :weight, sa.gradeCount = sa.gradeCount + :count " +
+           "WHERE sa.student.id = :studentId AND sa.subject.id = :subjectId")
+    int applyDelta(@Param("studentId") Long studentId, @Param("subjectId") Long subjectId,
+                   @Param("weightedScore") double weightedScore, @Param("weight") double weight,
+                   @Param("count") long count);
+
+    /**
+     * Removes all rollups of a student (used before a rebuild).
+     *
+     * @param studentId The ID of the student.
+     */
+    @Modifying
+    @Query("DELETE FROM SubjectAverage sa WHERE sa.student.id = :studentId")
+    void deleteByStudentId(@Param("studentId") Long studentId);
+}
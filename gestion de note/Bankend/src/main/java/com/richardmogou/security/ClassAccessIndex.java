@@ -0,0 +1,272 @@
+package com.richardmogou.security;
+
+import com.richardmogou.repository.ClassSectionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory index of class section ownership and enrollment, used by authorization checks
+ * so that {@code @PreAuthorize} expressions do not query the database on every request.
+ * <p>
+ * Each class maps to its teacher ID, a sorted {@code long[]} of enrolled student IDs and the
+ * class's access version, which every teacher or roster change increments in {@code class_sections}.
+ * Entries are never modified in place: a change replaces the whole entry, so readers need no lock.
+ * Writers read the database and publish under the index's lock, so a later read is never
+ * overwritten by an earlier one.
+ * <p>
+ * The index is loaded when the application is ready. {@code ClassSectionServiceImpl} calls
+ * {@link #refreshClass} for every change on this node; the entry is re-read once the change commits.
+ * <p>
+ * The index is local to each node. Changes made on other nodes are picked up by comparing the access
+ * versions of all classes with the database every {@code security.class-access.sync-interval-seconds}
+ * and re-reading the stale entries, so they can take that long to reach this node's authorization
+ * checks: a student removed from a class on another node keeps access here until the next sync.
+ */
+@Component
+public class ClassAccessIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassAccessIndex.class);
+
+    private static final long NO_TEACHER = 0L; // IDs are generated from 1
+
+    private static final long[] NO_STUDENTS = new long[0];
+
+    @Autowired
+    private ClassSectionRepository classSectionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${security.class-access.sync-interval-seconds:5}")
+    private int syncIntervalSeconds; // 0 = no sync with other nodes
+
+    private final Map<Long, ClassAccess> classes = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    private ScheduledExecutorService syncExecutor;
+
+    // Teacher, sorted roster and access version of one class; immutable once published
+    private record ClassAccess(long teacherId, long[] studentIds, long version) {
+
+        boolean hasStudent(long studentId) {
+            return Arrays.binarySearch(studentIds, studentId) >= 0;
+        }
+    }
+
+    /**
+     * Loads the index once startup (including data seeding) is complete, and starts the sync with
+     * the changes made on other nodes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        if (syncIntervalSeconds > 0) {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "class-access-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncExecutor.scheduleWithFixedDelay(this::syncSafely, syncIntervalSeconds, syncIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the whole index with two queries.
+     */
+    public synchronized void reload() {
+        readOnly().executeWithoutResult(status -> {
+            Map<Long, ClassAccess> snapshot = new HashMap<>();
+            Map<Long, long[]> studentsByClass = new HashMap<>();
+
+            // Rows arrive ordered by class then student, so each roster is already sorted
+            List<Object[]> enrollments = classSectionRepository.findAllEnrollments();
+            int start = 0;
+            while (start < enrollments.size()) {
+                long classId = ((Number) enrollments.get(start)[0]).longValue();
+                int end = start;
+                while (end < enrollments.size() && ((Number) enrollments.get(end)[0]).longValue() == classId) {
+                    end++;
+                }
+                long[] studentIds = new long[end - start];
+                for (int i = start; i < end; i++) {
+                    studentIds[i - start] = ((Number) enrollments.get(i)[1]).longValue();
+                }
+                studentsByClass.put(classId, studentIds);
+                start = end;
+            }
+
+            for (Object[] row : classSectionRepository.findAllTeacherAssignments()) {
+                long classId = ((Number) row[0]).longValue();
+                snapshot.put(classId, new ClassAccess(longOrDefault(row[1], NO_TEACHER),
+                        studentsByClass.getOrDefault(classId, NO_STUDENTS), longOrDefault(row[2], 0L)));
+            }
+            classes.keySet().retainAll(snapshot.keySet());
+            classes.putAll(snapshot);
+            logger.info("Class access index loaded: {} classes, {} enrollments", snapshot.size(), enrollments.size());
+        });
+        loaded = true;
+    }
+
+    /**
+     * Re-reads the classes whose access version in the database differs from the index, and drops
+     * the classes deleted on other nodes.
+     */
+    public synchronized void sync() {
+        ensureLoaded();
+        List<Long> stale = new ArrayList<>();
+        readOnly().executeWithoutResult(status -> {
+            Map<Long, Long> versions = new HashMap<>();
+            for (Object[] row : classSectionRepository.findAllAccessVersions()) {
+                versions.put(((Number) row[0]).longValue(), longOrDefault(row[1], 0L));
+            }
+            classes.keySet().retainAll(versions.keySet());
+            versions.forEach((classId, version) -> {
+                ClassAccess access = classes.get(classId);
+                if (access == null || access.version() != version) {
+                    stale.add(classId);
+                }
+            });
+        });
+        stale.forEach(this::publish);
+        if (!stale.isEmpty()) {
+            logger.debug("Class access index synced: {} classes re-read", stale.size());
+        }
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            logger.warn("Class access index sync failed, retrying in {} s: {}", syncIntervalSeconds, e.getMessage());
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    /**
+     * Checks whether a teacher is assigned to a class section.
+     *
+     * @param classSectionId The ID of the class section.
+     * @param teacherId The ID of the teacher.
+     * @return true if the class exists and is taught by the teacher.
+     */
+    public boolean isTeacherOfClass(long classSectionId, long teacherId) {
+        ensureLoaded();
+        ClassAccess access = classes.get(classSectionId);
+        return access != null && access.teacherId() != NO_TEACHER && access.teacherId() == teacherId;
+    }
+
+    /**
+     * Checks whether a student is enrolled in a class section.
+     *
+     * @param classSectionId The ID of the class section.
+     * @param studentId The ID of the student.
+     * @return true if the class exists and the student is on its roster.
+     */
+    public boolean isStudentInClass(long classSectionId, long studentId) {
+        ensureLoaded();
+        ClassAccess access = classes.get(classSectionId);
+        return access != null && access.hasStudent(studentId);
+    }
+
+    /**
+     * Records a change to the teacher or roster of a class: increments its access version within the
+     * current transaction, and re-reads the class into the index once the transaction commits.
+     *
+     * @param classSectionId The ID of the class section that was created or changed.
+     */
+    public void refreshClass(Long classSectionId) {
+        classSectionRepository.incrementAccessVersion(classSectionId);
+        afterCommit(() -> publish(classSectionId));
+    }
+
+    /**
+     * Drops a class from the index once the current transaction commits.
+     *
+     * @param classSectionId The ID of the deleted class section.
+     */
+    public void removeClass(Long classSectionId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                classes.remove(classSectionId);
+            }
+        });
+    }
+
+    // Reads the committed state of one class in its own short transaction and publishes it
+    private synchronized void publish(Long classSectionId) {
+        readOnly().executeWithoutResult(status -> {
+            List<Object[]> rows = classSectionRepository.findTeacherAndAccessVersionByClassId(classSectionId);
+            if (rows.isEmpty()) {
+                classes.remove(classSectionId); // Deleted since
+                return;
+            }
+            // The version is read before the roster, so the roster is at least as recent as the version
+            long teacherId = longOrDefault(rows.get(0)[0], NO_TEACHER);
+            long version = longOrDefault(rows.get(0)[1], 0L);
+            long[] studentIds = classSectionRepository.findStudentIdsByClassId(classSectionId).stream()
+                    .mapToLong(Number::longValue)
+                    .toArray();
+            classes.put(classSectionId, new ClassAccess(teacherId, studentIds, version));
+        });
+    }
+
+    // A new read-only transaction, also when called after the commit of another one
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private static long longOrDefault(Object value, long defaultValue) {
+        return value != null ? ((Number) value).longValue() : defaultValue;
+    }
+
+    // A rolled back change must not become visible to authorization checks
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
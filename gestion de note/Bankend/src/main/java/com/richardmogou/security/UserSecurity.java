@@ -1,5 +1,7 @@
 package com.richardmogou.security;
 
+import com.richardmogou.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -7,30 +9,72 @@ import org.springframework.stereotype.Component;
 /**
  * Component for handling user security checks.
  * Used in @PreAuthorize annotations to verify if the current user
- * is the same as the requested user ID.
+ * is the same as the requested user ID, or is related to a class section.
+ * Class checks are answered from {@link ClassAccessIndex} without touching the database.
  */
 @Component("userSecurity")
 public class UserSecurity {
 
+    @Autowired
+    private ClassAccessIndex classAccessIndex;
+
     /**
-     * Checks if the current authenticated user is the same as the requested user ID.
-     * 
-     * @param userId The ID of the user to check against
-     * @return true if the current user is the same as the requested user, false otherwise
+     * Resolves the ID of the current authenticated user.
+     *
+     * @return The user ID, or null if there is no authenticated user
      */
-    public boolean isCurrentUser(Long userId) {
+    private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
-            return false;
+            return null;
+        }
+
+        // The JWT filter and login put the User entity in the security context
+        if (authentication.getPrincipal() instanceof User user) {
+            return user.getId();
         }
-        
+
         try {
-            // The principal name should be the user ID as a string
-            Long currentUserId = Long.parseLong(authentication.getName());
-            return userId.equals(currentUserId);
+            // Otherwise the principal name should be the user ID as a string
+            return Long.parseLong(authentication.getName());
         } catch (NumberFormatException e) {
-            // If the principal name is not a valid Long, return false
-            return false;
+            // If the principal name is not a valid Long, there is no usable ID
+            return null;
         }
     }
+
+    /**
+     * Checks if the current authenticated user is the same as the requested user ID.
+     *
+     * @param userId The ID of the user to check against
+     * @return true if the current user is the same as the requested user, false otherwise
+     */
+    public boolean isCurrentUser(Long userId) {
+        Long currentUserId = getCurrentUserId();
+        return currentUserId != null && currentUserId.equals(userId);
+    }
+
+    /**
+     * Checks if the current authenticated user is the teacher assigned to a class section.
+     *
+     * @param classSectionId The ID of the class section
+     * @return true if the current user teaches the class, false otherwise
+     */
+    public boolean isTeacherOfClass(Long classSectionId) {
+        Long currentUserId = getCurrentUserId();
+        return currentUserId != null && classSectionId != null
+                && classAccessIndex.isTeacherOfClass(classSectionId, currentUserId);
+    }
+
+    /**
+     * Checks if the current authenticated user is a student enrolled in a class section.
+     *
+     * @param classSectionId The ID of the class section
+     * @return true if the current user is on the class roster, false otherwise
+     */
+    public boolean isStudentInClass(Long classSectionId) {
+        Long currentUserId = getCurrentUserId();
+        return currentUserId != null && classSectionId != null
+                && classAccessIndex.isStudentInClass(classSectionId, currentUserId);
+    }
 }
@@ -0,0 +1,502 @@
+package com.richardmogou.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes tables in the Apache Arrow IPC streaming format, so that analytics tools (pyarrow,
+ * pandas, DuckDB, Polars...) can load them without parsing.
+ * <p>
+ * Only what exports need is supported: non-nested columns of 64-bit integers, 64-bit floats,
+ * dates (date32, days since the epoch) and dictionary-encoded strings with 32-bit indices.
+ * Dictionaries are written once, after the schema; rows are then appended one by one and
+ * written as a record batch every {@code batchRows} rows, with buffers reused between batches.
+ * The flatbuffer metadata is encoded here rather than through the Arrow Java library, which
+ * needs extra JVM flags and a large dependency tree for this small subset of the format.
+ */
+public class ArrowIpcWriter {
+
+    public enum Type {
+        INT64, FLOAT64, DATE32, DICTIONARY_UTF8
+    }
+
+    /**
+     * A column of the schema.
+     *
+     * @param dictionaryId For {@link Type#DICTIONARY_UTF8} columns, the ID of their dictionary.
+     */
+    public record Column(String name, Type type, boolean nullable, long dictionaryId) {
+
+        public static Column of(String name, Type type, boolean nullable) {
+            return new Column(name, type, nullable, -1);
+        }
+
+        public static Column dictionary(String name, long dictionaryId, boolean nullable) {
+            return new Column(name, Type.DICTIONARY_UTF8, nullable, dictionaryId);
+        }
+    }
+
+    // Message header types, metadata version and type IDs from the Arrow flatbuffer schema (Message.fbs, Schema.fbs)
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_DICTIONARY_BATCH = 2;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final short METADATA_VERSION_V5 = 4;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_UTF8 = 5;
+    private static final byte TYPE_DATE = 8;
+    private static final short PRECISION_DOUBLE = 2;
+    private static final short DATE_UNIT_DAY = 0;
+
+    private static final int CONTINUATION = 0xFFFFFFFF;
+    private static final int ALIGNMENT = 8;
+
+    private final OutputStream out;
+    private final List<Column> columns;
+    private final int batchRows;
+    private final ColumnBuffer[] buffers;
+    private int rows;
+    private long totalRows;
+
+    /**
+     * @param out The stream receiving the Arrow data; it is flushed, never closed.
+     * @param columns The columns of the table.
+     * @param batchRows The number of rows per record batch.
+     */
+    public ArrowIpcWriter(OutputStream out, List<Column> columns, int batchRows) {
+        this.out = out;
+        this.columns = List.copyOf(columns);
+        this.batchRows = batchRows;
+        this.buffers = new ColumnBuffer[columns.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            int width = columns.get(i).type() == Type.INT64 || columns.get(i).type() == Type.FLOAT64 ? 8 : 4;
+            buffers[i] = new ColumnBuffer(width, batchRows);
+        }
+    }
+
+    /**
+     * Writes the schema and the dictionaries. Must be called once, before any row.
+     *
+     * @param dictionaries The values of each dictionary by ID; a row refers to a value by its index.
+     */
+    public void start(Map<Long, List<String>> dictionaries) throws IOException {
+        List<FlatBuffer.Table> fields = new ArrayList<>();
+        for (Column column : columns) {
+            fields.add(field(column));
+        }
+        FlatBuffer.Table schema = new FlatBuffer.Table().addOffset(1, fields);
+        writeMessage(HEADER_SCHEMA, schema, List.of());
+
+        for (Map.Entry<Long, List<String>> dictionary : new TreeMap<>(dictionaries).entrySet()) {
+            writeDictionary(dictionary.getKey(), dictionary.getValue());
+        }
+    }
+
+    public void setLong(int column, long value) {
+        buffers[column].values.putLong(value);
+    }
+
+    public void setDouble(int column, double value) {
+        buffers[column].values.putDouble(value);
+    }
+
+    public void setDate(int column, LocalDate value) {
+        buffers[column].values.putInt((int) value.toEpochDay());
+    }
+
+    /**
+     * Sets the value of a dictionary-encoded column.
+     *
+     * @param index The index of the value in the column's dictionary.
+     */
+    public void setIndex(int column, int index) {
+        buffers[column].values.putInt(index);
+    }
+
+    public void setNull(int column) {
+        ColumnBuffer buffer = buffers[column];
+        buffer.nulls(rows);
+        for (int i = 0; i < buffer.width; i++) {
+            buffer.values.put((byte) 0); // Null slots must not leak the previous batch's values
+        }
+    }
+
+    /**
+     * Ends the current row, once every column has been set; writes a record batch when it is full.
+     */
+    public void endRow() throws IOException {
+        rows++;
+        if (rows == batchRows) {
+            writeRecordBatch();
+        }
+    }
+
+    /**
+     * Writes the last record batch and the end-of-stream marker.
+     *
+     * @return The total number of rows written.
+     */
+    public long finish() throws IOException {
+        if (rows > 0) {
+            writeRecordBatch();
+        }
+        writeInt(CONTINUATION);
+        writeInt(0);
+        out.flush();
+        return totalRows;
+    }
+
+    private FlatBuffer.Table field(Column column) {
+        FlatBuffer.Table type;
+        byte typeId;
+        switch (column.type()) {
+            case INT64 -> {
+                type = intType(64);
+                typeId = TYPE_INT;
+            }
+            case FLOAT64 -> {
+                type = new FlatBuffer.Table().addShort(0, PRECISION_DOUBLE);
+                typeId = TYPE_FLOATING_POINT;
+            }
+            case DATE32 -> {
+                type = new FlatBuffer.Table().addShort(0, DATE_UNIT_DAY);
+                typeId = TYPE_DATE;
+            }
+            default -> {
+                type = new FlatBuffer.Table(); // Utf8 has no attributes
+                typeId = TYPE_UTF8;
+            }
+        }
+
+        FlatBuffer.Table field = new FlatBuffer.Table()
+                .addOffset(0, column.name())
+                .addBool(1, column.nullable())
+                .addByte(2, typeId)
+                .addOffset(3, type)
+                .addOffset(5, List.of()); // Children must be present, even when empty
+        if (column.type() == Type.DICTIONARY_UTF8) {
+            field.addOffset(4, new FlatBuffer.Table()
+                    .addLong(0, column.dictionaryId())
+                    .addOffset(1, intType(32)));
+        }
+        return field;
+    }
+
+    private static FlatBuffer.Table intType(int bitWidth) {
+        return new FlatBuffer.Table().addInt(0, bitWidth).addBool(1, true);
+    }
+
+    private void writeDictionary(long id, List<String> values) throws IOException {
+        ByteBuffer offsets = ByteBuffer.allocate((values.size() + 1) * 4).order(ByteOrder.LITTLE_ENDIAN);
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        int length = 0;
+        offsets.putInt(0);
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            length += bytes.length;
+            offsets.putInt(length);
+        }
+        byte[] data = new byte[length];
+        int position = 0;
+        for (byte[] bytes : encoded) {
+            System.arraycopy(bytes, 0, data, position, bytes.length);
+            position += bytes.length;
+        }
+
+        List<Body> body = List.of(new Body(new byte[0], 0), new Body(offsets.array(), offsets.capacity()), new Body(data, data.length));
+        FlatBuffer.Table recordBatch = recordBatch(values.size(), new long[][]{{values.size(), 0}}, body);
+        FlatBuffer.Table dictionaryBatch = new FlatBuffer.Table().addLong(0, id).addOffset(1, recordBatch);
+        writeMessage(HEADER_DICTIONARY_BATCH, dictionaryBatch, body);
+    }
+
+    private void writeRecordBatch() throws IOException {
+        long[][] nodes = new long[buffers.length][];
+        List<Body> body = new ArrayList<>(buffers.length * 2);
+        for (int i = 0; i < buffers.length; i++) {
+            ColumnBuffer buffer = buffers[i];
+            nodes[i] = new long[]{rows, buffer.nullCount};
+            // A column without nulls may omit its validity bitmap
+            body.add(new Body(buffer.validity, buffer.nullCount > 0 ? (rows + 7) / 8 : 0));
+            body.add(new Body(buffer.values.array(), buffer.values.position()));
+        }
+        writeMessage(HEADER_RECORD_BATCH, recordBatch(rows, nodes, body), body);
+
+        totalRows += rows;
+        rows = 0;
+        for (ColumnBuffer buffer : buffers) {
+            buffer.reset();
+        }
+    }
+
+    private static FlatBuffer.Table recordBatch(long length, long[][] nodes, List<Body> body) {
+        ByteBuffer nodeStructs = ByteBuffer.allocate(nodes.length * 16).order(ByteOrder.LITTLE_ENDIAN);
+        for (long[] node : nodes) {
+            nodeStructs.putLong(node[0]).putLong(node[1]);
+        }
+        ByteBuffer bufferStructs = ByteBuffer.allocate(body.size() * 16).order(ByteOrder.LITTLE_ENDIAN);
+        long offset = 0;
+        for (Body buffer : body) {
+            bufferStructs.putLong(offset).putLong(buffer.length());
+            offset += padded(buffer.length());
+        }
+        return new FlatBuffer.Table()
+                .addLong(0, length)
+                .addOffset(1, new FlatBuffer.StructVector(nodes.length, nodeStructs.array()))
+                .addOffset(2, new FlatBuffer.StructVector(body.size(), bufferStructs.array()));
+    }
+
+    // Encapsulated message: continuation marker, metadata length, metadata, then the 8-byte aligned body
+    private void writeMessage(byte headerType, FlatBuffer.Table header, List<Body> body) throws IOException {
+        long bodyLength = 0;
+        for (Body buffer : body) {
+            bodyLength += padded(buffer.length());
+        }
+        FlatBuffer.Table message = new FlatBuffer.Table()
+                .addShort(0, METADATA_VERSION_V5)
+                .addByte(1, headerType)
+                .addOffset(2, header)
+                .addLong(3, bodyLength);
+        byte[] metadata = FlatBuffer.encode(message);
+
+        writeInt(CONTINUATION);
+        writeInt(metadata.length);
+        out.write(metadata);
+        for (Body buffer : body) {
+            out.write(buffer.data(), 0, buffer.length());
+            out.write(PADDING, 0, padded(buffer.length()) - buffer.length());
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static final byte[] PADDING = new byte[ALIGNMENT];
+
+    private static int padded(int length) {
+        return (length + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    // A buffer of a message body: the first length bytes of data
+    private record Body(byte[] data, int length) {
+    }
+
+    // Values and validity bitmap of one column in the current batch
+    private static final class ColumnBuffer {
+
+        private final int width;
+        private final ByteBuffer values;
+        private final byte[] validity;
+        private int nullCount;
+
+        private ColumnBuffer(int width, int capacity) {
+            this.width = width;
+            this.values = ByteBuffer.allocate(width * capacity).order(ByteOrder.LITTLE_ENDIAN);
+            this.validity = new byte[(capacity + 7) / 8];
+        }
+
+        // The bitmap is only filled once the batch has a null: every row before it is valid
+        private void nulls(int row) {
+            if (nullCount == 0) {
+                Arrays.fill(validity, (byte) 0xFF);
+            }
+            validity[row >> 3] &= (byte) ~(1 << (row & 7));
+            nullCount++;
+        }
+
+        private void reset() {
+            values.clear();
+            nullCount = 0;
+        }
+    }
+
+    /**
+     * Minimal flatbuffer encoder for the Arrow metadata. Unlike the reference builders, which write
+     * back to front, it writes front to back: every table is preceded by its vtable, and objects a
+     * table refers to are written after it, their offsets patched in once known.
+     */
+    static final class FlatBuffer {
+
+        // A table to encode; fields are set by their ID in the schema, scalars with their width
+        static final class Table {
+
+            private record Slot(int id, int width, long bits, Object child) {
+            }
+
+            private final List<Slot> slots = new ArrayList<>();
+
+            Table addBool(int id, boolean value) {
+                slots.add(new Slot(id, 1, value ? 1 : 0, null));
+                return this;
+            }
+
+            Table addByte(int id, byte value) {
+                slots.add(new Slot(id, 1, value, null));
+                return this;
+            }
+
+            Table addShort(int id, short value) {
+                slots.add(new Slot(id, 2, value, null));
+                return this;
+            }
+
+            Table addInt(int id, int value) {
+                slots.add(new Slot(id, 4, value, null));
+                return this;
+            }
+
+            Table addLong(int id, long value) {
+                slots.add(new Slot(id, 8, value, null));
+                return this;
+            }
+
+            /**
+             * @param child A {@link Table}, a String, a List of tables or a {@link StructVector}.
+             */
+            Table addOffset(int id, Object child) {
+                slots.add(new Slot(id, 4, 0, child));
+                return this;
+            }
+        }
+
+        // A vector of structs, given as their encoded bytes; Arrow's structs are 8-byte aligned
+        record StructVector(int count, byte[] data) {
+        }
+
+        private ByteBuffer buffer = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * @return The encoded buffer, padded to a multiple of 8 bytes.
+         */
+        static byte[] encode(Table root) {
+            FlatBuffer encoder = new FlatBuffer();
+            encoder.reserve(4);
+            int rootPosition = encoder.writeTable(root);
+            encoder.buffer.putInt(0, rootPosition);
+            encoder.align(ALIGNMENT);
+            return Arrays.copyOf(encoder.buffer.array(), encoder.buffer.position());
+        }
+
+        private int writeTable(Table table) {
+            // Inline layout: the vtable offset, then the fields by decreasing width so that each is aligned
+            List<Table.Slot> slots = new ArrayList<>(table.slots);
+            slots.sort(Comparator.comparingInt(Table.Slot::width).reversed());
+            int maxId = -1;
+            for (Table.Slot slot : slots) {
+                maxId = Math.max(maxId, slot.id());
+            }
+            int[] fieldOffsets = new int[maxId + 1];
+            int[] slotOffsets = new int[slots.size()];
+            int tableSize = 4;
+            for (int i = 0; i < slots.size(); i++) {
+                int width = slots.get(i).width();
+                tableSize = (tableSize + width - 1) / width * width;
+                slotOffsets[i] = tableSize;
+                fieldOffsets[slots.get(i).id()] = tableSize;
+                tableSize += width;
+            }
+
+            align(2);
+            int vtablePosition = buffer.position();
+            reserve(4 + 2 * fieldOffsets.length);
+            buffer.putShort(vtablePosition, (short) (4 + 2 * fieldOffsets.length));
+            buffer.putShort(vtablePosition + 2, (short) tableSize);
+            for (int id = 0; id < fieldOffsets.length; id++) {
+                buffer.putShort(vtablePosition + 4 + 2 * id, (short) fieldOffsets[id]);
+            }
+
+            align(ALIGNMENT);
+            int tablePosition = buffer.position();
+            reserve(tableSize);
+            buffer.putInt(tablePosition, tablePosition - vtablePosition);
+            for (int i = 0; i < slots.size(); i++) {
+                Table.Slot slot = slots.get(i);
+                int position = tablePosition + slotOffsets[i];
+                switch (slot.width()) {
+                    case 1 -> buffer.put(position, (byte) slot.bits());
+                    case 2 -> buffer.putShort(position, (short) slot.bits());
+                    case 4 -> buffer.putInt(position, (int) slot.bits());
+                    default -> buffer.putLong(position, slot.bits());
+                }
+            }
+
+            // Referenced objects follow the table, so that offsets are positive
+            for (int i = 0; i < slots.size(); i++) {
+                Table.Slot slot = slots.get(i);
+                if (slot.child() != null) {
+                    int position = tablePosition + slotOffsets[i];
+                    int childPosition = writeChild(slot.child()); // May grow the buffer: evaluate before it
+                    buffer.putInt(position, childPosition - position);
+                }
+            }
+            return tablePosition;
+        }
+
+        private int writeChild(Object child) {
+            if (child instanceof Table table) {
+                return writeTable(table);
+            }
+            if (child instanceof String string) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                align(4);
+                int position = buffer.position();
+                reserve(4 + bytes.length + 1); // Strings are null-terminated
+                buffer.putInt(position, bytes.length);
+                buffer.put(position + 4, bytes);
+                return position;
+            }
+            if (child instanceof StructVector vector) {
+                align(4);
+                if ((buffer.position() + 4) % ALIGNMENT != 0) {
+                    reserve(4); // The elements, after the length, must be 8-byte aligned
+                }
+                int position = buffer.position();
+                reserve(4 + vector.data().length);
+                buffer.putInt(position, vector.count());
+                buffer.put(position + 4, vector.data());
+                return position;
+            }
+            List<?> tables = (List<?>) child;
+            align(4);
+            int position = buffer.position();
+            reserve(4 + 4 * tables.size());
+            buffer.putInt(position, tables.size());
+            for (int i = 0; i < tables.size(); i++) {
+                int element = position + 4 + 4 * i;
+                int tablePosition = writeTable((Table) tables.get(i));
+                buffer.putInt(element, tablePosition - element);
+            }
+            return position;
+        }
+
+        private void align(int alignment) {
+            int padding = (alignment - buffer.position() % alignment) % alignment;
+            reserve(padding);
+        }
+
+        // Appends zeroed bytes
+        private void reserve(int length) {
+            if (buffer.remaining() < length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                larger.put(buffer.array(), 0, buffer.position());
+                buffer = larger;
+            }
+            buffer.position(buffer.position() + length);
+        }
+    }
+}
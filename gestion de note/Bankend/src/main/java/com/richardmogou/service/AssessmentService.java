@@ -0,0 +1,52 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.AssessmentDto;
+import com.richardmogou.dto.AssessmentRequestDto;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface AssessmentService {
+
+    /**
+     * Retrieves all assessments, potentially filtered by subject or semester ID.
+     * @param subjectId Optional ID of the subject to filter by.
+     * @param semesterId Optional ID of the semester to filter by.
+     * @return A list of Assessment DTOs matching the criteria.
+     */
+    List<AssessmentDto> findAllAssessments(Long subjectId, Long semesterId);
+
+    /**
+     * Finds a specific assessment by its ID.
+     * @param id The ID of the assessment.
+     * @return An Optional containing the Assessment DTO if found, otherwise empty.
+     */
+    Optional<AssessmentDto> findAssessmentById(Long id);
+
+    /**
+     * Creates a new assessment.
+     * @param assessmentRequestDto DTO containing the details for the new assessment.
+     * @return The created Assessment DTO.
+     * @throws IllegalArgumentException if the specified subject or semester does not exist.
+     */
+    AssessmentDto createAssessment(AssessmentRequestDto assessmentRequestDto);
+
+    /**
+     * Updates an existing assessment. Changing the weight or max points rebuilds the
+     * subject averages of every student graded on it.
+     * @param id The ID of the assessment to update.
+     * @param assessmentRequestDto DTO containing the updated details.
+     * @return An Optional containing the updated Assessment DTO if found and updated, otherwise empty.
+     * @throws IllegalArgumentException if the subject or semester would change while grades are attached,
+     *         or if the max points would fall below a score already recorded against the assessment.
+     */
+    Optional<AssessmentDto> updateAssessment(Long id, AssessmentRequestDto assessmentRequestDto);
+
+    /**
+     * Deletes an assessment by its ID.
+     * @param id The ID of the assessment to delete.
+     * @return true if the assessment was found and deleted, false otherwise.
+     * @throws IllegalStateException if grades are still attached to the assessment.
+     */
+    boolean deleteAssessment(Long id);
+}
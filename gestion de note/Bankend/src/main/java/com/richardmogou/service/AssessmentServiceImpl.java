@@ -0,0 +1,198 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.AssessmentDto;
+import com.richardmogou.dto.AssessmentRequestDto;
+import com.richardmogou.model.Assessment;
+import com.richardmogou.model.Semester;
+import com.richardmogou.model.Subject;
+import com.richardmogou.repository.AssessmentRepository;
+import com.richardmogou.repository.GradeRepository;
+import com.richardmogou.repository.SemesterRepository;
+import com.richardmogou.repository.SubjectRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@Service
+public class AssessmentServiceImpl implements AssessmentService {
+
+    @Autowired
+    private AssessmentRepository assessmentRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private SemesterRepository semesterRepository;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Autowired
+    private GradeRollupService gradeRollupService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // --- Helper Method for Mapping ---
+    private AssessmentDto mapToDto(Assessment assessment) {
+        if (assessment == null) {
+            return null;
+        }
+        Subject subject = assessment.getSubject();
+        Semester semester = assessment.getSemester();
+
+        return new AssessmentDto(
+                assessment.getId(),
+                assessment.getName(),
+                (subject != null) ? subject.getId() : null,
+                (subject != null) ? subject.getName() : null,
+                (semester != null) ? semester.getId() : null,
+                (semester != null) ? semester.getName() : null,
+                assessment.getWeight(),
+                assessment.getMaxPoints()
+        );
+    }
+
+    // --- Service Method Implementations ---
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AssessmentDto> findAllAssessments(Long subjectId, Long semesterId) {
+        Subject subject = null;
+        Semester semester = null;
+
+        if (subjectId != null) {
+            subject = subjectRepository.findById(subjectId)
+                    .orElseThrow(() -> new EntityNotFoundException("Subject not found with ID: " + subjectId));
+        }
+
+        if (semesterId != null) {
+            semester = semesterRepository.findById(semesterId)
+                    .orElseThrow(() -> new EntityNotFoundException("Semester not found with ID: " + semesterId));
+        }
+
+        List<Assessment> assessments;
+        if (subject != null && semester != null) {
+            assessments = assessmentRepository.findBySubjectAndSemester(subject, semester);
+        } else if (subject != null) {
+            assessments = assessmentRepository.findBySubject(subject);
+        } else if (semester != null) {
+            assessments = assessmentRepository.findBySemester(semester);
+        } else {
+            assessments = assessmentRepository.findAll();
+        }
+
+        return assessments.stream().map(this::mapToDto).collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<AssessmentDto> findAssessmentById(Long id) {
+        return assessmentRepository.findById(id).map(this::mapToDto);
+    }
+
+    @Override
+    @Transactional
+    public AssessmentDto createAssessment(AssessmentRequestDto assessmentRequestDto) {
+        Subject subject = subjectRepository.findById(assessmentRequestDto.getSubjectId())
+                .orElseThrow(() -> new IllegalArgumentException("Subject not found with ID: " + assessmentRequestDto.getSubjectId()));
+
+        Assessment newAssessment = new Assessment();
+        newAssessment.setName(assessmentRequestDto.getName());
+        newAssessment.setSubject(subject);
+        newAssessment.setWeight(assessmentRequestDto.getWeight());
+        newAssessment.setMaxPoints(assessmentRequestDto.getMaxPoints());
+
+        if (assessmentRequestDto.getSemesterId() != null) {
+            Semester semester = semesterRepository.findById(assessmentRequestDto.getSemesterId())
+                    .orElseThrow(() -> new IllegalArgumentException("Semester not found with ID: " + assessmentRequestDto.getSemesterId()));
+            newAssessment.setSemester(semester);
+        }
+
+        Assessment savedAssessment = assessmentRepository.save(newAssessment);
+        return mapToDto(savedAssessment);
+    }
+
+    @Override
+    @Transactional
+    public Optional<AssessmentDto> updateAssessment(Long id, AssessmentRequestDto assessmentRequestDto) {
+        Optional<Assessment> existingAssessmentOptional = assessmentRepository.findById(id);
+        if (existingAssessmentOptional.isEmpty()) {
+            return Optional.empty(); // Assessment not found
+        }
+
+        Assessment existingAssessment = existingAssessmentOptional.get();
+        boolean hasGrades = gradeRepository.existsByAssessment(existingAssessment);
+
+        // Moving graded work to another subject/semester would leave the grades inconsistent
+        Long currentSemesterId = existingAssessment.getSemester() != null ? existingAssessment.getSemester().getId() : null;
+        boolean subjectChanged = !existingAssessment.getSubject().getId().equals(assessmentRequestDto.getSubjectId());
+        boolean semesterChanged = !Objects.equals(currentSemesterId, assessmentRequestDto.getSemesterId());
+        if (hasGrades && (subjectChanged || semesterChanged)) {
+            throw new IllegalArgumentException("Cannot change the subject or semester of an assessment that already has grades.");
+        }
+
+        if (subjectChanged) {
+            Subject subject = subjectRepository.findById(assessmentRequestDto.getSubjectId())
+                    .orElseThrow(() -> new IllegalArgumentException("Subject not found with ID: " + assessmentRequestDto.getSubjectId()));
+            existingAssessment.setSubject(subject);
+        }
+
+        if (semesterChanged) {
+            Semester semester = null;
+            if (assessmentRequestDto.getSemesterId() != null) {
+                semester = semesterRepository.findById(assessmentRequestDto.getSemesterId())
+                        .orElseThrow(() -> new IllegalArgumentException("Semester not found with ID: " + assessmentRequestDto.getSemesterId()));
+            }
+            existingAssessment.setSemester(semester);
+        }
+
+        boolean scaleChanged = !existingAssessment.getWeight().equals(assessmentRequestDto.getWeight())
+                || !existingAssessment.getMaxPoints().equals(assessmentRequestDto.getMaxPoints());
+
+        // Recorded scores must stay within the new scale, as when they were entered
+        if (hasGrades && scaleChanged) {
+            Double highestScore = gradeRepository.findMaxScoreByAssessmentId(id);
+            if (highestScore != null && highestScore > assessmentRequestDto.getMaxPoints()) {
+                throw new IllegalArgumentException("Cannot lower the max points of an assessment below its highest recorded score ("
+                        + highestScore + ").");
+            }
+        }
+
+        existingAssessment.setName(assessmentRequestDto.getName());
+        existingAssessment.setWeight(assessmentRequestDto.getWeight());
+        existingAssessment.setMaxPoints(assessmentRequestDto.getMaxPoints());
+
+        Assessment updatedAssessment = assessmentRepository.saveAndFlush(existingAssessment);
+
+        // Every rollup containing a grade of this assessment used the old weight/scale
+        if (hasGrades && scaleChanged) {
+            gradeRollupService.rebuildForAssessment(id);
+            eventPublisher.publishEvent(ReportDataChangedEvent.forAllStudents());
+        }
+
+        return Optional.of(mapToDto(updatedAssessment));
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteAssessment(Long id) {
+        Optional<Assessment> assessmentOptional = assessmentRepository.findById(id);
+        if (assessmentOptional.isEmpty()) {
+            return false; // Assessment not found
+        }
+        if (gradeRepository.existsByAssessment(assessmentOptional.get())) {
+            throw new IllegalStateException("Cannot delete an assessment that still has grades attached.");
+        }
+        assessmentRepository.delete(assessmentOptional.get());
+        return true;
+    }
+}
@@ -1,5 +1,6 @@
 package com.richardmogou.service; // Standard package
 
+import java.util.Collection;
 import java.util.Map;
 
 public interface CalculationService {
@@ -14,6 +15,16 @@ public interface CalculationService {
      */
     Double calculateOverallAverage(Long studentId);
 
+    /**
+     * Calculates the weighted overall average of several students with a single query.
+     * Used by bulk report generation; unknown student IDs are simply absent from the result.
+     *
+     * @param studentIds The IDs of the students.
+     * @return A Map from student ID to overall average, following the same rules as
+     *         {@link #calculateOverallAverage(Long)}. Students without grades are not in the map.
+     */
+    Map<Long, Double> calculateOverallAverages(Collection<Long> studentIds);
+
     /**
      * Calculates the weighted average grade for a specific student within a specific subject.
      *
@@ -1,10 +1,9 @@
 package com.richardmogou.service; // Standard package
 
-import com.richardmogou.model.Grade;
-import com.richardmogou.model.Student;
 import com.richardmogou.model.Subject;
-import com.richardmogou.repository.GradeRepository;
+import com.richardmogou.model.SubjectAverage;
 import com.richardmogou.repository.StudentRepository;
+import com.richardmogou.repository.SubjectAverageRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,45 +11,78 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Computes averages from the precomputed {@link SubjectAverage} rollups maintained by
+ * {@link GradeRollupService}, so the cost depends on the number of subjects, not on the
+ * number of graded assessments.
+ */
 @Service
 public class CalculationServiceImpl implements CalculationService {
 
     private static final Logger logger = LoggerFactory.getLogger(CalculationServiceImpl.class);
 
     @Autowired
-    private GradeRepository gradeRepository;
+    private SubjectAverageRepository subjectAverageRepository;
 
     @Autowired
     private StudentRepository studentRepository;
 
+    private void ensureStudentExists(Long studentId) {
+        if (!studentRepository.existsById(studentId)) {
+            throw new EntityNotFoundException("Student not found with ID: " + studentId);
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Double calculateOverallAverage(Long studentId) {
-        Student student = studentRepository.findById(studentId)
-                .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
+        ensureStudentExists(studentId);
 
-        List<Grade> grades = gradeRepository.findByStudent(student);
-        if (grades.isEmpty()) {
+        List<SubjectAverage> rollups = subjectAverageRepository.findByStudentIdWithSubject(studentId);
+        if (rollups.stream().allMatch(rollup -> rollup.getAverage() == null)) {
             logger.warn("No grades found for student ID: {}", studentId);
             return null; // Or return 0.0, depending on desired behavior for no grades
         }
 
-        // Group grades by subject
-        Map<Subject, List<Grade>> gradesBySubject = grades.stream()
-                .filter(g -> g.getSubject() != null && g.getScore() != null) // Ensure subject and score are not null
-                .collect(Collectors.groupingBy(Grade::getSubject));
+        return weightedOverallAverage(studentId, rollups);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Double> calculateOverallAverages(Collection<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, List<SubjectAverage>> rollupsByStudent = subjectAverageRepository.findByStudentIdsWithSubject(studentIds).stream()
+                .collect(Collectors.groupingBy(rollup -> rollup.getStudent().getId()));
+
+        Map<Long, Double> averages = new HashMap<>();
+        rollupsByStudent.forEach((studentId, rollups) -> {
+            if (rollups.stream().anyMatch(rollup -> rollup.getAverage() != null)) {
+                averages.put(studentId, weightedOverallAverage(studentId, rollups));
+            }
+        });
+        return averages;
+    }
 
+    // Overall average of a student's subject rollups, weighted by subject coefficient
+    private Double weightedOverallAverage(Long studentId, List<SubjectAverage> rollups) {
         double totalWeightedScoreSum = 0;
         double totalCoefficientSum = 0;
 
-        for (Map.Entry<Subject, List<Grade>> entry : gradesBySubject.entrySet()) {
-            Subject subject = entry.getKey();
-            List<Grade> subjectGrades = entry.getValue();
+        for (SubjectAverage rollup : rollups) {
+            Subject subject = rollup.getSubject();
+            Double subjectAverage = rollup.getAverage();
+            if (subjectAverage == null) {
+                continue; // All grades of this subject were removed
+            }
 
             if (subject.getCoefficient() == null || subject.getCoefficient() <= 0) {
                  logger.warn("Subject '{}' (ID: {}) has invalid coefficient {}, skipping for overall average.",
@@ -58,10 +90,6 @@ public class CalculationServiceImpl implements CalculationService {
                  continue; // Skip subjects with zero or null coefficient
             }
 
-            // Calculate simple average for this subject's grades
-            double subjectScoreSum = subjectGrades.stream().mapToDouble(Grade::getScore).sum();
-            double subjectAverage = subjectScoreSum / subjectGrades.size();
-
             // Add to overall weighted sum
             totalWeightedScoreSum += subjectAverage * subject.getCoefficient();
             totalCoefficientSum += subject.getCoefficient();
@@ -79,50 +107,27 @@ public class CalculationServiceImpl implements CalculationService {
     @Override
     @Transactional(readOnly = true)
     public Double calculateSubjectAverage(Long studentId, Long subjectId) {
-         Student student = studentRepository.findById(studentId)
-                .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
-
-         // Fetch grades specifically for this student and subject
-         // This requires SubjectRepository or fetching all grades and filtering
-         // Let's fetch all and filter for simplicity here, optimize later if needed
-         List<Grade> subjectGrades = gradeRepository.findByStudent(student).stream()
-                 .filter(g -> g.getSubject() != null && g.getSubject().getId().equals(subjectId) && g.getScore() != null)
-                 .collect(Collectors.toList());
+        ensureStudentExists(studentId);
 
-        if (subjectGrades.isEmpty()) {
+        Double average = subjectAverageRepository.findByStudentIdAndSubjectId(studentId, subjectId)
+                .map(SubjectAverage::getAverage)
+                .orElse(null);
+        if (average == null) {
             logger.debug("No grades found for student ID: {} in subject ID: {}", studentId, subjectId);
-            return null; // No grades for this subject
         }
-
-        double subjectScoreSum = subjectGrades.stream().mapToDouble(Grade::getScore).sum();
-        return subjectScoreSum / subjectGrades.size();
+        return average; // null if no grades for this subject
     }
 
-     @Override
+    @Override
     @Transactional(readOnly = true)
     public Map<String, Double> calculateAllSubjectAverages(Long studentId) {
-         Student student = studentRepository.findById(studentId)
-                .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
-
-        List<Grade> grades = gradeRepository.findByStudent(student);
-        if (grades.isEmpty()) {
-            return Collections.emptyMap();
-        }
-
-        // Group grades by subject
-        Map<Subject, List<Grade>> gradesBySubject = grades.stream()
-                .filter(g -> g.getSubject() != null && g.getScore() != null)
-                .collect(Collectors.groupingBy(Grade::getSubject));
+        ensureStudentExists(studentId);
 
-        // Calculate average for each subject
-        return gradesBySubject.entrySet().stream()
+        return subjectAverageRepository.findByStudentIdWithSubject(studentId).stream()
+                .filter(rollup -> rollup.getAverage() != null)
                 .collect(Collectors.toMap(
-                        entry -> entry.getKey().getName(), // Key: Subject Name
-                        entry -> {
-                            List<Grade> subjectGrades = entry.getValue();
-                            double sum = subjectGrades.stream().mapToDouble(Grade::getScore).sum();
-                            return sum / subjectGrades.size(); // Value: Subject Average
-                        }
+                        rollup -> rollup.getSubject().getName(), // Key: Subject Name
+                        SubjectAverage::getAverage // Value: Subject Average
                 ));
     }
 }
\ No newline at end of file
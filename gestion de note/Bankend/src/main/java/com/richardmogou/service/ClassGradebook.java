@@ -0,0 +1,303 @@
+package com.richardmogou.service;
+
+import com.richardmogou.repository.GradebookGradeRow;
+
+import java.util.*;
+
+/**
+ * The gradebook of a class: its roster, assessments and grades, copied out of the persistence
+ * context like {@link StudentReportBatch}, with every aggregate of the gradebook computed in one
+ * pass over the grades.
+ * <p>
+ * Scores are shown in points of their assessment; averages and statistics are on the 0-100 scale,
+ * normalized and weighted like the subject averages of report cards.
+ */
+public final class ClassGradebook {
+
+    // Grade letter boundaries and pass mark, as in the statistics endpoints
+    private static final double A_THRESHOLD = 90.0;
+    private static final double B_THRESHOLD = 80.0;
+    private static final double C_THRESHOLD = 70.0;
+    private static final double D_THRESHOLD = 60.0;
+    private static final double PASSING_THRESHOLD = 60.0;
+    private static final String[] LETTERS = {"A", "B", "C", "D", "F"};
+
+    /**
+     * The class the gradebook belongs to.
+     */
+    public record ClassInfo(Long id, String name, String subjectName, String semesterName) {
+    }
+
+    /**
+     * A column of the roster: one assessment, or the grades without an assessment.
+     *
+     * @param assessmentId The ID of the assessment, or null for grades without one.
+     * @param maxPoints The points the assessment is graded on, or null for grades without one.
+     */
+    public record Column(Long assessmentId, String name, Double maxPoints, double weight) {
+
+        // Score of a grade of this column on the 0-100 scale
+        private double normalize(double score) {
+            return maxPoints != null && maxPoints > 0 ? score * 100.0 / maxPoints : score;
+        }
+    }
+
+    /**
+     * Statistics of a set of scores on the 0-100 scale; all values but the counts are null without scores.
+     *
+     * @param letterCounts The number of A, B, C, D and F scores.
+     */
+    public record ScoreStatistics(int count, Double average, Double median, Double min, Double max,
+                                  Double standardDeviation, int passing, int[] letterCounts) {
+
+        public Double passingRate() {
+            return count > 0 ? passing * 100.0 / count : null;
+        }
+    }
+
+    private final ClassInfo classInfo;
+    private final List<StudentReportBatch.StudentInfo> students;
+    private final List<Column> columns;
+    private final List<GradebookGradeRow> grades;
+    private final Map<Long, Integer> studentIndexes = new HashMap<>();
+    private final Map<Long, Integer> columnIndexes = new HashMap<>();
+    private final int noAssessmentColumn;
+
+    // Per student and column (student * columns + column): sum and count of raw scores
+    private final double[] cellSums;
+    private final int[] cellCounts;
+    // Per column: number of students with at least one grade there
+    private final int[] gradedStudents;
+    // Per student: weighted sum of normalized scores, sum of weights and grade count
+    private final double[] weightedSums;
+    private final double[] weightSums;
+    private final int[] gradeCounts;
+    private final ScoreStatistics[] columnStatistics;
+    private final ScoreStatistics overallStatistics;
+
+    /**
+     * Aggregates a gradebook.
+     *
+     * @param students The roster; listed by last then first name.
+     * @param assessments The class's assessments, shown even without grades; assessments that only
+     *                    appear in grades are added after them.
+     * @param grades The grades of the class's students in its subject and semester.
+     */
+    public ClassGradebook(ClassInfo classInfo, List<StudentReportBatch.StudentInfo> students,
+                          List<Column> assessments, List<GradebookGradeRow> grades) {
+        this.classInfo = classInfo;
+        this.grades = List.copyOf(grades);
+
+        List<StudentReportBatch.StudentInfo> roster = new ArrayList<>(students);
+        roster.sort(Comparator.comparing(StudentReportBatch.StudentInfo::lastName, Comparator.nullsLast(String::compareToIgnoreCase))
+                .thenComparing(StudentReportBatch.StudentInfo::firstName, Comparator.nullsLast(String::compareToIgnoreCase)));
+        this.students = List.copyOf(roster);
+        for (int i = 0; i < roster.size(); i++) {
+            studentIndexes.put(roster.get(i).id(), i);
+        }
+
+        List<Column> allColumns = new ArrayList<>(assessments);
+        boolean ungraded = false;
+        for (Column column : assessments) {
+            columnIndexes.put(column.assessmentId(), columnIndexes.size());
+        }
+        for (GradebookGradeRow grade : grades) {
+            if (grade.assessmentId() == null) {
+                ungraded = true;
+            } else if (!columnIndexes.containsKey(grade.assessmentId())) {
+                columnIndexes.put(grade.assessmentId(), allColumns.size());
+                allColumns.add(new Column(grade.assessmentId(), grade.assessmentName(), grade.maxPoints(),
+                        grade.weight() != null ? grade.weight() : 1.0));
+            }
+        }
+        noAssessmentColumn = ungraded ? allColumns.size() : -1;
+        if (ungraded) {
+            allColumns.add(new Column(null, "Other grades", null, 1.0));
+        }
+        this.columns = List.copyOf(allColumns);
+
+        int columnCount = columns.size();
+        cellSums = new double[roster.size() * columnCount];
+        cellCounts = new int[roster.size() * columnCount];
+        gradedStudents = new int[columnCount];
+        weightedSums = new double[roster.size()];
+        weightSums = new double[roster.size()];
+        gradeCounts = new int[roster.size()];
+        ScoreAccumulator[] columnScores = new ScoreAccumulator[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnScores[i] = new ScoreAccumulator();
+        }
+        ScoreAccumulator allScores = new ScoreAccumulator();
+
+        for (GradebookGradeRow grade : grades) {
+            Integer student = studentIndexes.get(grade.studentId());
+            if (student == null || grade.score() == null) {
+                continue;
+            }
+            int column = columnOf(grade);
+            Column definition = columns.get(column);
+            double normalized = definition.normalize(grade.score());
+
+            int cell = student * columnCount + column;
+            if (cellCounts[cell] == 0) {
+                gradedStudents[column]++;
+            }
+            cellSums[cell] += grade.score();
+            cellCounts[cell]++;
+            weightedSums[student] += normalized * definition.weight();
+            weightSums[student] += definition.weight();
+            gradeCounts[student]++;
+            columnScores[column].add(normalized);
+            allScores.add(normalized);
+        }
+
+        columnStatistics = new ScoreStatistics[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnStatistics[i] = columnScores[i].statistics();
+        }
+        overallStatistics = allScores.statistics();
+    }
+
+    public ClassInfo classInfo() {
+        return classInfo;
+    }
+
+    public List<StudentReportBatch.StudentInfo> students() {
+        return students;
+    }
+
+    public List<Column> columns() {
+        return columns;
+    }
+
+    /**
+     * @return The grades, ordered by grade ID.
+     */
+    public List<GradebookGradeRow> grades() {
+        return grades;
+    }
+
+    /**
+     * @return The student's score in a column, in points; the mean if they have several grades
+     *         there, null if they have none.
+     */
+    public Double score(int student, int column) {
+        int cell = student * columns.size() + column;
+        return cellCounts[cell] > 0 ? cellSums[cell] / cellCounts[cell] : null;
+    }
+
+    public int gradeCount(int student) {
+        return gradeCounts[student];
+    }
+
+    /**
+     * @return The student's weighted average on the 0-100 scale, or null if they have no grades.
+     */
+    public Double average(int student) {
+        return weightSums[student] > 0 ? weightedSums[student] / weightSums[student] : null;
+    }
+
+    /**
+     * @return The number of students with a score in a column.
+     */
+    public int gradedStudentCount(int column) {
+        return gradedStudents[column];
+    }
+
+    public ScoreStatistics columnStatistics(int column) {
+        return columnStatistics[column];
+    }
+
+    /**
+     * @return The statistics of all the grades of the class.
+     */
+    public ScoreStatistics overallStatistics() {
+        return overallStatistics;
+    }
+
+    /**
+     * @return The number of students with no grade at all.
+     */
+    public int ungradedStudentCount() {
+        int count = 0;
+        for (int gradeCount : gradeCounts) {
+            if (gradeCount == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The roster entry of a grade's student, or null if they are not enrolled.
+     */
+    public StudentReportBatch.StudentInfo studentOf(GradebookGradeRow grade) {
+        Integer student = studentIndexes.get(grade.studentId());
+        return student != null ? students.get(student) : null;
+    }
+
+    /**
+     * @return The letter of a score on the 0-100 scale.
+     */
+    public static String letterOf(double score) {
+        return LETTERS[letterIndex(score)];
+    }
+
+    public static String[] letters() {
+        return LETTERS.clone();
+    }
+
+    private int columnOf(GradebookGradeRow grade) {
+        return grade.assessmentId() != null ? columnIndexes.get(grade.assessmentId()) : noAssessmentColumn;
+    }
+
+    private static int letterIndex(double score) {
+        if (score >= A_THRESHOLD) {
+            return 0;
+        }
+        if (score >= B_THRESHOLD) {
+            return 1;
+        }
+        if (score >= C_THRESHOLD) {
+            return 2;
+        }
+        return score >= D_THRESHOLD ? 3 : 4;
+    }
+
+    // Collects scores into a growing array; sorted once, for the median
+    private static final class ScoreAccumulator {
+
+        private double[] scores = new double[16];
+        private int count;
+        private double sum;
+        private int passing;
+        private final int[] letterCounts = new int[LETTERS.length];
+
+        private void add(double score) {
+            if (count == scores.length) {
+                scores = Arrays.copyOf(scores, count * 2);
+            }
+            scores[count++] = score;
+            sum += score;
+            if (score >= PASSING_THRESHOLD) {
+                passing++;
+            }
+            letterCounts[letterIndex(score)]++;
+        }
+
+        private ScoreStatistics statistics() {
+            if (count == 0) {
+                return new ScoreStatistics(0, null, null, null, null, null, 0, letterCounts);
+            }
+            Arrays.sort(scores, 0, count);
+            double average = sum / count;
+            double median = count % 2 == 0 ? (scores[count / 2 - 1] + scores[count / 2]) / 2.0 : scores[count / 2];
+            double squares = 0;
+            for (int i = 0; i < count; i++) {
+                squares += (scores[i] - average) * (scores[i] - average);
+            }
+            return new ScoreStatistics(count, average, median, scores[0], scores[count - 1],
+                    Math.sqrt(squares / count), passing, letterCounts);
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.richardmogou.service;
 
+import com.richardmogou.dto.BulkEnrollmentResultDto;
 import com.richardmogou.dto.ClassSectionDto;
 import com.richardmogou.dto.ClassSectionRequestDto;
+import com.richardmogou.dto.ClassSectionSummaryDto;
+import com.richardmogou.dto.EnrollmentImportResultDto;
 import com.richardmogou.dto.StudentDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,11 +34,29 @@ public interface ClassSectionService {
     Optional<ClassSectionDto> findClassSectionById(Long id);
 
     /**
-     * Finds all students enrolled in a specific class section.
+     * Lists class sections as lightweight summaries (metadata and student count, no roster),
+     * potentially filtered by teacher, subject, or semester ID.
+     * @param teacherId Optional ID of the teacher to filter by.
+     * @param subjectId Optional ID of the subject to filter by.
+     * @param semesterId Optional ID of the semester to filter by.
+     * @return A list of ClassSection summary DTOs matching the criteria.
+     */
+    List<ClassSectionSummaryDto> findClassSectionSummaries(Long teacherId, Long subjectId, Long semesterId);
+
+    /**
+     * Finds the summary (metadata and student count, no roster) of a specific class section.
+     * @param id The ID of the class section.
+     * @return An Optional containing the ClassSection summary DTO if found, otherwise empty.
+     */
+    Optional<ClassSectionSummaryDto> findClassSectionSummaryById(Long id);
+
+    /**
+     * Finds one page of the students enrolled in a specific class section.
      * @param classSectionId The ID of the class section.
-     * @return A list of Student DTOs enrolled in the class section.
+     * @param pageable The page to return.
+     * @return A page of Student DTOs enrolled in the class section.
      */
-    List<StudentDto> findStudentsByClassSectionId(Long classSectionId);
+    Page<StudentDto> findStudentsByClassSectionId(Long classSectionId, Pageable pageable);
 
     /**
      * Finds all class sections that a specific student is enrolled in.
@@ -66,17 +92,56 @@ public interface ClassSectionService {
      * Enrolls a student in a class section.
      * @param classSectionId The ID of the class section.
      * @param studentId The ID of the student.
-     * @return The updated ClassSection DTO.
+     * @return The updated ClassSection summary DTO.
      */
-    ClassSectionDto enrollStudent(Long classSectionId, Long studentId);
+    ClassSectionSummaryDto enrollStudent(Long classSectionId, Long studentId);
 
     /**
      * Removes a student from a class section.
      * @param classSectionId The ID of the class section.
      * @param studentId The ID of the student.
-     * @return The updated ClassSection DTO.
+     * @return The updated ClassSection summary DTO.
+     */
+    ClassSectionSummaryDto removeStudent(Long classSectionId, Long studentId);
+
+    /**
+     * Enrolls several students in a class section in one statement.
+     * Students that are already enrolled are left untouched.
+     * @param classSectionId The ID of the class section.
+     * @param studentIds The IDs of the students to enroll.
+     * @return The number of students added and the resulting roster size.
+     */
+    BulkEnrollmentResultDto enrollStudents(Long classSectionId, Collection<Long> studentIds);
+
+    /**
+     * Removes several students from a class section in one statement.
+     * @param classSectionId The ID of the class section.
+     * @param studentIds The IDs of the students to remove.
+     * @return The number of students removed and the resulting roster size.
+     */
+    BulkEnrollmentResultDto unenrollStudents(Long classSectionId, Collection<Long> studentIds);
+
+    /**
+     * Replaces the roster of a class section with exactly the given students.
+     * Only the difference is written: missing students are inserted, extra ones deleted.
+     * @param classSectionId The ID of the class section.
+     * @param studentIds The IDs of the students that make up the new roster (may be empty).
+     * @return The number of students added and removed, and the resulting roster size.
+     */
+    BulkEnrollmentResultDto replaceRoster(Long classSectionId, Collection<Long> studentIds);
+
+    /**
+     * Enrolls students across the class sections of a semester from a CSV mapping file.
+     * Each line holds a class name and a student username ("class_name,username");
+     * a header line is optional, and fields may be quoted as in RFC 4180, e.g. a class name containing
+     * a comma. Lines that cannot be resolved are reported, not fatal.
+     * @param semesterId The ID of the semester whose class sections are targeted.
+     * @param mappingFile The CSV content.
+     * @param replace If true, the roster of every class named in the file is replaced by the listed students.
+     * @return Per-class results and the rejected lines.
+     * @throws IOException If the file cannot be read.
      */
-    ClassSectionDto removeStudent(Long classSectionId, Long studentId);
+    EnrollmentImportResultDto importSemesterEnrollments(Long semesterId, InputStream mappingFile, boolean replace) throws IOException;
 
     /**
      * Assigns a teacher to a class section.
@@ -1,22 +1,38 @@
 package com.richardmogou.service;
 
+import com.richardmogou.dto.BulkEnrollmentResultDto;
 import com.richardmogou.dto.ClassSectionDto;
 import com.richardmogou.dto.ClassSectionRequestDto;
+import com.richardmogou.dto.ClassSectionSummaryDto;
+import com.richardmogou.dto.EnrollmentImportResultDto;
 import com.richardmogou.dto.StudentDto;
 import com.richardmogou.model.*;
 import com.richardmogou.repository.*;
+import com.richardmogou.security.ClassAccessIndex;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.Optional;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class ClassSectionServiceImpl implements ClassSectionService {
 
+    // Upper bound for one bulk roster change; keeps the IN list well below the JDBC bind parameter limit
+    private static final int MAX_BULK_STUDENTS = 10_000;
+
+    // Usernames resolved per query when importing a mapping file
+    private static final int USERNAME_LOOKUP_CHUNK = 1_000;
+
     @Autowired
     private ClassSectionRepository classSectionRepository;
 
@@ -32,6 +48,12 @@ public class ClassSectionServiceImpl implements ClassSectionService {
     @Autowired
     private StudentRepository studentRepository;
 
+    @Autowired
+    private ClassAccessIndex classAccessIndex; // Kept in sync with every teacher or roster change below
+
+    @Autowired
+    private ExportWatermarkService exportWatermarkService; // Advanced by every roster, subject or semester change below
+
     // --- Helper Methods for Mapping ---
     private ClassSectionDto mapToDto(ClassSection classSection) {
         if (classSection == null) {
@@ -62,6 +84,108 @@ public class ClassSectionServiceImpl implements ClassSectionService {
         );
     }
     
+    private ClassSectionSummaryDto mapToSummaryDto(ClassSection classSection, long studentCount) {
+        Subject subject = classSection.getSubject();
+        Semester semester = classSection.getSemester();
+        Teacher teacher = classSection.getTeacher();
+
+        return new ClassSectionSummaryDto(
+                classSection.getId(),
+                classSection.getName(),
+                (subject != null) ? subject.getId() : null,
+                (subject != null) ? subject.getName() : null,
+                (semester != null) ? semester.getId() : null,
+                (semester != null) ? semester.getName() : null,
+                (teacher != null) ? teacher.getId() : null,
+                (teacher != null) ? teacher.getUsername() : null,
+                (teacher != null) ? teacher.getFirstName() + " " + teacher.getLastName() : null,
+                studentCount
+        );
+    }
+
+    // Student counts for several classes from a single GROUP BY over class_student
+    private Map<Long, Long> countStudents(Collection<Long> classIds) {
+        if (classIds.isEmpty()) {
+            return Map.of();
+        }
+        return classSectionRepository.countStudentsByClassIds(classIds).stream()
+                .collect(Collectors.toMap(
+                        row -> ((Number) row[0]).longValue(),
+                        row -> ((Number) row[1]).longValue()));
+    }
+
+    // --- Helper Methods for Roster Changes ---
+
+    private void ensureClassSectionExists(Long classSectionId) {
+        if (!classSectionRepository.existsById(classSectionId)) {
+            throw new EntityNotFoundException("Class section not found with ID: " + classSectionId);
+        }
+    }
+
+    // Drops nulls and duplicates, keeping the caller's order
+    private Set<Long> normalizeStudentIds(Collection<Long> studentIds) {
+        if (studentIds == null) {
+            throw new IllegalArgumentException("Student IDs cannot be null");
+        }
+        Set<Long> uniqueIds = studentIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (uniqueIds.size() > MAX_BULK_STUDENTS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_STUDENTS + " students can be changed at once");
+        }
+        return uniqueIds;
+    }
+
+    // Rejects the whole request if any ID does not belong to a student
+    private void ensureStudentsExist(Set<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        Set<Long> missingIds = new LinkedHashSet<>(studentIds);
+        missingIds.removeAll(studentRepository.findExistingIds(studentIds));
+        if (!missingIds.isEmpty()) {
+            throw new IllegalArgumentException("Students not found with IDs: " + missingIds);
+        }
+    }
+
+    // INSERT ... SELECT of the students not yet enrolled; the difference is computed by the database
+    private int addToRoster(Long classSectionId, Set<Long> studentIds) {
+        return studentIds.isEmpty() ? 0 : classSectionRepository.insertMissingStudents(classSectionId, studentIds);
+    }
+
+    // DELETE of the enrolled students that are not part of the new roster
+    private int removeOthersFromRoster(Long classSectionId, Set<Long> studentIds) {
+        return studentIds.isEmpty()
+                ? classSectionRepository.deleteAllStudents(classSectionId)
+                : classSectionRepository.deleteStudentsNotIn(classSectionId, studentIds);
+    }
+
+    private BulkEnrollmentResultDto rosterResult(Long classSectionId, int added, int removed) {
+        if (added > 0 || removed > 0) {
+            classAccessIndex.refreshClass(classSectionId);
+            exportWatermarkService.classChanged(classSectionId);
+        }
+        return new BulkEnrollmentResultDto(classSectionId, added, removed,
+                classSectionRepository.countStudentsByClassId(classSectionId));
+    }
+
+    // Strips whitespace from a CSV field; CsvReader reads an empty field as null, returned here as ""
+    private static String cell(String value) {
+        return value != null ? value.trim() : "";
+    }
+
+    private Map<String, Long> resolveStudentIds(Collection<String> usernames) {
+        Map<String, Long> idsByUsername = new HashMap<>();
+        List<String> pending = new ArrayList<>(usernames);
+        for (int from = 0; from < pending.size(); from += USERNAME_LOOKUP_CHUNK) {
+            List<String> chunk = pending.subList(from, Math.min(from + USERNAME_LOOKUP_CHUNK, pending.size()));
+            for (Object[] row : studentRepository.findIdsByUsernames(chunk)) {
+                idsByUsername.put((String) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        return idsByUsername;
+    }
+
     private StudentDto mapStudentToDto(Student student) {
         if (student == null) {
             return null;
@@ -128,20 +252,38 @@ public class ClassSectionServiceImpl implements ClassSectionService {
     @Override
     @Transactional(readOnly = true)
     public Optional<ClassSectionDto> findClassSectionById(Long id) {
-        return classSectionRepository.findById(id).map(this::mapToDto);
+        return classSectionRepository.findWithStudentsById(id).map(this::mapToDto);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<StudentDto> findStudentsByClassSectionId(Long classSectionId) {
-        ClassSection classSection = classSectionRepository.findById(classSectionId)
-                .orElseThrow(() -> new EntityNotFoundException("Class section not found with ID: " + classSectionId));
-        
-        return classSection.getStudents().stream()
-                .map(this::mapStudentToDto)
+    public List<ClassSectionSummaryDto> findClassSectionSummaries(Long teacherId, Long subjectId, Long semesterId) {
+        List<ClassSection> classSections = classSectionRepository.findSummaries(teacherId, subjectId, semesterId);
+        Map<Long, Long> studentCounts = countStudents(classSections.stream().map(ClassSection::getId).toList());
+
+        return classSections.stream()
+                .map(classSection -> mapToSummaryDto(classSection, studentCounts.getOrDefault(classSection.getId(), 0L)))
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ClassSectionSummaryDto> findClassSectionSummaryById(Long id) {
+        return classSectionRepository.findSummaryById(id)
+                .map(classSection -> mapToSummaryDto(classSection, countStudents(List.of(id)).getOrDefault(id, 0L)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<StudentDto> findStudentsByClassSectionId(Long classSectionId, Pageable pageable) {
+        if (!classSectionRepository.existsById(classSectionId)) {
+            throw new EntityNotFoundException("Class section not found with ID: " + classSectionId);
+        }
+
+        return studentRepository.findByEnrolledClassesId(classSectionId, pageable)
+                .map(this::mapStudentToDto);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ClassSectionDto> findClassSectionsByStudentId(Long studentId, Long semesterId) {
@@ -186,17 +328,20 @@ public class ClassSectionServiceImpl implements ClassSectionService {
             newClassSection.setTeacher(teacher);
         }
         
-        // Add students if provided
+        // Add students if provided, loaded in a single query
         if (classSectionRequestDto.getStudentIds() != null && !classSectionRequestDto.getStudentIds().isEmpty()) {
-            for (Long studentId : classSectionRequestDto.getStudentIds()) {
-                Student student = studentRepository.findById(studentId)
-                        .orElseThrow(() -> new IllegalArgumentException("Student not found with ID: " + studentId));
-                
-                newClassSection.addStudent(student);
+            Set<Long> studentIds = normalizeStudentIds(classSectionRequestDto.getStudentIds());
+            List<Student> students = studentRepository.findAllById(studentIds);
+            if (students.size() != studentIds.size()) {
+                Set<Long> missingIds = new LinkedHashSet<>(studentIds);
+                students.forEach(student -> missingIds.remove(student.getId()));
+                throw new IllegalArgumentException("Students not found with IDs: " + missingIds);
             }
+            students.forEach(newClassSection::addStudent);
         }
         
         ClassSection savedClassSection = classSectionRepository.save(newClassSection);
+        classAccessIndex.refreshClass(savedClassSection.getId());
         return mapToDto(savedClassSection);
     }
 
@@ -238,6 +383,8 @@ public class ClassSectionServiceImpl implements ClassSectionService {
         }
         
         ClassSection updatedClassSection = classSectionRepository.save(existingClassSection);
+        classAccessIndex.refreshClass(id);
+        exportWatermarkService.classChanged(id);
         return Optional.of(mapToDto(updatedClassSection));
     }
 
@@ -246,6 +393,7 @@ public class ClassSectionServiceImpl implements ClassSectionService {
     public boolean deleteClassSection(Long id) {
         if (classSectionRepository.existsById(id)) {
             classSectionRepository.deleteById(id);
+            classAccessIndex.removeClass(id);
             return true;
         }
         return false; // ClassSection not found
@@ -253,32 +401,158 @@ public class ClassSectionServiceImpl implements ClassSectionService {
 
     @Override
     @Transactional
-    public ClassSectionDto enrollStudent(Long classSectionId, Long studentId) {
-        ClassSection classSection = classSectionRepository.findById(classSectionId)
-                .orElseThrow(() -> new EntityNotFoundException("Class section not found with ID: " + classSectionId));
-        
-        Student student = studentRepository.findById(studentId)
-                .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
-        
-        classSection.addStudent(student);
-        ClassSection updatedClassSection = classSectionRepository.save(classSection);
-        
-        return mapToDto(updatedClassSection);
+    public ClassSectionSummaryDto enrollStudent(Long classSectionId, Long studentId) {
+        ensureClassSectionExists(classSectionId);
+        if (!studentRepository.existsById(studentId)) {
+            throw new EntityNotFoundException("Student not found with ID: " + studentId);
+        }
+
+        if (classSectionRepository.insertMissingStudents(classSectionId, List.of(studentId)) > 0) {
+            exportWatermarkService.classChanged(classSectionId);
+        }
+        classAccessIndex.refreshClass(classSectionId);
+
+        return findClassSectionSummaryById(classSectionId).orElseThrow();
     }
 
     @Override
     @Transactional
-    public ClassSectionDto removeStudent(Long classSectionId, Long studentId) {
-        ClassSection classSection = classSectionRepository.findById(classSectionId)
-                .orElseThrow(() -> new EntityNotFoundException("Class section not found with ID: " + classSectionId));
-        
-        Student student = studentRepository.findById(studentId)
-                .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
-        
-        classSection.removeStudent(student);
-        ClassSection updatedClassSection = classSectionRepository.save(classSection);
-        
-        return mapToDto(updatedClassSection);
+    public ClassSectionSummaryDto removeStudent(Long classSectionId, Long studentId) {
+        ensureClassSectionExists(classSectionId);
+        if (!studentRepository.existsById(studentId)) {
+            throw new EntityNotFoundException("Student not found with ID: " + studentId);
+        }
+
+        if (classSectionRepository.deleteStudents(classSectionId, List.of(studentId)) > 0) {
+            exportWatermarkService.classChanged(classSectionId);
+        }
+        classAccessIndex.refreshClass(classSectionId);
+
+        return findClassSectionSummaryById(classSectionId).orElseThrow();
+    }
+
+    @Override
+    @Transactional
+    public BulkEnrollmentResultDto enrollStudents(Long classSectionId, Collection<Long> studentIds) {
+        ensureClassSectionExists(classSectionId);
+        Set<Long> uniqueIds = normalizeStudentIds(studentIds);
+        ensureStudentsExist(uniqueIds);
+
+        int added = addToRoster(classSectionId, uniqueIds);
+        return rosterResult(classSectionId, added, 0);
+    }
+
+    @Override
+    @Transactional
+    public BulkEnrollmentResultDto unenrollStudents(Long classSectionId, Collection<Long> studentIds) {
+        ensureClassSectionExists(classSectionId);
+        Set<Long> uniqueIds = normalizeStudentIds(studentIds);
+
+        int removed = uniqueIds.isEmpty() ? 0 : classSectionRepository.deleteStudents(classSectionId, uniqueIds);
+        return rosterResult(classSectionId, 0, removed);
+    }
+
+    @Override
+    @Transactional
+    public BulkEnrollmentResultDto replaceRoster(Long classSectionId, Collection<Long> studentIds) {
+        ensureClassSectionExists(classSectionId);
+        Set<Long> uniqueIds = normalizeStudentIds(studentIds);
+        ensureStudentsExist(uniqueIds);
+
+        int removed = removeOthersFromRoster(classSectionId, uniqueIds);
+        int added = addToRoster(classSectionId, uniqueIds);
+        return rosterResult(classSectionId, added, removed);
+    }
+
+    @Override
+    @Transactional
+    public EnrollmentImportResultDto importSemesterEnrollments(Long semesterId, InputStream mappingFile, boolean replace) throws IOException {
+        Semester semester = semesterRepository.findById(semesterId)
+                .orElseThrow(() -> new EntityNotFoundException("Semester not found with ID: " + semesterId));
+
+        // Class names are only meaningful within the semester; a name used twice cannot be resolved
+        Map<String, Long> classIdsByName = new HashMap<>();
+        Set<String> ambiguousNames = new HashSet<>();
+        for (ClassSection classSection : classSectionRepository.findSummaries(null, null, semester.getId())) {
+            if (classIdsByName.putIfAbsent(classSection.getName(), classSection.getId()) != null) {
+                ambiguousNames.add(classSection.getName());
+            }
+        }
+
+        // First pass: parse the file, keeping (line, class, username) for resolution
+        List<String> errors = new ArrayList<>();
+        List<String[]> entries = new ArrayList<>();
+        List<Integer> entryLines = new ArrayList<>();
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(mappingFile, StandardCharsets.UTF_8)));
+        boolean firstRow = true;
+        while (true) {
+            int lineNumber = (int) reader.lineNumber();
+            List<String> cells = reader.readRecord();
+            if (cells == null) {
+                break;
+            }
+            if (cells.size() == 1 && cell(cells.get(0)).isEmpty()) {
+                continue; // Blank line
+            }
+            if (firstRow) {
+                firstRow = false;
+                if (cells.size() == 2 && cell(cells.get(1)).equalsIgnoreCase("username")) {
+                    continue; // Header line
+                }
+            }
+            if (cells.size() != 2 || cell(cells.get(0)).isEmpty() || cell(cells.get(1)).isEmpty()) {
+                errors.add("Line " + lineNumber + ": expected 'class_name,username'");
+                continue;
+            }
+            entries.add(new String[]{cell(cells.get(0)), cell(cells.get(1))});
+            entryLines.add(lineNumber);
+        }
+
+        // Second pass: resolve usernames in bulk and group student IDs per class
+        Map<String, Long> studentIdsByUsername = resolveStudentIds(
+                entries.stream().map(entry -> entry[1]).collect(Collectors.toCollection(LinkedHashSet::new)));
+        Map<Long, Set<Long>> studentIdsByClass = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            String className = entries.get(i)[0];
+            String username = entries.get(i)[1];
+            int lineNumber = entryLines.get(i);
+
+            if (ambiguousNames.contains(className)) {
+                errors.add("Line " + lineNumber + ": class name '" + className + "' is used by several classes in this semester");
+            } else if (!classIdsByName.containsKey(className)) {
+                errors.add("Line " + lineNumber + ": unknown class '" + className + "'");
+            } else if (!studentIdsByUsername.containsKey(username)) {
+                errors.add("Line " + lineNumber + ": unknown student '" + username + "'");
+            } else {
+                studentIdsByClass.computeIfAbsent(classIdsByName.get(className), id -> new LinkedHashSet<>())
+                        .add(studentIdsByUsername.get(username));
+            }
+        }
+
+        // A rejected line could silently drop a student from a replaced roster, so nothing is applied
+        List<BulkEnrollmentResultDto> classResults = new ArrayList<>();
+        if (replace && !errors.isEmpty()) {
+            return new EnrollmentImportResultDto(semesterId, entries.size(), 0, 0, classResults, errors);
+        }
+
+        // Apply: one INSERT (and for replace one DELETE) per class
+        int totalAdded = 0;
+        int totalRemoved = 0;
+        for (Map.Entry<Long, Set<Long>> classEntry : studentIdsByClass.entrySet()) {
+            Long classSectionId = classEntry.getKey();
+            Set<Long> studentIds = classEntry.getValue();
+            if (studentIds.size() > MAX_BULK_STUDENTS) {
+                throw new IllegalArgumentException("At most " + MAX_BULK_STUDENTS + " students can be enrolled in one class at once");
+            }
+
+            int removed = replace ? removeOthersFromRoster(classSectionId, studentIds) : 0;
+            int added = addToRoster(classSectionId, studentIds);
+            classResults.add(rosterResult(classSectionId, added, removed));
+            totalAdded += added;
+            totalRemoved += removed;
+        }
+
+        return new EnrollmentImportResultDto(semesterId, entries.size(), totalAdded, totalRemoved, classResults, errors);
     }
 
     @Override
@@ -292,6 +566,7 @@ public class ClassSectionServiceImpl implements ClassSectionService {
         
         classSection.setTeacher(teacher);
         ClassSection updatedClassSection = classSectionRepository.save(classSection);
+        classAccessIndex.refreshClass(classSectionId);
         
         return mapToDto(updatedClassSection);
     }
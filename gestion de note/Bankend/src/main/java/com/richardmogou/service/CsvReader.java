@@ -0,0 +1,113 @@
+package com.richardmogou.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV reader, the counterpart of {@link CsvWriter}.
+ * <p>
+ * Null handling follows PostgreSQL's {@code COPY ... (FORMAT csv)}: an unquoted empty field is
+ * read as null and a quoted empty field ({@code ""}) as an empty string, so that files load the
+ * same way with or without the COPY protocol.
+ */
+public class CsvReader {
+
+    private final Reader in;
+    private int peeked = -2; // -2: nothing peeked
+    private long line = 1;
+
+    /**
+     * @param in The CSV data; expected to be buffered.
+     */
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return The line number at which the next record starts.
+     */
+    public long lineNumber() {
+        return line;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The fields of the record, or null at the end of the input.
+     * @throws IOException If reading fails or a quoted field is not terminated.
+     */
+    public List<String> readRecord() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (c == '"' && field.isEmpty() && !quoted) {
+                quoted = true;
+                readQuoted(field);
+                c = read();
+                continue;
+            }
+            if (c == ',' || c == '\n' || c == '\r' || c == -1) {
+                fields.add(quoted || !field.isEmpty() ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+                if (c == ',') {
+                    c = read();
+                    continue;
+                }
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                if (c != -1) {
+                    line++;
+                }
+                return fields;
+            }
+            field.append((char) c);
+            c = read();
+        }
+    }
+
+    // Reads up to the closing quote, undoubling escaped quotes
+    private void readQuoted(StringBuilder field) throws IOException {
+        long startLine = line;
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IOException("Line " + startLine + ": unterminated quoted field");
+            }
+            if (c == '"') {
+                if (peek() != '"') {
+                    return;
+                }
+                read();
+            } else if (c == '\n') {
+                line++;
+            }
+            field.append((char) c);
+        }
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+}
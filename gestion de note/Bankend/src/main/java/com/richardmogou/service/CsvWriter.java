@@ -0,0 +1,210 @@
+package com.richardmogou.service;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Minimal RFC 4180 CSV writer (UTF-8, CRLF line endings) for large exports.
+ * <p>
+ * Fields are copied into one reused character buffer, which is handed to the output when full;
+ * integers are written digit by digit and each distinct date is formatted once, so that writing
+ * a row allocates next to nothing. Fields are only quoted when they contain a comma, a quote or
+ * a line break.
+ */
+public class CsvWriter implements Flushable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final char[] digits = new char[20];
+    private int position;
+    private boolean firstField = true;
+
+    private final Map<LocalDate, String> formattedDates = new HashMap<>();
+    private final Function<LocalDate, String> dateFormatter = DateTimeFormatter.ISO_LOCAL_DATE::format;
+
+    /**
+     * @param out The stream receiving the CSV data; it is flushed, never closed.
+     */
+    public CsvWriter(OutputStream out) {
+        this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a text field; null is written as an empty field.
+     */
+    public CsvWriter field(CharSequence value) throws IOException {
+        startField();
+        if (value == null) {
+            return this;
+        }
+        if (needsQuotes(value)) {
+            append('"');
+            appendEscaped(value);
+            append('"');
+        } else {
+            append(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes two values joined by a separator as a single text field, without concatenating them.
+     */
+    public CsvWriter field(CharSequence first, char separator, CharSequence second) throws IOException {
+        startField();
+        boolean quoted = needsQuotes(first) || needsQuotes(second) || isSpecial(separator);
+        if (quoted) {
+            append('"');
+        }
+        appendEscaped(first);
+        if (separator == '"') {
+            append('"');
+        }
+        append(separator);
+        appendEscaped(second);
+        if (quoted) {
+            append('"');
+        }
+        return this;
+    }
+
+    public CsvWriter field(long value) throws IOException {
+        startField();
+        appendLong(value);
+        return this;
+    }
+
+    /**
+     * Writes a number field; whole numbers are written without a fractional part.
+     */
+    public CsvWriter field(double value) throws IOException {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return field((long) value);
+        }
+        startField();
+        append(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a date field as yyyy-MM-dd; null is written as an empty field.
+     */
+    public CsvWriter field(LocalDate value) throws IOException {
+        startField();
+        if (value != null) {
+            append(formattedDates.computeIfAbsent(value, dateFormatter));
+        }
+        return this;
+    }
+
+    public CsvWriter endRow() throws IOException {
+        append('\r');
+        append('\n');
+        firstField = true;
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void startField() throws IOException {
+        if (!firstField) {
+            append(',');
+        }
+        firstField = false;
+    }
+
+    private static boolean needsQuotes(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (isSpecial(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSpecial(char c) {
+        return c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+
+    // Doubles quotes; the caller writes the enclosing quotes if needed
+    private void appendEscaped(CharSequence value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start; i < digits.length; i++) {
+            append(digits[i]);
+        }
+    }
+
+    private void append(CharSequence value) throws IOException {
+        int offset = 0;
+        while (offset < value.length()) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(value.length() - offset, buffer.length - position);
+            if (value instanceof String string) {
+                string.getChars(offset, offset + count, buffer, position);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    buffer[position + i] = value.charAt(offset + i);
+                }
+            }
+            position += count;
+            offset += count;
+        }
+    }
+
+    private void append(char c) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = c;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
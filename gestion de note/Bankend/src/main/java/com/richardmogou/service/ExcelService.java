@@ -1,52 +1,101 @@
 package com.richardmogou.service;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
+/**
+ * Grade exports, as Excel or CSV files. Each export is prepared first, which checks its target and fails fast with an
+ * EntityNotFoundException, then written, which streams the grades from the database to the output. Class and semester
+ * exports also carry a cache key made of their export watermark, so that their files can be reused until it changes.
+ */
 public interface ExcelService {
     
     /**
-     * Generates an Excel file containing grades for a specific student
+     * Prepares an export of the grades of a specific student
      * 
      * @param studentId The ID of the student
-     * @return ByteArrayInputStream containing the Excel file data
-     * @throws IOException If an error occurs during Excel generation
+     * @return The export, ready to be written
+     * @throws jakarta.persistence.EntityNotFoundException If the student does not exist
      */
-    ByteArrayInputStream generateStudentGradesExcel(Long studentId) throws IOException;
+    GradeExport prepareStudentGradesExport(Long studentId);
     
     /**
-     * Generates an Excel file containing grades for a specific class section
+     * Prepares an export of the grades of a specific class section
      * 
      * @param classSectionId The ID of the class section
-     * @return ByteArrayInputStream containing the Excel file data
-     * @throws IOException If an error occurs during Excel generation
+     * @return The export, ready to be written
+     * @throws jakarta.persistence.EntityNotFoundException If the class section does not exist
+     * @throws IllegalStateException If no student is enrolled in the class section
      */
-    ByteArrayInputStream generateClassGradesExcel(Long classSectionId) throws IOException;
+    GradeExport prepareClassGradesExport(Long classSectionId);
     
     /**
-     * Generates an Excel file containing grades for a specific subject
+     * Prepares an export of the grades of a specific subject
      * 
      * @param subjectId The ID of the subject
      * @param semesterId Optional semester ID to filter grades
-     * @return ByteArrayInputStream containing the Excel file data
-     * @throws IOException If an error occurs during Excel generation
+     * @return The export, ready to be written
+     * @throws jakarta.persistence.EntityNotFoundException If the subject or semester does not exist
      */
-    ByteArrayInputStream generateSubjectGradesExcel(Long subjectId, Long semesterId) throws IOException;
+    GradeExport prepareSubjectGradesExport(Long subjectId, Long semesterId);
     
     /**
-     * Generates an Excel file containing grades for a specific semester
+     * Prepares an export of the grades of a specific semester
      * 
      * @param semesterId The ID of the semester
-     * @return ByteArrayInputStream containing the Excel file data
-     * @throws IOException If an error occurs during Excel generation
+     * @return The export, ready to be written
+     * @throws jakarta.persistence.EntityNotFoundException If the semester does not exist
      */
-    ByteArrayInputStream generateSemesterGradesExcel(Long semesterId) throws IOException;
+    GradeExport prepareSemesterGradesExport(Long semesterId);
     
     /**
-     * Generates an Excel file containing all grades in the system
+     * Prepares an export of all grades in the system
+     * 
+     * @return The export, ready to be written
+     */
+    GradeExport prepareAllGradesExport();
+
+    /**
+     * Loads the gradebook of a class section: its roster, its assessments and the grades its
+     * students received in its subject and semester, aggregated once for all the gradebook sheets.
      * 
-     * @return ByteArrayInputStream containing the Excel file data
+     * @param classSectionId The ID of the class section
+     * @return The gradebook, ready to be written
+     * @throws jakarta.persistence.EntityNotFoundException If the class section does not exist
+     * @throws IllegalStateException If no student is enrolled in the class section
+     */
+    ClassGradebook prepareClassGradebook(Long classSectionId);
+
+    /**
+     * Writes a class gradebook as an Excel file with three sheets: the roster with one column per
+     * assessment and each student's average, the statistics of each assessment and of the class,
+     * and the grades themselves. Every value is precomputed, the workbook has no formulas.
+     * The output stream is not closed.
+     *
+     * @param gradebook The gradebook to write
+     * @param out The stream receiving the Excel file data
      * @throws IOException If an error occurs during Excel generation
      */
-    ByteArrayInputStream generateAllGradesExcel() throws IOException;
+    void writeGradebook(ClassGradebook gradebook, OutputStream out) throws IOException;
+
+    /**
+     * Writes an export as an Excel file, reading its rows through a database cursor in a
+     * read-only transaction. The output stream is not closed.
+     *
+     * @param export The export to write
+     * @param out The stream receiving the Excel file data
+     * @throws IOException If an error occurs during Excel generation
+     */
+    void writeExcel(GradeExport export, OutputStream out) throws IOException;
+
+    /**
+     * Writes an export as a UTF-8 CSV file with the same columns as the Excel file, reading its rows
+     * through a database cursor in a read-only transaction. Rows reach the output as they are read.
+     * The output stream is flushed, not closed.
+     *
+     * @param export The export to write
+     * @param out The stream receiving the CSV data
+     * @throws IOException If the output cannot be written
+     */
+    void writeCsv(GradeExport export, OutputStream out) throws IOException;
 }
@@ -4,26 +4,27 @@ package com.richardmogou.service;
 import com.richardmogou.model.*;
 import com.richardmogou.repository.*;
 import jakarta.persistence.EntityNotFoundException;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.time.format.DateTimeFormatter;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 public class ExcelServiceImpl implements ExcelService {
 
     private static final Logger logger = LoggerFactory.getLogger(ExcelServiceImpl.class);
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final String[] HEADER_COLUMNS = {"Student ID", "Student Name", "Subject", "Score", "Date Assigned", "Semester", "Comments"};
+    private static final String[] GRADEBOOK_GRADE_COLUMNS = {"Grade ID", "Student ID", "Student Name", "Assessment", "Score", "Max Points", "Score (%)", "Date Assigned", "Comments"};
 
     @Autowired
     private StudentRepository studentRepository;
@@ -40,205 +41,321 @@ public class ExcelServiceImpl implements ExcelService {
     @Autowired
     private ClassSectionRepository classSectionRepository;
 
+    @Autowired
+    private AssessmentRepository assessmentRepository;
+
+    // Rows of a sheet kept in memory while writing; older rows are flushed to a temporary file
+    @Value("${reports.excel.row-window:100}")
+    private int rowWindow;
+
     /**
-     * Helper method to create workbook with header styles
-     */
-    private Workbook createWorkbook(String sheetName) {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet(sheetName);
-        
-        // Create header row
-        Row headerRow = sheet.createRow(0);
-        
-        // Create header style
-        CellStyle headerStyle = workbook.createCellStyle();
-        Font font = workbook.createFont();
-        font.setBold(true);
-        font.setColor(IndexedColors.BLUE.getIndex());
-        headerStyle.setFont(font);
-        
-        // Create header cells
-        for (int i = 0; i < HEADER_COLUMNS.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(HEADER_COLUMNS[i]);
-            cell.setCellStyle(headerStyle);
-            sheet.autoSizeColumn(i);
-        }
-        
-        return workbook;
-    }
-    
-    /**
-     * Helper method to add grade data to a workbook
-     */
-    private void addGradeDataToWorkbook(Workbook workbook, List<Grade> grades) {
-        Sheet sheet = workbook.getSheetAt(0);
-        CreationHelper createHelper = workbook.getCreationHelper();
-        
-        // Create date cell style
-        CellStyle dateStyle = workbook.createCellStyle();
-        dateStyle.setDataFormat(createHelper.createDataFormat().getFormat("yyyy-mm-dd"));
-        
-        // Add data rows
-        int rowNum = 1;
-        for (Grade grade : grades) {
-            Row row = sheet.createRow(rowNum++);
-            
-            Student student = grade.getStudent();
-            Subject subject = grade.getSubject();
-            Semester semester = grade.getSemester();
-            
-            row.createCell(0).setCellValue(student.getId());
-            row.createCell(1).setCellValue(student.getFirstName() + " " + student.getLastName());
-            row.createCell(2).setCellValue(subject != null ? subject.getName() : "N/A");
-            row.createCell(3).setCellValue(grade.getScore() != null ? grade.getScore() : 0.0);
-            
-            Cell dateCell = row.createCell(4);
-            if (grade.getDateAssigned() != null) {
-                dateCell.setCellValue(DATE_FORMATTER.format(grade.getDateAssigned()));
-            } else {
-                dateCell.setCellValue("N/A");
-            }
-            
-            row.createCell(5).setCellValue(semester != null ? semester.getName() : "N/A");
-            row.createCell(6).setCellValue(grade.getComments() != null ? grade.getComments() : "");
-        }
-        
-        // Auto-size columns for better readability
-        for (int i = 0; i < HEADER_COLUMNS.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
-    }
-    
-    /**
-     * Helper method to write workbook to ByteArrayInputStream
+     * Helper method to add one grade as a row
      */
-    private ByteArrayInputStream workbookToByteArrayInputStream(Workbook workbook) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        workbook.write(out);
-        workbook.close();
-        return new ByteArrayInputStream(out.toByteArray());
+    private void addGradeRow(ExcelWorkbookWriter.SheetWriter sheet, GradeExportRow row) {
+        sheet.startRow()
+                .number(row.studentId())
+                .text(row.studentName())
+                .text(row.subjectName() != null ? row.subjectName() : "N/A")
+                .number(row.score() != null ? row.score() : 0.0)
+                .date(row.dateAssigned())
+                .text(row.semesterName() != null ? row.semesterName() : "N/A")
+                .text(row.comments());
     }
 
     @Override
     @Transactional(readOnly = true)
-    public ByteArrayInputStream generateStudentGradesExcel(Long studentId) throws IOException {
-        logger.info("Generating Excel report for student ID: {}", studentId);
-        
+    public GradeExport prepareStudentGradesExport(Long studentId) {
+        logger.info("Preparing grade export for student ID: {}", studentId);
+
         Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
-        
-        List<Grade> grades = gradeRepository.findByStudent(student);
-        
-        if (grades.isEmpty()) {
-            logger.warn("No grades found for student ID: {}", studentId);
-        }
-        
-        Workbook workbook = createWorkbook("Student Grades - " + student.getUsername());
-        addGradeDataToWorkbook(workbook, grades);
-        
-        return workbookToByteArrayInputStream(workbook);
+
+        return new GradeExport("Student Grades - " + student.getUsername(),
+                () -> gradeRepository.streamExportRowsByStudentId(studentId));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public ByteArrayInputStream generateClassGradesExcel(Long classSectionId) throws IOException {
-        logger.info("Generating Excel report for class section ID: {}", classSectionId);
-        
-        ClassSection classSection = classSectionRepository.findById(classSectionId)
+    public GradeExport prepareClassGradesExport(Long classSectionId) {
+        logger.info("Preparing grade export for class section ID: {}", classSectionId);
+
+        ClassSection classSection = classSectionRepository.findWithStudentsById(classSectionId)
                 .orElseThrow(() -> new EntityNotFoundException("Class section not found with ID: " + classSectionId));
-        
-        // Get all students in this class
-        List<Student> students = classSection.getStudents().stream().toList();
-        
-        if (students.isEmpty()) {
+
+        if (classSection.getStudents().isEmpty()) {
             logger.warn("No students found in class section ID: {}", classSectionId);
             throw new IllegalStateException("No students enrolled in class with ID: " + classSectionId);
         }
-        
-        // Get all grades for these students in this class's subject and semester
-        List<Grade> grades = gradeRepository.findByStudentInAndSubjectAndSemester(
-                students, 
-                classSection.getSubject(), 
-                classSection.getSemester());
-        
-        if (grades.isEmpty()) {
-            logger.warn("No grades found for class section ID: {}", classSectionId);
-        }
-        
-        String sheetName = "Class Grades - " + classSection.getSubject().getName();
-        Workbook workbook = createWorkbook(sheetName);
-        addGradeDataToWorkbook(workbook, grades);
-        
-        return workbookToByteArrayInputStream(workbook);
+
+        // The grades its students received in the class's subject and semester
+        return new GradeExport("Class Grades - " + classSection.getSubject().getName(),
+                () -> gradeRepository.streamExportRowsByClassSectionId(classSectionId),
+                "class-" + classSectionId + "-v" + watermark(classSection.getGradesVersion()));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public ByteArrayInputStream generateSubjectGradesExcel(Long subjectId, Long semesterId) throws IOException {
-        logger.info("Generating Excel report for subject ID: {} and semester ID: {}", subjectId, semesterId);
-        
+    public GradeExport prepareSubjectGradesExport(Long subjectId, Long semesterId) {
+        logger.info("Preparing grade export for subject ID: {} and semester ID: {}", subjectId, semesterId);
+
         Subject subject = subjectRepository.findById(subjectId)
                 .orElseThrow(() -> new EntityNotFoundException("Subject not found with ID: " + subjectId));
-        
-        List<Grade> grades;
-        String sheetName = "Subject Grades - " + subject.getName();
-        
+
+        String title = "Subject Grades - " + subject.getName();
+
         if (semesterId != null) {
             Semester semester = semesterRepository.findById(semesterId)
                     .orElseThrow(() -> new EntityNotFoundException("Semester not found with ID: " + semesterId));
-            
-            grades = gradeRepository.findBySubjectAndSemester(subject, semester);
-            sheetName += " (" + semester.getName() + ")";
-        } else {
-            grades = gradeRepository.findBySubject(subject);
-        }
-        
-        if (grades.isEmpty()) {
-            logger.warn("No grades found for subject ID: {} and semester ID: {}", subjectId, semesterId);
+
+            return new GradeExport(title + " (" + semester.getName() + ")",
+                    () -> gradeRepository.streamExportRowsBySubjectIdAndSemesterId(subjectId, semesterId));
         }
-        
-        Workbook workbook = createWorkbook(sheetName);
-        addGradeDataToWorkbook(workbook, grades);
-        
-        return workbookToByteArrayInputStream(workbook);
+        return new GradeExport(title, () -> gradeRepository.streamExportRowsBySubjectId(subjectId));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public ByteArrayInputStream generateSemesterGradesExcel(Long semesterId) throws IOException {
-        logger.info("Generating Excel report for semester ID: {}", semesterId);
-        
+    public GradeExport prepareSemesterGradesExport(Long semesterId) {
+        logger.info("Preparing grade export for semester ID: {}", semesterId);
+
         Semester semester = semesterRepository.findById(semesterId)
                 .orElseThrow(() -> new EntityNotFoundException("Semester not found with ID: " + semesterId));
-        
-        List<Grade> grades = gradeRepository.findBySemester(semester);
-        
-        if (grades.isEmpty()) {
-            logger.warn("No grades found for semester ID: {}", semesterId);
+
+        return new GradeExport("Semester Grades - " + semester.getName(),
+                () -> gradeRepository.streamExportRowsBySemesterId(semesterId),
+                "semester-" + semesterId + "-v" + watermark(semester.getGradesVersion()));
+    }
+
+    @Override
+    public GradeExport prepareAllGradesExport() {
+        logger.info("Preparing grade export for all grades");
+
+        return new GradeExport("All Grades", () -> gradeRepository.streamAllExportRows());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ClassGradebook prepareClassGradebook(Long classSectionId) {
+        logger.info("Preparing gradebook for class section ID: {}", classSectionId);
+
+        ClassSection classSection = classSectionRepository.findWithStudentsById(classSectionId)
+                .orElseThrow(() -> new EntityNotFoundException("Class section not found with ID: " + classSectionId));
+
+        if (classSection.getStudents().isEmpty()) {
+            logger.warn("No students found in class section ID: {}", classSectionId);
+            throw new IllegalStateException("No students enrolled in class with ID: " + classSectionId);
         }
-        
-        String sheetName = "Semester Grades - " + semester.getName();
-        Workbook workbook = createWorkbook(sheetName);
-        addGradeDataToWorkbook(workbook, grades);
-        
-        return workbookToByteArrayInputStream(workbook);
+
+        ClassGradebook.ClassInfo classInfo = new ClassGradebook.ClassInfo(classSection.getId(), classSection.getName(),
+                classSection.getSubject().getName(), classSection.getSemester().getName());
+        List<StudentReportBatch.StudentInfo> students = classSection.getStudents().stream()
+                .map(StudentReportBatch.StudentInfo::of)
+                .toList();
+        List<ClassGradebook.Column> assessments = assessmentRepository
+                .findBySubjectAndSemester(classSection.getSubject(), classSection.getSemester()).stream()
+                .sorted(Comparator.comparing(Assessment::getId))
+                .map(assessment -> new ClassGradebook.Column(assessment.getId(), assessment.getName(),
+                        assessment.getMaxPoints(), assessment.getWeight() != null ? assessment.getWeight() : 1.0))
+                .toList();
+
+        return new ClassGradebook(classInfo, students, assessments,
+                gradeRepository.findGradebookRowsByClassSectionId(classSectionId));
+    }
+
+    @Override
+    public void writeGradebook(ClassGradebook gradebook, OutputStream out) throws IOException {
+        try (ExcelWorkbookWriter writer = new ExcelWorkbookWriter(rowWindow)) {
+            writeRosterSheet(writer, gradebook);
+            writeStatisticsSheet(writer, gradebook);
+            writeGradebookGradesSheet(writer, gradebook);
+            writer.write(out);
+        }
+    }
+
+    /**
+     * Helper method to write the roster: one row per student, one column per assessment
+     */
+    private void writeRosterSheet(ExcelWorkbookWriter writer, ClassGradebook gradebook) {
+        List<ClassGradebook.Column> columns = gradebook.columns();
+        List<String> headers = new ArrayList<>(List.of("Student ID", "Username", "Last Name", "First Name"));
+        for (ClassGradebook.Column column : columns) {
+            headers.add(column.maxPoints() != null
+                    ? column.name() + " (/" + formatPoints(column.maxPoints()) + ")"
+                    : column.name());
+        }
+        headers.addAll(List.of("Grades", "Average (%)", "Letter"));
+
+        ExcelWorkbookWriter.SheetWriter sheet = writer.createSheet("Roster - " + gradebook.classInfo().name(),
+                headers.toArray(new String[0]));
+        List<StudentReportBatch.StudentInfo> students = gradebook.students();
+        for (int student = 0; student < students.size(); student++) {
+            StudentReportBatch.StudentInfo info = students.get(student);
+            sheet.startRow()
+                    .number(info.id())
+                    .text(info.username())
+                    .text(info.lastName())
+                    .text(info.firstName());
+            for (int column = 0; column < columns.size(); column++) {
+                decimalOrBlank(sheet, gradebook.score(student, column));
+            }
+            sheet.number(gradebook.gradeCount(student));
+            Double average = gradebook.average(student);
+            decimalOrBlank(sheet, average);
+            sheet.text(average != null ? ClassGradebook.letterOf(average) : "");
+        }
+    }
+
+    /**
+     * Helper method to write the statistics of each assessment, then of the whole class
+     */
+    private void writeStatisticsSheet(ExcelWorkbookWriter writer, ClassGradebook gradebook) {
+        List<String> headers = new ArrayList<>(List.of("Assessment", "Max Points", "Weight", "Graded", "Missing",
+                "Average (%)", "Median (%)", "Min (%)", "Max (%)", "Std Dev", "Passing Rate (%)"));
+        headers.addAll(List.of(ClassGradebook.letters()));
+
+        ExcelWorkbookWriter.SheetWriter sheet = writer.createSheet("Statistics", headers.toArray(new String[0]));
+        int studentCount = gradebook.students().size();
+        List<ClassGradebook.Column> columns = gradebook.columns();
+        for (int column = 0; column < columns.size(); column++) {
+            ClassGradebook.Column definition = columns.get(column);
+            sheet.startRow().text(definition.name());
+            if (definition.assessmentId() != null) {
+                sheet.number(definition.maxPoints()).number(definition.weight());
+            } else {
+                sheet.blank().blank();
+            }
+            ClassGradebook.ScoreStatistics statistics = gradebook.columnStatistics(column);
+            int graded = gradebook.gradedStudentCount(column);
+            sheet.number(graded);
+            if (definition.assessmentId() != null) {
+                sheet.number(studentCount - graded);
+            } else {
+                sheet.blank(); // Grades without assessment are not expected from every student
+            }
+            addStatistics(sheet, statistics);
+        }
+
+        ClassGradebook.ClassInfo classInfo = gradebook.classInfo();
+        sheet.startRow()
+                .text("All grades - " + classInfo.subjectName() + " (" + classInfo.semesterName() + ")")
+                .blank()
+                .blank()
+                .number(studentCount - gradebook.ungradedStudentCount())
+                .number(gradebook.ungradedStudentCount());
+        addStatistics(sheet, gradebook.overallStatistics());
+    }
+
+    /**
+     * Helper method to write the grades of a gradebook, one per row
+     */
+    private void writeGradebookGradesSheet(ExcelWorkbookWriter writer, ClassGradebook gradebook) {
+        ExcelWorkbookWriter.SheetWriter sheet = writer.createSheet("Grades", GRADEBOOK_GRADE_COLUMNS);
+        for (GradebookGradeRow grade : gradebook.grades()) {
+            StudentReportBatch.StudentInfo student = gradebook.studentOf(grade);
+            sheet.startRow()
+                    .number(grade.gradeId())
+                    .number(grade.studentId())
+                    .text(student != null ? student.firstName() + " " + student.lastName() : "N/A")
+                    .text(grade.assessmentName() != null ? grade.assessmentName() : "N/A");
+            if (grade.score() != null) {
+                sheet.number(grade.score());
+                if (grade.maxPoints() != null) {
+                    sheet.number(grade.maxPoints());
+                } else {
+                    sheet.blank();
+                }
+                sheet.decimal(grade.maxPoints() != null && grade.maxPoints() > 0
+                        ? grade.score() * 100.0 / grade.maxPoints()
+                        : grade.score());
+            } else {
+                sheet.blank().blank().blank();
+            }
+            sheet.date(grade.dateAssigned())
+                    .text(grade.comments());
+        }
+    }
+
+    private void addStatistics(ExcelWorkbookWriter.SheetWriter sheet, ClassGradebook.ScoreStatistics statistics) {
+        decimalOrBlank(sheet, statistics.average());
+        decimalOrBlank(sheet, statistics.median());
+        decimalOrBlank(sheet, statistics.min());
+        decimalOrBlank(sheet, statistics.max());
+        decimalOrBlank(sheet, statistics.standardDeviation());
+        decimalOrBlank(sheet, statistics.passingRate());
+        for (int letterCount : statistics.letterCounts()) {
+            sheet.number(letterCount);
+        }
+    }
+
+    private void decimalOrBlank(ExcelWorkbookWriter.SheetWriter sheet, Double value) {
+        if (value != null) {
+            sheet.decimal(value);
+        } else {
+            sheet.blank();
+        }
+    }
+
+    // The watermark is read with the export's target, before any grade: a cached copy is never older than it
+    private static long watermark(Long gradesVersion) {
+        return gradesVersion != null ? gradesVersion : 0;
+    }
+
+    // Max points as written in column headers: "20", or "12.5"
+    private static String formatPoints(double points) {
+        return points == Math.rint(points) ? String.valueOf((long) points) : String.valueOf(points);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public ByteArrayInputStream generateAllGradesExcel() throws IOException {
-        logger.info("Generating Excel report for all grades");
-        
-        List<Grade> grades = gradeRepository.findAll();
-        
-        if (grades.isEmpty()) {
-            logger.warn("No grades found in the system");
+    public void writeExcel(GradeExport export, OutputStream out) throws IOException {
+        try (ExcelWorkbookWriter writer = new ExcelWorkbookWriter(rowWindow)) {
+            ExcelWorkbookWriter.SheetWriter sheet = writer.createSheet(export.title(), HEADER_COLUMNS);
+            writeRows(export, row -> addGradeRow(sheet, row));
+            writer.write(out);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeCsv(GradeExport export, OutputStream out) throws IOException {
+        CsvWriter csv = new CsvWriter(out);
+        for (String header : HEADER_COLUMNS) {
+            csv.field(header);
+        }
+        csv.endRow();
+
+        writeRows(export, row -> csv
+                .field(row.studentId())
+                .field(row.studentFirstName(), ' ', row.studentLastName())
+                .field(row.subjectName() != null ? row.subjectName() : "N/A")
+                .field(row.score() != null ? row.score() : 0.0)
+                .field(row.dateAssigned())
+                .field(row.semesterName() != null ? row.semesterName() : "N/A")
+                .field(row.comments())
+                .endRow());
+        csv.flush();
+    }
+
+    // Writes a row of an export
+    private interface RowWriter {
+        void write(GradeExportRow row) throws IOException;
+    }
+
+    /**
+     * Helper method to read the rows of an export through its cursor
+     */
+    private void writeRows(GradeExport export, RowWriter writer) throws IOException {
+        long count = 0;
+        try (Stream<GradeExportRow> rows = export.rows().get()) {
+            Iterator<GradeExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            logger.warn("No grades found for export '{}'", export.title());
         }
-        
-        Workbook workbook = createWorkbook("All Grades");
-        addGradeDataToWorkbook(workbook, grades);
-        
-        return workbookToByteArrayInputStream(workbook);
     }
 }
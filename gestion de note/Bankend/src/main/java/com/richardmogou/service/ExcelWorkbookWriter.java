@@ -0,0 +1,188 @@
+package com.richardmogou.service;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming XLSX writer, whose memory use does not depend on the number of rows.
+ * <p>
+ * Rows go through an {@link SXSSFWorkbook}: only the last {@code rowWindow} rows of each sheet
+ * stay in memory, older rows are flushed to a compressed temporary file. Cell styles are created
+ * once per workbook and shared by all cells. Instead of {@code autoSizeColumn}, which measures
+ * every row of a sheet, column widths come from the longest value written to each column.
+ */
+public class ExcelWorkbookWriter implements Closeable {
+
+    private static final int MAX_COLUMN_CHARS = 80;
+    private static final int DATE_COLUMN_CHARS = 10;
+
+    private final SXSSFWorkbook workbook;
+    private final CellStyle headerStyle;
+    private final CellStyle dateStyle;
+    private final CellStyle decimalStyle;
+    private final List<SheetWriter> sheets = new ArrayList<>();
+
+    /**
+     * @param rowWindow The number of rows of each sheet kept in memory.
+     */
+    public ExcelWorkbookWriter(int rowWindow) {
+        workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+
+        headerStyle = workbook.createCellStyle();
+        Font font = workbook.createFont();
+        font.setBold(true);
+        font.setColor(IndexedColors.BLUE.getIndex());
+        headerStyle.setFont(font);
+
+        dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+        decimalStyle = workbook.createCellStyle();
+        decimalStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("0.00"));
+    }
+
+    /**
+     * Adds a sheet and writes its header row.
+     *
+     * @param name The name of the sheet; made safe and truncated to Excel's limits.
+     * @param headers The column headers.
+     * @return The writer of the sheet's rows.
+     */
+    public SheetWriter createSheet(String name, String... headers) {
+        SheetWriter sheet = new SheetWriter(workbook.createSheet(WorkbookUtil.createSafeSheetName(name)), headers.length);
+        sheet.startRow();
+        for (String header : headers) {
+            sheet.text(header).getCell().setCellStyle(headerStyle);
+        }
+        sheets.add(sheet);
+        return sheet;
+    }
+
+    /**
+     * Writes the workbook. The output stream is not closed.
+     *
+     * @param out The stream receiving the XLSX data.
+     * @throws IOException If writing fails.
+     */
+    public void write(OutputStream out) throws IOException {
+        for (SheetWriter sheet : sheets) {
+            sheet.applyColumnWidths();
+        }
+        workbook.write(out);
+    }
+
+    /**
+     * Deletes the temporary files of the workbook.
+     */
+    @Override
+    public void close() throws IOException {
+        workbook.dispose();
+        workbook.close();
+    }
+
+    /**
+     * Appends rows to one sheet, cell by cell from left to right.
+     */
+    public final class SheetWriter {
+
+        private final SXSSFSheet sheet;
+        private final int[] maxChars;
+        private Row row;
+        private Cell cell;
+        private int rowCount;
+        private int column;
+
+        private SheetWriter(SXSSFSheet sheet, int columns) {
+            this.sheet = sheet;
+            this.maxChars = new int[columns];
+        }
+
+        /**
+         * Starts a new row; the following calls fill its cells.
+         */
+        public SheetWriter startRow() {
+            row = sheet.createRow(rowCount++);
+            column = 0;
+            return this;
+        }
+
+        public SheetWriter text(String value) {
+            String text = value != null ? value : "";
+            nextCell(text.length()).setCellValue(text);
+            return this;
+        }
+
+        public SheetWriter number(double value) {
+            nextCell(numberLength(value)).setCellValue(value);
+            return this;
+        }
+
+        /**
+         * Writes a number shown with two decimals, such as an average.
+         */
+        public SheetWriter decimal(double value) {
+            Cell decimalCell = nextCell(numberLength(Math.floor(Math.abs(value))) + 3);
+            decimalCell.setCellValue(value);
+            decimalCell.setCellStyle(decimalStyle);
+            return this;
+        }
+
+        public SheetWriter date(LocalDate value) {
+            if (value == null) {
+                return text("N/A");
+            }
+            Cell dateCell = nextCell(DATE_COLUMN_CHARS);
+            dateCell.setCellValue(value);
+            dateCell.setCellStyle(dateStyle);
+            return this;
+        }
+
+        public SheetWriter blank() {
+            nextCell(0);
+            return this;
+        }
+
+        private Cell getCell() {
+            return cell;
+        }
+
+        private Cell nextCell(int length) {
+            if (column < maxChars.length && length > maxChars[column]) {
+                maxChars[column] = length;
+            }
+            cell = row.createCell(column++);
+            return cell;
+        }
+
+        private void applyColumnWidths() {
+            for (int i = 0; i < maxChars.length; i++) {
+                int chars = Math.min(maxChars[i], MAX_COLUMN_CHARS) + 2; // Padding, as autoSizeColumn would leave
+                sheet.setColumnWidth(i, chars * 256);
+            }
+        }
+
+        // Length of the number as Excel displays it by default, without building a String for integers
+        private static int numberLength(double value) {
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                long integer = (long) Math.abs(value);
+                int digits = 1;
+                while (integer >= 10) {
+                    integer /= 10;
+                    digits++;
+                }
+                return value < 0 ? digits + 1 : digits;
+            }
+            return Math.min(String.valueOf(value).length(), 11); // General format shows up to 11 characters
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.richardmogou.service;
+
+/**
+ * Maintains the export watermarks of class sections and semesters: a version that is incremented,
+ * in the same transaction, by every change that alters their grade exports. A cached export keyed
+ * by the version it was generated at is therefore valid for as long as that version is current.
+ * <p>
+ * Changes to names shown in exports (students, subjects) are rare and may touch any export, so
+ * they advance every watermark.
+ */
+public interface ExportWatermarkService {
+
+    /**
+     * Advances the watermarks of the exports a grade appears in: its semester, and the classes of
+     * its subject and semester the student is enrolled in.
+     *
+     * @param studentId The ID of the grade's student.
+     * @param subjectId The ID of the grade's subject.
+     * @param semesterId The ID of the grade's semester, or null if it has none.
+     */
+    void gradeChanged(Long studentId, Long subjectId, Long semesterId);
+
+    /**
+     * Advances the watermark of a class whose roster, subject or semester changed.
+     *
+     * @param classSectionId The ID of the class section.
+     */
+    void classChanged(Long classSectionId);
+
+    /**
+     * Advances every watermark.
+     */
+    void allChanged();
+}
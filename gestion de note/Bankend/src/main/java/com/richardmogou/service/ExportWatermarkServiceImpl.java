@@ -0,0 +1,40 @@
+package com.richardmogou.service;
+
+import com.richardmogou.repository.ClassSectionRepository;
+import com.richardmogou.repository.SemesterRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class ExportWatermarkServiceImpl implements ExportWatermarkService {
+
+    @Autowired
+    private SemesterRepository semesterRepository;
+
+    @Autowired
+    private ClassSectionRepository classSectionRepository;
+
+    @Override
+    @Transactional
+    public void gradeChanged(Long studentId, Long subjectId, Long semesterId) {
+        if (semesterId == null) {
+            return; // Only the student, subject and all-grades exports show it, and they are not cached
+        }
+        semesterRepository.incrementGradesVersion(semesterId);
+        classSectionRepository.incrementGradesVersionsForStudent(studentId, subjectId, semesterId);
+    }
+
+    @Override
+    @Transactional
+    public void classChanged(Long classSectionId) {
+        classSectionRepository.incrementGradesVersion(classSectionId);
+    }
+
+    @Override
+    @Transactional
+    public void allChanged() {
+        semesterRepository.incrementAllGradesVersions();
+        classSectionRepository.incrementAllGradesVersions();
+    }
+}
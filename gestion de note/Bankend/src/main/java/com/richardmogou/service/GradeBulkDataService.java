@@ -0,0 +1,57 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.GradeImportResultDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Bulk transfers of the whole grades table as CSV, for warehouse exports and term-start loads,
+ * and as Arrow for analytics.
+ * <p>
+ * On PostgreSQL the rows move through the COPY protocol and are merged with set-based SQL, without
+ * going through JPA entities. Other databases get the same formats and results through a JDBC
+ * cursor and batched inserts.
+ */
+public interface GradeBulkDataService {
+
+    /**
+     * Writes every grade as CSV with a header line, ordered by grade ID. The columns are
+     * grade_id, student_id, username, first_name, last_name, subject_id, subject, semester_id,
+     * semester, assessment_id, score, date_assigned and comments. The output stream is not closed.
+     *
+     * @param out The stream receiving the CSV data.
+     * @throws IOException If the output cannot be written.
+     */
+    void exportGrades(OutputStream out) throws IOException;
+
+    /**
+     * Writes every grade as an Apache Arrow IPC stream, ordered by grade ID, for analytics tools.
+     * The columns are grade_id, student_id and assessment_id (int64), subject and semester
+     * (dictionary-encoded strings), score (float64) and date_assigned (date32). Rows are read
+     * through a cursor and written in record batches; the dictionaries and the rows come from the
+     * same snapshot. The output stream is not closed.
+     *
+     * @param out The stream receiving the Arrow data.
+     * @throws IOException If the output cannot be written.
+     */
+    void exportGradesArrow(OutputStream out) throws IOException;
+
+    /**
+     * Imports grades from CSV with a header line and the columns grade_id, username, subject,
+     * semester, score, date_assigned and comments. Rows with a grade_id update the score, comments
+     * and date of that grade, which must belong to the given student, subject and semester; rows
+     * without one are inserted. An empty semester means none, an empty date means today.
+     * <p>
+     * Rows that cannot be resolved (unknown student, subject, semester or grade, score out of
+     * range or above the points of the grade's assessment) are rejected and reported; the others
+     * are applied in one transaction. A malformed file rejects the whole import.
+     *
+     * @param csv The CSV data, in UTF-8.
+     * @return The counts of the import and the first rejected rows.
+     * @throws IllegalArgumentException If the file is malformed.
+     * @throws IOException If the file cannot be read.
+     */
+    GradeImportResultDto importGrades(InputStream csv) throws IOException;
+}
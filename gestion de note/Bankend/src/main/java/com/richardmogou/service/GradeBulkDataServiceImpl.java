@@ -0,0 +1,384 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.GradeImportResultDto;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class GradeBulkDataServiceImpl implements GradeBulkDataService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GradeBulkDataServiceImpl.class);
+
+    // Rows per round trip of the export cursor, and rows per insert batch without COPY
+    private static final int FETCH_SIZE = 1_000;
+    private static final int INSERT_BATCH_SIZE = 1_000;
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    // Rows per Arrow record batch: about 1.5 MB of column buffers, reused from batch to batch
+    private static final int ARROW_BATCH_ROWS = 32_768;
+    private static final long SUBJECT_DICTIONARY_ID = 0;
+    private static final long SEMESTER_DICTIONARY_ID = 1;
+    private static final List<ArrowIpcWriter.Column> ARROW_COLUMNS = List.of(
+            ArrowIpcWriter.Column.of("grade_id", ArrowIpcWriter.Type.INT64, false),
+            ArrowIpcWriter.Column.of("student_id", ArrowIpcWriter.Type.INT64, false),
+            ArrowIpcWriter.Column.dictionary("subject", SUBJECT_DICTIONARY_ID, false),
+            ArrowIpcWriter.Column.dictionary("semester", SEMESTER_DICTIONARY_ID, true),
+            ArrowIpcWriter.Column.of("assessment_id", ArrowIpcWriter.Type.INT64, true),
+            ArrowIpcWriter.Column.of("score", ArrowIpcWriter.Type.FLOAT64, false),
+            ArrowIpcWriter.Column.of("date_assigned", ArrowIpcWriter.Type.DATE32, false));
+
+    // Names are not joined: they go once into the dictionaries, rows only carry the IDs
+    private static final String ARROW_EXPORT_QUERY =
+            "SELECT g.id, g.student_id, g.subject_id, g.semester_id, g.assessment_id, g.score, g.date_assigned " +
+            "FROM grades g ORDER BY g.id";
+
+    // Beyond this many students, recomputing every rollup is cheaper than one student at a time
+    private static final int MAX_STUDENT_ROLLUP_REBUILDS = 200;
+
+    private static final String EXPORT_QUERY =
+            "SELECT g.id AS grade_id, u.id AS student_id, u.username, u.first_name, u.last_name, " +
+            "sub.id AS subject_id, sub.name AS subject, sem.id AS semester_id, sem.name AS semester, " +
+            "g.assessment_id, g.score, g.date_assigned, g.comments " +
+            "FROM grades g JOIN users u ON u.id = g.student_id JOIN subjects sub ON sub.id = g.subject_id " +
+            "LEFT JOIN semesters sem ON sem.id = g.semester_id ORDER BY g.id";
+
+    // Staging table of an import, private to the transaction's connection. The loaded columns
+    // mirror the file; the others are filled while resolving the rows.
+    private static final String CREATE_STAGING_TABLE =
+            "CREATE LOCAL TEMPORARY TABLE grade_import (" +
+            "line_no BIGINT GENERATED BY DEFAULT AS IDENTITY, " +
+            "grade_id BIGINT, username VARCHAR(50), subject VARCHAR(100), semester VARCHAR(50), " +
+            "score DOUBLE PRECISION, date_assigned DATE, comments TEXT, " +
+            "student_id BIGINT, subject_id BIGINT, semester_id BIGINT, error TEXT) ON COMMIT DROP";
+    private static final String STAGING_COLUMNS = "grade_id, username, subject, semester, score, date_assigned, comments";
+    private static final int STAGING_COLUMN_COUNT = 7;
+
+    private static final String RESOLVE_STAGED_ROWS =
+            "UPDATE grade_import SET " +
+            "student_id = (SELECT s.id FROM students s JOIN users u ON u.id = s.id WHERE u.username = grade_import.username), " +
+            "subject_id = (SELECT sub.id FROM subjects sub WHERE sub.name = grade_import.subject), " +
+            "semester_id = (SELECT sem.id FROM semesters sem WHERE sem.name = grade_import.semester)";
+
+    private static final String FLAG_REJECTED_ROWS =
+            "UPDATE grade_import SET error = CASE " +
+            "WHEN student_id IS NULL THEN 'unknown student ''' || COALESCE(username, '') || '''' " +
+            "WHEN subject_id IS NULL THEN 'unknown subject ''' || COALESCE(subject, '') || '''' " +
+            "WHEN semester IS NOT NULL AND semester_id IS NULL THEN 'unknown semester ''' || semester || '''' " +
+            "WHEN score IS NULL OR score < 0 OR score > 100 THEN 'score must be between 0 and 100' " +
+            "WHEN grade_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM grades g WHERE g.id = grade_import.grade_id " +
+            "AND g.student_id = grade_import.student_id AND g.subject_id = grade_import.subject_id) " +
+            "THEN 'no grade ' || grade_id || ' for this student and subject' " +
+            // Updates cannot move a grade to another semester (an empty semester matches a grade without one)
+            "WHEN grade_id IS NOT NULL AND EXISTS (SELECT 1 FROM grades g WHERE g.id = grade_import.grade_id " +
+            "AND g.semester_id IS DISTINCT FROM grade_import.semester_id) " +
+            "THEN 'grade ' || grade_id || ' is not in semester ''' || COALESCE(semester, '') || '''' " +
+            // Scores of assessment grades are expressed in the assessment's own points scale
+            "WHEN grade_id IS NOT NULL AND EXISTS (SELECT 1 FROM grades g JOIN assessments a ON a.id = g.assessment_id " +
+            "WHERE g.id = grade_import.grade_id AND grade_import.score > a.max_points) " +
+            "THEN (SELECT 'score exceeds the maximum of ' || a.max_points || ' points for assessment ''' || a.name || '''' " +
+            "FROM grades g JOIN assessments a ON a.id = g.assessment_id WHERE g.id = grade_import.grade_id) " +
+            "WHEN grade_id IS NOT NULL AND EXISTS (SELECT 1 FROM grade_import other WHERE other.grade_id = grade_import.grade_id " +
+            "AND other.line_no <> grade_import.line_no) THEN 'grade ' || grade_id || ' is listed more than once' " +
+            "END";
+
+    private static final String UPDATE_GRADES =
+            "UPDATE grades SET " +
+            "score = (SELECT i.score FROM grade_import i WHERE i.grade_id = grades.id AND i.error IS NULL), " +
+            "comments = (SELECT i.comments FROM grade_import i WHERE i.grade_id = grades.id AND i.error IS NULL), " +
+            "date_assigned = COALESCE((SELECT i.date_assigned FROM grade_import i WHERE i.grade_id = grades.id AND i.error IS NULL), " +
+            "grades.date_assigned) " +
+            "WHERE grades.id IN (SELECT i.grade_id FROM grade_import i WHERE i.grade_id IS NOT NULL AND i.error IS NULL)";
+
+    private static final String INSERT_GRADES =
+            "INSERT INTO grades (score, comments, date_assigned, student_id, subject_id, semester_id) " +
+            "SELECT i.score, i.comments, COALESCE(i.date_assigned, CURRENT_DATE), i.student_id, i.subject_id, i.semester_id " +
+            "FROM grade_import i WHERE i.grade_id IS NULL AND i.error IS NULL ORDER BY i.line_no";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GradeRollupService gradeRollupService;
+
+    @Autowired
+    private ExportWatermarkService exportWatermarkService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Work done with the COPY API of the transaction's connection
+    private interface CopyWork<T> {
+        T run(CopyManager copyManager) throws SQLException, IOException;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportGrades(OutputStream out) throws IOException {
+        Long copied = withCopyManager(copyManager ->
+                copyManager.copyOut("COPY (" + EXPORT_QUERY + ") TO STDOUT WITH (FORMAT csv, HEADER)", out));
+        if (copied != null) {
+            logger.info("Exported {} grades with COPY", copied);
+            return;
+        }
+
+        CsvWriter csv = new CsvWriter(out);
+        Long exported = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, (ResultSetExtractor<Long>) resultSet -> {
+            try {
+                return writeCsv(resultSet, csv);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        csv.flush();
+        logger.info("Exported {} grades through a JDBC cursor", exported);
+    }
+
+    @Override
+    // The dictionaries and the grade cursor must read the same snapshot: under READ COMMITTED a
+    // subject or semester created in between would have no dictionary index for its grades
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void exportGradesArrow(OutputStream out) throws IOException {
+        List<String> subjects = new ArrayList<>();
+        Map<Long, Integer> subjectIndexes = loadDictionary("SELECT id, name FROM subjects ORDER BY id", subjects);
+        List<String> semesters = new ArrayList<>();
+        Map<Long, Integer> semesterIndexes = loadDictionary("SELECT id, name FROM semesters ORDER BY id", semesters);
+
+        ArrowIpcWriter arrow = new ArrowIpcWriter(out, ARROW_COLUMNS, ARROW_BATCH_ROWS);
+        arrow.start(Map.of(SUBJECT_DICTIONARY_ID, subjects, SEMESTER_DICTIONARY_ID, semesters));
+        try {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(ARROW_EXPORT_QUERY);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) resultSet -> {
+                try {
+                    arrow.setLong(0, resultSet.getLong(1));
+                    arrow.setLong(1, resultSet.getLong(2));
+                    arrow.setIndex(2, subjectIndexes.get(resultSet.getLong(3)));
+                    long semesterId = resultSet.getLong(4);
+                    if (resultSet.wasNull()) {
+                        arrow.setNull(3);
+                    } else {
+                        arrow.setIndex(3, semesterIndexes.get(semesterId));
+                    }
+                    long assessmentId = resultSet.getLong(5);
+                    if (resultSet.wasNull()) {
+                        arrow.setNull(4);
+                    } else {
+                        arrow.setLong(4, assessmentId);
+                    }
+                    arrow.setDouble(5, resultSet.getDouble(6));
+                    arrow.setDate(6, resultSet.getDate(7).toLocalDate());
+                    arrow.endRow();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        long exported = arrow.finish();
+        logger.info("Exported {} grades as Arrow ({} subjects, {} semesters)", exported, subjects.size(), semesters.size());
+    }
+
+    @Override
+    @Transactional
+    public GradeImportResultDto importGrades(InputStream csv) throws IOException {
+        jdbcTemplate.execute(CREATE_STAGING_TABLE);
+
+        Long copied;
+        try {
+            copied = withCopyManager(copyManager -> copyManager.copyIn(
+                    "COPY grade_import (" + STAGING_COLUMNS + ") FROM STDIN WITH (FORMAT csv, HEADER)", csv));
+        } catch (DataAccessException e) {
+            throw new IllegalArgumentException("Malformed grade file: " + e.getMostSpecificCause().getMessage());
+        }
+        boolean copyProtocol = copied != null;
+        if (copyProtocol) {
+            jdbcTemplate.execute("ANALYZE grade_import"); // Temporary tables are never analyzed automatically
+        } else {
+            loadWithBatchedInserts(csv);
+        }
+        jdbcTemplate.execute("CREATE INDEX grade_import_grade_id ON grade_import (grade_id)");
+
+        // Set-based merge: resolve names to IDs, flag the rows that cannot be applied, then apply the others
+        jdbcTemplate.update(RESOLVE_STAGED_ROWS);
+        jdbcTemplate.update(FLAG_REJECTED_ROWS);
+        int updated = jdbcTemplate.update(UPDATE_GRADES);
+        int inserted = jdbcTemplate.update(INSERT_GRADES);
+
+        long rowsRead = count("SELECT COUNT(*) FROM grade_import");
+        long rejected = count("SELECT COUNT(*) FROM grade_import WHERE error IS NOT NULL");
+        List<String> errors = jdbcTemplate.query(
+                "SELECT line_no, error FROM grade_import WHERE error IS NOT NULL ORDER BY line_no LIMIT " + MAX_REPORTED_ERRORS,
+                (resultSet, rowNum) -> "Row " + resultSet.getLong("line_no") + ": " + resultSet.getString("error"));
+
+        List<Long> studentIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT student_id FROM grade_import WHERE error IS NULL", Long.class);
+        refreshRollups(studentIds);
+        if (!studentIds.isEmpty()) {
+            exportWatermarkService.allChanged(); // Cheaper than resolving every class and semester touched
+        }
+
+        logger.info("Imported grades ({}): {} rows read, {} inserted, {} updated, {} rejected",
+                copyProtocol ? "COPY" : "batched inserts", rowsRead, inserted, updated, rejected);
+        return new GradeImportResultDto(rowsRead, inserted, updated, rejected, copyProtocol, errors);
+    }
+
+    /**
+     * Runs work with the COPY API of the current transaction's connection.
+     *
+     * @return The result of the work, or null if the database is not PostgreSQL.
+     */
+    private <T> T withCopyManager(CopyWork<T> work) throws IOException {
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    return null;
+                }
+                try {
+                    return work.run(connection.unwrap(PGConnection.class).getCopyAPI());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Writes the header and rows of a result set, formatting values like COPY's CSV output
+    private long writeCsv(ResultSet resultSet, CsvWriter csv) throws SQLException, IOException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columns = metaData.getColumnCount();
+        for (int i = 1; i <= columns; i++) {
+            csv.field(metaData.getColumnLabel(i).toLowerCase());
+        }
+        csv.endRow();
+
+        long rows = 0;
+        while (resultSet.next()) {
+            for (int i = 1; i <= columns; i++) {
+                Object value = resultSet.getObject(i);
+                if (value == null) {
+                    csv.field((CharSequence) null);
+                } else if (value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+                    csv.field(((Number) value).doubleValue());
+                } else if (value instanceof Number number) {
+                    csv.field(number.longValue());
+                } else if (value instanceof Date date) {
+                    csv.field(date.toLocalDate());
+                } else if (value instanceof LocalDate date) {
+                    csv.field(date);
+                } else {
+                    csv.field(value.toString());
+                }
+            }
+            csv.endRow();
+            rows++;
+        }
+        return rows;
+    }
+
+    // Loads the staging table without COPY; skips the header line like COPY ... HEADER does
+    private void loadWithBatchedInserts(InputStream csv) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)));
+        if (reader.readRecord() == null) {
+            return;
+        }
+
+        String insert = "INSERT INTO grade_import (" + STAGING_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+        int[] types = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.DATE, Types.VARCHAR};
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        while (true) {
+            long line = reader.lineNumber();
+            List<String> record = reader.readRecord();
+            if (record == null) {
+                break;
+            }
+            if (record.size() == 1 && record.get(0) == null) {
+                continue; // Blank line
+            }
+            if (record.size() != STAGING_COLUMN_COUNT) {
+                throw new IllegalArgumentException("Malformed grade file: line " + line + " has " + record.size()
+                        + " columns, expected " + STAGING_COLUMN_COUNT + " (" + STAGING_COLUMNS + ")");
+            }
+
+            try {
+                batch.add(new Object[]{
+                        record.get(0) != null ? Long.valueOf(record.get(0).trim()) : null,
+                        record.get(1), record.get(2), record.get(3),
+                        record.get(4) != null ? Double.valueOf(record.get(4).trim()) : null,
+                        record.get(5) != null ? LocalDate.parse(record.get(5).trim()) : null,
+                        record.get(6)});
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed grade file: invalid value on line " + line + ": " + e.getMessage());
+            }
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(insert, batch, types);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(insert, batch, types);
+        }
+    }
+
+    // The rollups are rebuilt from the merged grades table, in the same transaction
+    private void refreshRollups(List<Long> studentIds) {
+        if (studentIds.isEmpty()) {
+            return;
+        }
+        if (studentIds.size() > MAX_STUDENT_ROLLUP_REBUILDS) {
+            gradeRollupService.rebuildAll();
+            eventPublisher.publishEvent(ReportDataChangedEvent.forAllStudents());
+        } else {
+            studentIds.forEach(gradeRollupService::rebuildForStudent);
+            eventPublisher.publishEvent(new ReportDataChangedEvent(Set.copyOf(studentIds)));
+        }
+    }
+
+    // Reads (id, name) rows into a dictionary's values; returns the index of each ID in it
+    private Map<Long, Integer> loadDictionary(String sql, List<String> values) {
+        Map<Long, Integer> indexes = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) resultSet -> {
+            indexes.put(resultSet.getLong(1), values.size());
+            values.add(resultSet.getString(2));
+        });
+        return indexes;
+    }
+
+    private long count(String sql) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count != null ? count : 0;
+    }
+}
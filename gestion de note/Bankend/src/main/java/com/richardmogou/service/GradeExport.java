@@ -0,0 +1,24 @@
+package com.richardmogou.service;
+
+import com.richardmogou.repository.GradeExportRow;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A grade export whose target has been checked, ready to be written.
+ * <p>
+ * No grade is read until the export is written: the rows are then read through a database
+ * cursor and written out one by one, so that memory use does not depend on the number of grades.
+ *
+ * @param title The title of the export, used as the sheet name.
+ * @param rows Opens the stream of rows; it must be called, and the stream closed, within a transaction.
+ * @param cacheKey Identifies the content of the export, for exports whose scope has an export
+ *                 watermark (see {@link ExportWatermarkService}); null if the export cannot be cached.
+ */
+public record GradeExport(String title, Supplier<Stream<GradeExportRow>> rows, String cacheKey) {
+
+    public GradeExport(String title, Supplier<Stream<GradeExportRow>> rows) {
+        this(title, rows, null);
+    }
+}
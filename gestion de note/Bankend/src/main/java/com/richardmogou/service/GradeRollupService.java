@@ -0,0 +1,54 @@
+package com.richardmogou.service;
+
+import com.richardmogou.model.Grade;
+
+/**
+ * Maintains the precomputed per-student subject averages ({@link com.richardmogou.model.SubjectAverage}).
+ * Every grade write must go through this service so the rollups stay in sync with the grades table.
+ * Callers notify it after the grade change has been flushed, so a missing rollup can be rebuilt
+ * from the grades table as it now stands.
+ */
+public interface GradeRollupService {
+
+    /**
+     * Adds a newly saved grade to its student's subject rollup.
+     *
+     * @param grade The grade that was created.
+     */
+    void gradeAdded(Grade grade);
+
+    /**
+     * Applies a score change of an existing grade to its student's subject rollup.
+     *
+     * @param grade The grade, already carrying its new score.
+     * @param previousScore The score the grade had before the update.
+     */
+    void gradeUpdated(Grade grade, Double previousScore);
+
+    /**
+     * Removes a deleted grade from its student's subject rollup.
+     *
+     * @param grade The grade that was deleted.
+     */
+    void gradeRemoved(Grade grade);
+
+    /**
+     * Recomputes all subject rollups of a single student from the grades table.
+     *
+     * @param studentId The ID of the student.
+     */
+    void rebuildForStudent(Long studentId);
+
+    /**
+     * Recomputes the rollups of every student graded on an assessment,
+     * e.g. after its weight or max points changed.
+     *
+     * @param assessmentId The ID of the assessment.
+     */
+    void rebuildForAssessment(Long assessmentId);
+
+    /**
+     * Recomputes every rollup from the grades table.
+     */
+    void rebuildAll();
+}
@@ -0,0 +1,150 @@
+package com.richardmogou.service;
+
+import com.richardmogou.model.Assessment;
+import com.richardmogou.model.Grade;
+import com.richardmogou.model.SubjectAverage;
+import com.richardmogou.repository.GradeRepository;
+import com.richardmogou.repository.StudentRepository;
+import com.richardmogou.repository.SubjectAverageRepository;
+import com.richardmogou.repository.SubjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+public class GradeRollupServiceImpl implements GradeRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GradeRollupServiceImpl.class);
+
+    @Autowired
+    private SubjectAverageRepository subjectAverageRepository;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    // --- Helper Methods ---
+
+    /**
+     * Weight of a grade inside its subject average (the assessment weight, or 1 without an assessment).
+     */
+    private double weightOf(Grade grade) {
+        Assessment assessment = grade.getAssessment();
+        return (assessment != null && assessment.getWeight() != null) ? assessment.getWeight() : 1.0;
+    }
+
+    /**
+     * Score of a grade normalized to the 0-100 scale using the assessment's max points.
+     */
+    private double normalizedScoreOf(Grade grade) {
+        Assessment assessment = grade.getAssessment();
+        if (assessment == null || assessment.getMaxPoints() == null || assessment.getMaxPoints() <= 0) {
+            return grade.getScore();
+        }
+        return grade.getScore() * 100.0 / assessment.getMaxPoints();
+    }
+
+    private void applyDelta(Grade grade, double scoreDelta, double weightDelta, long countDelta) {
+        if (grade.getStudent() == null || grade.getSubject() == null) {
+            return; // Nothing to account for
+        }
+        Long studentId = grade.getStudent().getId();
+        Long subjectId = grade.getSubject().getId();
+
+        int updated = subjectAverageRepository.applyDelta(studentId, subjectId, scoreDelta, weightDelta, countDelta);
+        if (updated == 0) {
+            // No rollup yet (first grade in the subject, or data written before rollups existed).
+            // Two transactions can get here at once for the same student and would both insert the
+            // rollup, so the student's row is locked first; once it is held, a rollup committed in the
+            // meantime by the other transaction takes the delta like any other.
+            studentRepository.lockById(studentId);
+            updated = subjectAverageRepository.applyDelta(studentId, subjectId, scoreDelta, weightDelta, countDelta);
+            if (updated == 0) {
+                // The grade change is already flushed, so rebuilding gives the exact state
+                logger.debug("No rollup for student {} in subject {}, rebuilding from grades.", studentId, subjectId);
+                rebuildForStudent(studentId);
+            }
+        }
+    }
+
+    private List<SubjectAverage> toRollups(List<Object[]> rows) {
+        return rows.stream()
+                .map(row -> new SubjectAverage(
+                        studentRepository.getReferenceById((Long) row[0]),
+                        subjectRepository.getReferenceById((Long) row[1]),
+                        ((Number) row[2]).doubleValue(),
+                        ((Number) row[3]).doubleValue(),
+                        ((Number) row[4]).longValue()))
+                .collect(Collectors.toList());
+    }
+
+    // --- Service Method Implementations ---
+
+    @Override
+    @Transactional
+    public void gradeAdded(Grade grade) {
+        if (grade.getScore() == null) {
+            return;
+        }
+        double weight = weightOf(grade);
+        applyDelta(grade, normalizedScoreOf(grade) * weight, weight, 1);
+    }
+
+    @Override
+    @Transactional
+    public void gradeUpdated(Grade grade, Double previousScore) {
+        if (grade.getScore() == null || previousScore == null || grade.getScore().equals(previousScore)) {
+            return;
+        }
+        Assessment assessment = grade.getAssessment();
+        double scale = (assessment != null && assessment.getMaxPoints() != null && assessment.getMaxPoints() > 0)
+                ? 100.0 / assessment.getMaxPoints() : 1.0;
+        applyDelta(grade, (grade.getScore() - previousScore) * scale * weightOf(grade), 0.0, 0);
+    }
+
+    @Override
+    @Transactional
+    public void gradeRemoved(Grade grade) {
+        if (grade.getScore() == null) {
+            return;
+        }
+        double weight = weightOf(grade);
+        applyDelta(grade, -normalizedScoreOf(grade) * weight, -weight, -1);
+    }
+
+    @Override
+    @Transactional
+    public void rebuildForStudent(Long studentId) {
+        studentRepository.lockById(studentId); // Rebuilds of the same student run one after the other
+        subjectAverageRepository.deleteByStudentId(studentId);
+        subjectAverageRepository.flush();
+        subjectAverageRepository.saveAll(toRollups(gradeRepository.aggregateWeightedScoresByStudentId(studentId)));
+    }
+
+    @Override
+    @Transactional
+    public void rebuildForAssessment(Long assessmentId) {
+        List<Long> studentIds = gradeRepository.findStudentIdsByAssessmentId(assessmentId);
+        logger.info("Rebuilding subject averages for {} students graded on assessment {}", studentIds.size(), assessmentId);
+        studentIds.forEach(this::rebuildForStudent);
+    }
+
+    @Override
+    @Transactional
+    public void rebuildAll() {
+        subjectAverageRepository.deleteAllInBatch();
+        List<SubjectAverage> rollups = toRollups(gradeRepository.aggregateWeightedScores());
+        subjectAverageRepository.saveAll(rollups);
+        logger.info("Rebuilt {} subject average rollups", rollups.size());
+    }
+}
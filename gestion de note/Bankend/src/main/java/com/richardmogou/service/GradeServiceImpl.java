@@ -2,16 +2,19 @@ package com.richardmogou.service; // Standard package
 
 import com.richardmogou.dto.GradeDto;
 import com.richardmogou.dto.GradeRequestDto;
+import com.richardmogou.model.Assessment;
 import com.richardmogou.model.Grade;
 import com.richardmogou.model.Semester;
 import com.richardmogou.model.Student;
 import com.richardmogou.model.Subject;
+import com.richardmogou.repository.AssessmentRepository;
 import com.richardmogou.repository.GradeRepository;
 import com.richardmogou.repository.SemesterRepository;
 import com.richardmogou.repository.StudentRepository;
 import com.richardmogou.repository.SubjectRepository;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,6 +37,18 @@ public class GradeServiceImpl implements GradeService {
     @Autowired
     private SubjectRepository subjectRepository;
 
+    @Autowired
+    private AssessmentRepository assessmentRepository;
+
+    @Autowired
+    private GradeRollupService gradeRollupService;
+
+    @Autowired
+    private ExportWatermarkService exportWatermarkService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // --- Helper Method for Mapping ---
     private GradeDto mapToDto(Grade grade) {
         if (grade == null) {
@@ -42,6 +57,7 @@ public class GradeServiceImpl implements GradeService {
         Student student = grade.getStudent();
         Subject subject = grade.getSubject();
         Semester semester = grade.getSemester();
+        Assessment assessment = grade.getAssessment();
 
         String studentFullName = (student != null) ? student.getFirstName() + " " + student.getLastName() : null;
 
@@ -56,10 +72,26 @@ public class GradeServiceImpl implements GradeService {
                 (subject != null) ? subject.getId() : null,
                 (subject != null) ? subject.getName() : null,
                 (semester != null) ? semester.getId() : null,
-                (semester != null) ? semester.getName() : null
+                (semester != null) ? semester.getName() : null,
+                (assessment != null) ? assessment.getId() : null,
+                (assessment != null) ? assessment.getName() : null
         );
     }
 
+    // Scores of assessment grades are expressed in the assessment's own points scale
+    private void validateScoreAgainstAssessment(Double score, Assessment assessment) {
+        if (assessment != null && score != null && score > assessment.getMaxPoints()) {
+            throw new IllegalArgumentException("Score " + score + " exceeds the maximum of " + assessment.getMaxPoints()
+                    + " points for assessment '" + assessment.getName() + "'");
+        }
+    }
+
+    // Advances the watermarks of the cached exports showing this grade
+    private void advanceExportWatermarks(Grade grade) {
+        exportWatermarkService.gradeChanged(grade.getStudent().getId(), grade.getSubject().getId(),
+                grade.getSemester() != null ? grade.getSemester().getId() : null);
+    }
+
     // --- Service Method Implementations ---
 
     @Override
@@ -120,7 +152,7 @@ public class GradeServiceImpl implements GradeService {
     @Override
     @Transactional(readOnly = true)
     public Optional<GradeDto> findGradeById(Long id) {
-        return gradeRepository.findById(id).map(this::mapToDto);
+        return gradeRepository.findDetailedById(id).map(this::mapToDto);
     }
 
     @Override
@@ -129,25 +161,46 @@ public class GradeServiceImpl implements GradeService {
         // Fetch related entities
         Student student = studentRepository.findById(gradeRequestDto.getStudentId())
                 .orElseThrow(() -> new IllegalArgumentException("Student not found with ID: " + gradeRequestDto.getStudentId()));
-        Subject subject = subjectRepository.findById(gradeRequestDto.getSubjectId())
-                .orElseThrow(() -> new IllegalArgumentException("Subject not found with ID: " + gradeRequestDto.getSubjectId()));
 
         // Create new Grade entity
         Grade newGrade = new Grade();
         newGrade.setScore(gradeRequestDto.getScore());
         newGrade.setComments(gradeRequestDto.getComments());
         newGrade.setStudent(student);
-        newGrade.setSubject(subject);
-        
+
+        if (gradeRequestDto.getAssessmentId() != null) {
+            // Subject and semester come from the assessment
+            Assessment assessment = assessmentRepository.findById(gradeRequestDto.getAssessmentId())
+                    .orElseThrow(() -> new IllegalArgumentException("Assessment not found with ID: " + gradeRequestDto.getAssessmentId()));
+            if (!assessment.getSubject().getId().equals(gradeRequestDto.getSubjectId())) {
+                throw new IllegalArgumentException("Assessment " + assessment.getId() + " does not belong to subject ID: " + gradeRequestDto.getSubjectId());
+            }
+            if (gradeRequestDto.getSemesterId() != null && assessment.getSemester() != null
+                    && !assessment.getSemester().getId().equals(gradeRequestDto.getSemesterId())) {
+                throw new IllegalArgumentException("Assessment " + assessment.getId() + " does not belong to semester ID: " + gradeRequestDto.getSemesterId());
+            }
+            validateScoreAgainstAssessment(gradeRequestDto.getScore(), assessment);
+            newGrade.setAssessment(assessment);
+            newGrade.setSubject(assessment.getSubject());
+            newGrade.setSemester(assessment.getSemester());
+        } else {
+            Subject subject = subjectRepository.findById(gradeRequestDto.getSubjectId())
+                    .orElseThrow(() -> new IllegalArgumentException("Subject not found with ID: " + gradeRequestDto.getSubjectId()));
+            newGrade.setSubject(subject);
+        }
+
         // Set semester if provided
-        if (gradeRequestDto.getSemesterId() != null) {
+        if (newGrade.getSemester() == null && gradeRequestDto.getSemesterId() != null) {
             Semester semester = semesterRepository.findById(gradeRequestDto.getSemesterId())
                     .orElseThrow(() -> new IllegalArgumentException("Semester not found with ID: " + gradeRequestDto.getSemesterId()));
             newGrade.setSemester(semester);
         }
         // newGrade.setDateAssigned(...) // Handled by default in Grade entity
 
-        Grade savedGrade = gradeRepository.save(newGrade);
+        Grade savedGrade = gradeRepository.saveAndFlush(newGrade);
+        gradeRollupService.gradeAdded(savedGrade);
+        advanceExportWatermarks(savedGrade);
+        eventPublisher.publishEvent(ReportDataChangedEvent.forStudent(student.getId()));
         return mapToDto(savedGrade);
     }
 
@@ -177,21 +230,33 @@ public class GradeServiceImpl implements GradeService {
         }
         */
 
+        validateScoreAgainstAssessment(gradeRequestDto.getScore(), existingGrade.getAssessment());
+
+        Double previousScore = existingGrade.getScore();
         existingGrade.setScore(gradeRequestDto.getScore());
         existingGrade.setComments(gradeRequestDto.getComments());
         // existingGrade.setDateAssigned(...) // Usually not updated, maybe lastModifiedDate?
 
-        Grade updatedGrade = gradeRepository.save(existingGrade);
+        Grade updatedGrade = gradeRepository.saveAndFlush(existingGrade);
+        gradeRollupService.gradeUpdated(updatedGrade, previousScore);
+        advanceExportWatermarks(updatedGrade);
+        eventPublisher.publishEvent(ReportDataChangedEvent.forStudent(updatedGrade.getStudent().getId()));
         return Optional.of(mapToDto(updatedGrade));
     }
 
     @Override
     @Transactional
     public boolean deleteGrade(Long id) {
-        if (gradeRepository.existsById(id)) {
-            gradeRepository.deleteById(id);
-            return true;
+        Optional<Grade> gradeOptional = gradeRepository.findById(id);
+        if (gradeOptional.isEmpty()) {
+            return false; // Grade not found
         }
-        return false; // Grade not found
+        Grade grade = gradeOptional.get();
+        gradeRepository.delete(grade);
+        gradeRepository.flush();
+        gradeRollupService.gradeRemoved(grade);
+        advanceExportWatermarks(grade);
+        eventPublisher.publishEvent(ReportDataChangedEvent.forStudent(grade.getStudent().getId()));
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,301 @@
+package com.richardmogou.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Writes ZIP archives whose entries are prepared in parallel and written in the order they were added.
+ * <p>
+ * Each entry is produced, checksummed and compressed by a task on the given executor; at most
+ * {@code maxInFlight} entries are held in memory, after which adding an entry waits for the oldest
+ * one to be written. Entries that are already compressed (PDFs, ZIP-based office files, images...)
+ * are STORED without trying to deflate them; other entries are DEFLATED, or STORED if deflating does
+ * not make them smaller. Sizes and checksums are known before an entry is written, so local headers
+ * are complete and no data descriptors are needed; offsets and entry counts beyond the classic limits
+ * get ZIP64 records. The archive reads the same as one written by {@link java.util.zip.ZipOutputStream}.
+ */
+public class ParallelZipWriter {
+
+    // Extensions of formats whose content is already compressed
+    private static final Set<String> STORED_EXTENSIONS = Set.of(
+            "pdf", "zip", "gz", "xlsx", "docx", "pptx", "png", "jpg", "jpeg");
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final short ZIP64_EXTRA_ID = 0x0001;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+
+    // An entry ready to be written: its data as it goes in the archive
+    private record PreparedEntry(byte[] data, int method, long crc, long size) {
+    }
+
+    private record PendingEntry(byte[] name, FutureTask<PreparedEntry> task) {
+    }
+
+    private final OutputStream out;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final IntConsumer entryWritten;
+    private final int dosTime;
+    private final int dosDate;
+
+    private final Deque<PendingEntry> pending = new ArrayDeque<>();
+    private final Set<String> names = new HashSet<>();
+    private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+    private final ByteBuffer header = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+    private long offset;
+    private int entries;
+
+    /**
+     * @param out The stream receiving the archive; it is flushed after each entry, never closed.
+     * @param executor The pool preparing entries.
+     * @param maxInFlight The number of entries prepared ahead of the one being written.
+     * @param entryWritten Called with the number of entries written so far, after each entry.
+     */
+    public ParallelZipWriter(OutputStream out, Executor executor, int maxInFlight, IntConsumer entryWritten) {
+        this.out = out;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.entryWritten = entryWritten;
+
+        LocalDateTime now = LocalDateTime.now();
+        this.dosTime = now.getHour() << 11 | now.getMinute() << 5 | now.getSecond() / 2;
+        this.dosDate = Math.max(0, now.getYear() - 1980) << 9 | now.getMonthValue() << 5 | now.getDayOfMonth();
+    }
+
+    /**
+     * Adds an entry with known content.
+     */
+    public void add(String name, byte[] data) throws IOException {
+        add(name, () -> data);
+    }
+
+    /**
+     * Adds an entry whose content is produced on the executor, writing the oldest entries first if
+     * too many are in flight.
+     *
+     * @throws ZipException If an entry with the same name was already added.
+     * @throws IOException If an earlier entry could not be produced or written.
+     */
+    public void add(String name, Callable<byte[]> content) throws IOException {
+        if (!names.add(name)) {
+            throw new ZipException("duplicate entry: " + name);
+        }
+        while (pending.size() >= maxInFlight) {
+            writeNext();
+        }
+        boolean stored = STORED_EXTENSIONS.contains(extensionOf(name));
+        FutureTask<PreparedEntry> task = new FutureTask<>(() -> prepare(content.call(), stored));
+        pending.add(new PendingEntry(name.getBytes(StandardCharsets.UTF_8), task));
+        executor.execute(task);
+    }
+
+    /**
+     * Writes the remaining entries and the central directory. The output stream is not closed.
+     *
+     * @return The number of entries in the archive.
+     */
+    public int finish() throws IOException {
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+        writeCentralDirectory();
+        out.flush();
+        return entries;
+    }
+
+    /**
+     * Cancels the entries not written yet, after a failure; does nothing once the archive is finished.
+     */
+    public void abort() {
+        pending.forEach(entry -> entry.task().cancel(true));
+        pending.clear();
+    }
+
+    public int entriesWritten() {
+        return entries;
+    }
+
+    // Checksums and, unless it is stored, compresses an entry; runs on the executor
+    private static PreparedEntry prepare(byte[] data, boolean stored) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (!stored) {
+            byte[] deflated = deflate(data);
+            if (deflated.length < data.length) {
+                return new PreparedEntry(deflated, METHOD_DEFLATED, crc.getValue(), data.length);
+            }
+        }
+        return new PreparedEntry(data, METHOD_STORED, crc.getValue(), data.length);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true); // Raw deflate, as in ZIP entries
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        PendingEntry entry = pending.poll();
+        PreparedEntry prepared = await(entry.task());
+        long entryOffset = offset;
+
+        header.clear();
+        header.putInt(LOCAL_HEADER_SIGNATURE)
+                .putShort((short) VERSION_DEFAULT)
+                .putShort((short) FLAG_UTF8)
+                .putShort((short) prepared.method())
+                .putShort((short) dosTime)
+                .putShort((short) dosDate)
+                .putInt((int) prepared.crc())
+                .putInt(prepared.data().length)
+                .putInt((int) prepared.size())
+                .putShort((short) entry.name().length)
+                .putShort((short) 0);
+        writeHeader(out);
+        writeBytes(entry.name());
+        writeBytes(prepared.data());
+        out.flush(); // Hand each entry to the client as soon as it is ready
+
+        // Offsets past 4 GB go in a ZIP64 extra field of the central directory
+        boolean zip64 = entryOffset >= MAX_32;
+        header.clear();
+        header.putInt(CENTRAL_HEADER_SIGNATURE)
+                .putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT))
+                .putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT))
+                .putShort((short) FLAG_UTF8)
+                .putShort((short) prepared.method())
+                .putShort((short) dosTime)
+                .putShort((short) dosDate)
+                .putInt((int) prepared.crc())
+                .putInt(prepared.data().length)
+                .putInt((int) prepared.size())
+                .putShort((short) entry.name().length)
+                .putShort((short) (zip64 ? 12 : 0))
+                .putShort((short) 0) // Comment length
+                .putShort((short) 0) // Disk number
+                .putShort((short) 0) // Internal attributes
+                .putInt(0) // External attributes
+                .putInt((int) (zip64 ? MAX_32 : entryOffset));
+        writeHeader(centralDirectory);
+        centralDirectory.write(entry.name());
+        if (zip64) {
+            header.clear();
+            header.putShort(ZIP64_EXTRA_ID).putShort((short) 8).putLong(entryOffset);
+            writeHeader(centralDirectory);
+        }
+
+        entryWritten.accept(++entries);
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long directoryOffset = offset;
+        long directorySize = centralDirectory.size();
+        centralDirectory.writeTo(out);
+        offset += directorySize;
+
+        boolean zip64 = entries >= MAX_16 || directoryOffset >= MAX_32 || directorySize >= MAX_32;
+        if (zip64) {
+            long zip64EndOffset = offset;
+            header.clear();
+            header.putInt(ZIP64_END_SIGNATURE)
+                    .putLong(44) // Size of the rest of the record
+                    .putShort((short) VERSION_ZIP64)
+                    .putShort((short) VERSION_ZIP64)
+                    .putInt(0) // This disk
+                    .putInt(0) // Disk of the central directory
+                    .putLong(entries)
+                    .putLong(entries)
+                    .putLong(directorySize)
+                    .putLong(directoryOffset);
+            writeHeader(out);
+            header.clear();
+            header.putInt(ZIP64_LOCATOR_SIGNATURE)
+                    .putInt(0) // Disk of the ZIP64 end record
+                    .putLong(zip64EndOffset)
+                    .putInt(1); // Number of disks
+            writeHeader(out);
+        }
+
+        header.clear();
+        header.putInt(END_SIGNATURE)
+                .putShort((short) 0) // This disk
+                .putShort((short) 0) // Disk of the central directory
+                .putShort((short) Math.min(entries, MAX_16))
+                .putShort((short) Math.min(entries, MAX_16))
+                .putInt((int) Math.min(directorySize, MAX_32))
+                .putInt((int) Math.min(directoryOffset, MAX_32))
+                .putShort((short) 0); // Comment length
+        writeHeader(out);
+    }
+
+    private void writeHeader(OutputStream target) throws IOException {
+        target.write(header.array(), 0, header.position());
+        if (target == out) {
+            offset += header.position();
+        }
+    }
+
+    private void writeBytes(byte[] data) throws IOException {
+        out.write(data);
+        offset += data.length;
+    }
+
+    // Waits for a prepared entry, unwrapping the failure that prevented it
+    private static PreparedEntry await(FutureTask<PreparedEntry> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while preparing archive entries", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Error preparing archive entry: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static String extensionOf(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
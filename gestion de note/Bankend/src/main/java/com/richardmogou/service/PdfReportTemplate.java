@@ -0,0 +1,255 @@
+package com.richardmogou.service;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Static parts of the PDF reports, prepared once and reused by every generated document.
+ * <p>
+ * The background image is decoded a single time, downsampled to the resolution it is displayed at
+ * and re-encoded as a small JPEG. The background and the grade report header (title, field labels,
+ * table header) are rendered once into form XObject content streams. Each document then only wraps
+ * these bytes in its own form XObjects, so no image is decoded and no layout is re-drawn per report,
+ * and a multi-page report embeds the background image once.
+ */
+@Component
+public class PdfReportTemplate {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfReportTemplate.class);
+
+    public static final PDRectangle PAGE_SIZE = PDRectangle.LETTER;
+
+    // Part of the report cache key: bump it whenever the layout or the background changes
+    public static final int TEMPLATE_VERSION = 1;
+
+    // --- Grade report layout, shared with the dynamic content written by PdfServiceImpl ---
+    public static final float MARGIN = 50;
+    public static final float VALUE_X = 150; // Column of the student info values
+    public static final float TITLE_Y = PAGE_SIZE.getHeight() - MARGIN;
+    public static final float FIRST_INFO_Y = TITLE_Y - 30;
+    public static final float INFO_LINE_HEIGHT = 20;
+    public static final float TABLE_HEADER_Y = FIRST_INFO_Y - 2 * INFO_LINE_HEIGHT - 30 - 20;
+    public static final float FIRST_ROW_Y = TABLE_HEADER_Y - 5 - 20; // Row position of the first grade (text sits 5pt above)
+    public static final float ROW_HEIGHT = 20;
+    public static final float CELL_PADDING = 3;
+    public static final float[] COLUMN_WIDTHS = { 150, 60, 100, 200 };
+    private static final String[] TABLE_HEADERS = { "Subject", "Score", "Date Assigned", "Comments" };
+
+    private static final String BACKGROUND_RESOURCE = "/images/bgs.jpg";
+    private static final float BACKGROUND_DPI = 96; // Screen resolution is enough for a decorative background
+    private static final float BACKGROUND_JPEG_QUALITY = 0.75f;
+
+    // Resource names referenced by the pre-rendered content streams
+    private static final COSName BACKGROUND_IMAGE = COSName.getPDFName("Im1");
+    private static final COSName HEADER_FONT = COSName.getPDFName("F1");
+    private static final COSName FRAGMENT_FONT = COSName.getPDFName("F1");
+    private static final COSName FRAGMENT_FONT_BOLD = COSName.getPDFName("F2");
+
+    private volatile Prepared prepared;
+
+    // Bytes shared by all documents; never modified after preparation
+    private record Prepared(byte[] backgroundJpeg, byte[] backgroundContent, byte[] gradeReportHeaderContent) {
+    }
+
+    /**
+     * Form XObjects of one document, drawn with {@link PDPageContentStream#drawForm(PDFormXObject)}.
+     *
+     * @param background Full-page background, drawn on every page.
+     * @param gradeReportHeader Title, student info labels and grades table header, drawn on the first page.
+     */
+    public record DocumentTemplates(PDFormXObject background, PDFormXObject gradeReportHeader) {
+    }
+
+    /**
+     * Creates the templates for a new document from the shared, pre-rendered bytes.
+     *
+     * @param document The document being generated.
+     * @return Form XObjects bound to the document.
+     * @throws IOException If the background image cannot be loaded.
+     */
+    public DocumentTemplates forDocument(PDDocument document) throws IOException {
+        Prepared shared = prepare();
+
+        PDResources backgroundResources = new PDResources();
+        backgroundResources.put(BACKGROUND_IMAGE, JPEGFactory.createFromByteArray(document, shared.backgroundJpeg()));
+
+        PDResources headerResources = new PDResources();
+        headerResources.put(HEADER_FONT, PDType1Font.HELVETICA_BOLD);
+
+        return new DocumentTemplates(
+                createForm(document, shared.backgroundContent(), backgroundResources),
+                createForm(document, shared.gradeReportHeaderContent(), headerResources));
+    }
+
+    /**
+     * Resources for rendering a page fragment: content that uses only Helvetica and Helvetica Bold,
+     * rendered into a form with these resources, can be kept as bytes and drawn in any document
+     * through {@link #fragmentForm(PDDocument, byte[])}.
+     *
+     * @return New resources holding the two fonts under fixed names.
+     */
+    public PDResources fragmentResources() {
+        PDResources resources = new PDResources();
+        resources.put(FRAGMENT_FONT, PDType1Font.HELVETICA);
+        resources.put(FRAGMENT_FONT_BOLD, PDType1Font.HELVETICA_BOLD);
+        return resources;
+    }
+
+    /**
+     * Wraps the content stream of a pre-rendered page fragment in a form XObject.
+     *
+     * @param document The document being generated.
+     * @param content A content stream rendered with {@link #fragmentResources()}.
+     * @return A page-sized form bound to the document.
+     * @throws IOException If the form cannot be written.
+     */
+    public PDFormXObject fragmentForm(PDDocument document, byte[] content) throws IOException {
+        return createForm(document, content, fragmentResources());
+    }
+
+    private PDFormXObject createForm(PDDocument document, byte[] content, PDResources resources) throws IOException {
+        PDFormXObject form = new PDFormXObject(document);
+        try (OutputStream out = form.getStream().createOutputStream(COSName.FLATE_DECODE)) {
+            out.write(content);
+        }
+        form.setBBox(PAGE_SIZE);
+        form.setResources(resources);
+        return form;
+    }
+
+    private Prepared prepare() throws IOException {
+        Prepared current = prepared;
+        if (current == null) {
+            synchronized (this) {
+                current = prepared;
+                if (current == null) {
+                    current = buildPrepared();
+                    prepared = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Prepared buildPrepared() throws IOException {
+        byte[] backgroundJpeg = downsampleBackground();
+
+        // Render both templates once in a scratch document and keep only their content streams
+        try (PDDocument scratch = new PDDocument()) {
+            PDImageXObject image = JPEGFactory.createFromByteArray(scratch, backgroundJpeg);
+            PDResources backgroundResources = new PDResources();
+            backgroundResources.put(BACKGROUND_IMAGE, image);
+            PDFormXObject background = new PDFormXObject(scratch);
+            background.setResources(backgroundResources);
+            ByteArrayOutputStream backgroundContent = new ByteArrayOutputStream();
+            try (PDPageContentStream contentStream = new PDPageContentStream(scratch, background, backgroundContent)) {
+                contentStream.drawImage(image, 0, 0, PAGE_SIZE.getWidth(), PAGE_SIZE.getHeight());
+            }
+
+            PDResources headerResources = new PDResources();
+            headerResources.put(HEADER_FONT, PDType1Font.HELVETICA_BOLD);
+            PDFormXObject header = new PDFormXObject(scratch);
+            header.setResources(headerResources);
+            ByteArrayOutputStream headerContent = new ByteArrayOutputStream();
+            try (PDPageContentStream contentStream = new PDPageContentStream(scratch, header, headerContent)) {
+                drawGradeReportHeader(contentStream);
+            }
+
+            return new Prepared(backgroundJpeg, backgroundContent.toByteArray(), headerContent.toByteArray());
+        }
+    }
+
+    private void drawGradeReportHeader(PDPageContentStream contentStream) throws IOException {
+        PDType1Font fontBold = PDType1Font.HELVETICA_BOLD;
+        drawText(contentStream, MARGIN, TITLE_Y, "Student Grade Report", fontBold, 16);
+
+        String[] labels = { "Student Name:", "Username:", "Email:" };
+        for (int i = 0; i < labels.length; i++) {
+            drawText(contentStream, MARGIN, FIRST_INFO_Y - i * INFO_LINE_HEIGHT, labels[i], fontBold, 12);
+        }
+
+        float x = MARGIN;
+        for (int i = 0; i < TABLE_HEADERS.length; i++) {
+            drawText(contentStream, x + CELL_PADDING, TABLE_HEADER_Y + 5, TABLE_HEADERS[i], fontBold, 10);
+            x += COLUMN_WIDTHS[i];
+        }
+
+        float ruleY = TABLE_HEADER_Y - 5;
+        contentStream.moveTo(MARGIN, ruleY);
+        contentStream.lineTo(PAGE_SIZE.getWidth() - MARGIN, ruleY);
+        contentStream.stroke();
+    }
+
+    private void drawText(PDPageContentStream contentStream, float x, float y, String text, PDType1Font font, float fontSize) throws IOException {
+        contentStream.beginText();
+        contentStream.setFont(font, fontSize);
+        contentStream.newLineAtOffset(x, y);
+        contentStream.showText(text);
+        contentStream.endText();
+    }
+
+    // Scales the source image to the page size at BACKGROUND_DPI and re-encodes it as JPEG
+    private byte[] downsampleBackground() throws IOException {
+        BufferedImage source;
+        try (InputStream imageStream = getClass().getResourceAsStream(BACKGROUND_RESOURCE)) {
+            if (imageStream == null) {
+                throw new IOException("Background image not found in resources.");
+            }
+            source = ImageIO.read(imageStream);
+        }
+        if (source == null) {
+            throw new IOException("Background image could not be decoded.");
+        }
+
+        int width = Math.round(PAGE_SIZE.getWidth() / 72 * BACKGROUND_DPI);
+        int height = Math.round(PAGE_SIZE.getHeight() / 72 * BACKGROUND_DPI);
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(BACKGROUND_JPEG_QUALITY);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(scaled, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        logger.info("Prepared report background: {}x{} source downsampled to {}x{}, {} bytes",
+                source.getWidth(), source.getHeight(), width, height, out.size());
+        return out.toByteArray();
+    }
+}
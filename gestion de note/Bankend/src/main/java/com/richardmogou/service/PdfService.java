@@ -2,7 +2,9 @@ package com.richardmogou.service;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 public interface PdfService {
 
@@ -18,8 +20,9 @@ public interface PdfService {
     ByteArrayInputStream generateStudentGradeReport(Long studentId) throws IOException;
 
     /**
-     * Generates an official transcript PDF for a single student.
-     * This might include more details than a simple report (e.g., overall average, school info).
+     * Generates an official transcript PDF for a single student: a summary page with every
+     * semester's weighted average and the cumulative weighted average, followed by one section
+     * per semester with the subject averages. Sections of ended semesters are rendered once and reused.
      *
      * @param studentId The ID of the student for whom to generate the transcript.
      * @return A ByteArrayInputStream containing the generated PDF data.
@@ -29,32 +32,79 @@ public interface PdfService {
     ByteArrayInputStream generateStudentTranscript(Long studentId) throws IOException;
     
     /**
-     * Generates PDF grade reports for multiple students and returns them as a ZIP archive.
+     * Loads the data for the grade reports of multiple students.
+     * Duplicate IDs are reported once and unknown IDs are skipped.
      *
      * @param studentIds List of student IDs for whom to generate reports.
-     * @return A ByteArrayInputStream containing the generated ZIP data with PDFs.
-     * @throws IOException If an error occurs during PDF or ZIP generation.
-     * @throws jakarta.persistence.EntityNotFoundException If any student is not found.
+     * @return The loaded batch, in the order of the given IDs.
+     * @throws IllegalArgumentException If no student IDs are given.
      */
-    ByteArrayInputStream generateBulkStudentReports(List<Long> studentIds) throws IOException;
-    
+    StudentReportBatch prepareBulkStudentReports(List<Long> studentIds);
+
     /**
-     * Generates PDF grade reports for all students in a specific class and returns them as a ZIP archive.
+     * Loads the data for the grade reports of all students in a specific class.
      *
      * @param classSectionId The ID of the class section.
-     * @return A ByteArrayInputStream containing the generated ZIP data with PDFs.
-     * @throws IOException If an error occurs during PDF or ZIP generation.
+     * @return The loaded batch.
      * @throws jakarta.persistence.EntityNotFoundException If the class section is not found.
+     * @throws IllegalStateException If no students are enrolled in the class.
      */
-    ByteArrayInputStream generateClassReports(Long classSectionId) throws IOException;
-    
+    StudentReportBatch prepareClassReports(Long classSectionId);
+
     /**
-     * Generates PDF grade reports for all students in a specific semester and returns them as a ZIP archive.
+     * Loads the data for the grade reports of all students graded in a specific semester.
      *
      * @param semesterId The ID of the semester.
-     * @return A ByteArrayInputStream containing the generated ZIP data with PDFs.
-     * @throws IOException If an error occurs during PDF or ZIP generation.
+     * @return The loaded batch.
      * @throws jakarta.persistence.EntityNotFoundException If the semester is not found.
+     * @throws IllegalStateException If no grades are recorded in the semester.
+     */
+    StudentReportBatch prepareSemesterReports(Long semesterId);
+
+    /**
+     * Renders the reports of a batch and writes them to a ZIP archive, one PDF entry at a time.
+     * Entries are written as soon as they are rendered, so the archive is never held in memory.
+     * Does not access the database. The output stream is not closed.
+     *
+     * @param batch The batch loaded by one of the prepare methods.
+     * @param out The stream receiving the ZIP data.
+     * @throws IOException If an error occurs during PDF generation or while writing.
+     */
+    default void writeReportsZip(StudentReportBatch batch, OutputStream out) throws IOException {
+        writeReportsZip(batch, out, written -> { });
+    }
+
+    /**
+     * Same as {@link #writeReportsZip(StudentReportBatch, OutputStream)}, reporting progress as it goes.
+     *
+     * @param batch The batch loaded by one of the prepare methods.
+     * @param out The stream receiving the ZIP data.
+     * @param progress Called with the number of reports written so far after each entry.
+     * @throws IOException If an error occurs during PDF generation or while writing.
+     */
+    void writeReportsZip(StudentReportBatch batch, OutputStream out, IntConsumer progress) throws IOException;
+
+    /**
+     * Renders the reports of a batch into a single PDF document, each report starting on a new page.
+     * The background and header are embedded once for the whole document, and page content beyond a
+     * bounded amount of memory is buffered in temporary files. Does not access the database.
+     * The output stream is not closed.
+     *
+     * @param batch The batch loaded by one of the prepare methods.
+     * @param out The stream receiving the PDF data.
+     * @throws IOException If an error occurs during PDF generation or while writing.
+     */
+    default void writeMergedReportsPdf(StudentReportBatch batch, OutputStream out) throws IOException {
+        writeMergedReportsPdf(batch, out, written -> { });
+    }
+
+    /**
+     * Same as {@link #writeMergedReportsPdf(StudentReportBatch, OutputStream)}, reporting progress as it goes.
+     *
+     * @param batch The batch loaded by one of the prepare methods.
+     * @param out The stream receiving the PDF data.
+     * @param progress Called with the number of reports rendered so far after each report.
+     * @throws IOException If an error occurs during PDF generation or while writing.
      */
-    ByteArrayInputStream generateSemesterReports(Long semesterId) throws IOException;
-}
\ No newline at end of file
+    void writeMergedReportsPdf(StudentReportBatch batch, OutputStream out, IntConsumer progress) throws IOException;
+}
@@ -1,41 +1,54 @@
 package com.richardmogou.service;
 
-import com.richardmogou.model.*;
 import com.richardmogou.repository.ClassSectionRepository;
 import com.richardmogou.repository.GradeRepository;
 import com.richardmogou.repository.SemesterRepository;
 import com.richardmogou.repository.StudentRepository;
 import jakarta.persistence.EntityNotFoundException;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 @Service
 public class PdfServiceImpl implements PdfService {
 
     private static final Logger logger = LoggerFactory.getLogger(PdfServiceImpl.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final char FIELD_SEPARATOR = '\u001f'; // Separates fields in the report cache key inputs
 
-    @Autowired
-    private StudentRepository studentRepository;
+    // Transcript tables: Semester, Period, Status, Average on the summary page, then
+    // Subject, Coefficient, Grades, Average in each semester section
+    private static final float[] SUMMARY_COLUMN_WIDTHS = { 150, 170, 90, 90 };
+    private static final String[] SUMMARY_HEADERS = { "Semester", "Period", "Status", "Average" };
+    private static final float[] TERM_COLUMN_WIDTHS = { 200, 90, 90, 90 };
+    private static final String[] TERM_HEADERS = { "Subject", "Coefficient", "Grades", "Average" };
 
     @Autowired
     private GradeRepository gradeRepository;
@@ -47,20 +60,52 @@ public class PdfServiceImpl implements PdfService {
     private SemesterRepository semesterRepository;
 
     @Autowired
-    private CalculationService calculationService; // Inject calculation service
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private StudentReportLoader studentReportLoader; // Constant-query data loading for reports
+
+    @Autowired
+    private PdfReportTemplate pdfReportTemplate; // Shared background and header layout
+
+    @Autowired
+    private ReportArtifactCache reportArtifactCache; // Rendered reports by digest of their inputs
+
+    @Autowired
+    @Qualifier("reportRenderExecutor")
+    private ThreadPoolTaskExecutor reportRenderExecutor; // Bounded pool for bulk rendering
+
+    @Value("${reports.pdf.max-in-flight:16}")
+    private int maxInFlight; // Rendered reports held in memory per batch
+
+    @Value("${reports.pdf.merge-memory-bytes:33554432}")
+    private long mergeMemoryBytes; // Heap used by a merged PDF before its pages spill to temporary files
 
     // --- PDF Generation Helper Methods ---
 
-    private void addBackgroundImage(PDDocument document, PDPageContentStream contentStream, PDPage page) throws IOException {
-        try (InputStream imageStream = getClass().getResourceAsStream("/images/bgs.jpg")) {
-            if (imageStream == null) {
-                throw new IOException("Background image not found in resources.");
-            }
-            PDImageXObject background = PDImageXObject.createFromByteArray(document, imageStream.readAllBytes(), "bg.PNG");
+    // Page being written and the position of the next line on it
+    private static final class PageCursor {
+        private final PDDocument document;
+        private final PdfReportTemplate.DocumentTemplates templates;
+        private PDPageContentStream contentStream;
+        private float y;
 
-            float pageWidth = page.getMediaBox().getWidth();
-            float pageHeight = page.getMediaBox().getHeight();
-            contentStream.drawImage(background, 0, 0, pageWidth, pageHeight);
+        private PageCursor(PDDocument document, PdfReportTemplate.DocumentTemplates templates) {
+            this.document = document;
+            this.templates = templates;
+        }
+
+        // Starts a page with the shared background form and returns its content stream
+        private PDPageContentStream newPage() throws IOException {
+            if (contentStream != null) {
+                contentStream.close();
+            }
+            PDPage page = new PDPage(PdfReportTemplate.PAGE_SIZE);
+            document.addPage(page);
+            contentStream = new PDPageContentStream(document, page);
+            contentStream.drawForm(templates.background());
+            y = PdfReportTemplate.PAGE_SIZE.getHeight() - PdfReportTemplate.MARGIN;
+            return contentStream;
         }
     }
 
@@ -72,68 +117,34 @@ public class PdfServiceImpl implements PdfService {
         contentStream.endText();
     }
 
-    private float addHeader(PDPageContentStream contentStream, PDPage page, float yPosition, String title) throws IOException {
-        PDType1Font fontBold = PDType1Font.HELVETICA_BOLD;
-        addText(contentStream, 50, yPosition, title, fontBold, 16);
-        yPosition -= 30; // Space after header
-        return yPosition;
-    }
-
-    private float addStudentInfo(PDPageContentStream contentStream, PDPage page, float yPosition, Student student) throws IOException {
+    // Fills in the values next to the labels of the pre-rendered header
+    private void addStudentInfo(PDPageContentStream contentStream, StudentReportBatch.StudentInfo student) throws IOException {
         PDType1Font font = PDType1Font.HELVETICA;
-        PDType1Font fontBold = PDType1Font.HELVETICA_BOLD;
-        addText(contentStream, 50, yPosition, "Student Name:", fontBold, 12);
-        addText(contentStream, 150, yPosition, student.getFirstName() + " " + student.getLastName(), font, 12);
-        yPosition -= 20;
-        addText(contentStream, 50, yPosition, "Username:", fontBold, 12);
-        addText(contentStream, 150, yPosition, student.getUsername(), font, 12);
-        yPosition -= 20;
-        addText(contentStream, 50, yPosition, "Email:", fontBold, 12);
-        addText(contentStream, 150, yPosition, student.getEmail(), font, 12);
-        yPosition -= 30; // Space after info
-        return yPosition;
+        String[] values = { student.firstName() + " " + student.lastName(), student.username(), student.email() };
+        for (int i = 0; i < values.length; i++) {
+            addText(contentStream, PdfReportTemplate.VALUE_X,
+                    PdfReportTemplate.FIRST_INFO_Y - i * PdfReportTemplate.INFO_LINE_HEIGHT, values[i], font, 12);
+        }
     }
 
-    private float addGradesTable(PDDocument document, PDPageContentStream contentStream, PDPage page, float y, List<Grade> grades) throws IOException {
-        float margin = 50;
-        float tableWidth = page.getMediaBox().getWidth() - 2 * margin;
-        float rowHeight = 20;
-        float cellPadding = 3;
-
+    // Writes the grade rows below the pre-rendered table header, continuing on new pages as needed
+    private void addGradesTable(PageCursor cursor, List<StudentReportBatch.GradeLine> grades) throws IOException {
         PDType1Font font = PDType1Font.HELVETICA;
-        PDType1Font fontBold = PDType1Font.HELVETICA_BOLD;
-
-        float[] colWidths = { 150, 60, 100, 200 };
-        String[] headers = { "Subject", "Score", "Date Assigned", "Comments" };
-
-        float x = margin;
-        y -= rowHeight;
-        for (int i = 0; i < headers.length; i++) {
-            addText(contentStream, x + cellPadding, y + 5, headers[i], fontBold, 10);
-            x += colWidths[i];
-        }
-
-        y -= 5;
-        contentStream.moveTo(margin, y);
-        contentStream.lineTo(margin + tableWidth, y);
-        contentStream.stroke();
+        float[] colWidths = PdfReportTemplate.COLUMN_WIDTHS;
+        float cellPadding = PdfReportTemplate.CELL_PADDING;
 
-        y -= rowHeight;
-        for (Grade grade : grades) {
-            if (y < 50) {
-                contentStream.close();
-                page = new PDPage();
-                document.addPage(page);
-                contentStream = new PDPageContentStream(document, page);
-                y = page.getMediaBox().getHeight() - 50;
+        cursor.y = PdfReportTemplate.FIRST_ROW_Y;
+        for (StudentReportBatch.GradeLine grade : grades) {
+            if (cursor.y < 50) {
+                cursor.newPage();
             }
 
-            x = margin;
+            float x = PdfReportTemplate.MARGIN;
             String[] rowData = {
-                    grade.getSubject() != null ? grade.getSubject().getName() : "N/A",
-                    grade.getScore() != null ? String.format("%.2f", grade.getScore()) : "N/A",
-                    grade.getDateAssigned() != null ? DATE_FORMATTER.format(grade.getDateAssigned()) : "N/A",
-                    grade.getComments() != null ? grade.getComments() : ""
+                    grade.subjectName() != null ? grade.subjectName() : "N/A",
+                    grade.score() != null ? String.format("%.2f", grade.score()) : "N/A",
+                    grade.dateAssigned() != null ? DATE_FORMATTER.format(grade.dateAssigned()) : "N/A",
+                    grade.comments() != null ? grade.comments() : ""
             };
 
             for (int i = 0; i < rowData.length; i++) {
@@ -141,149 +152,449 @@ public class PdfServiceImpl implements PdfService {
                 if (i == 3 && cellText.length() > 35) {
                     cellText = cellText.substring(0, 32) + "...";
                 }
-                addText(contentStream, x + cellPadding, y + 5, cellText, font, 10);
+                addText(cursor.contentStream, x + cellPadding, cursor.y + 5, cellText, font, 10);
                 x += colWidths[i];
             }
-            y -= rowHeight;
+            cursor.y -= PdfReportTemplate.ROW_HEIGHT;
         }
+    }
 
-        return y;
+    // Writes one grade report from its snapshot, starting on a new page of the cursor's document
+    private void addGradeReport(PageCursor cursor, StudentReportBatch.Report report) throws IOException {
+        PDPageContentStream firstPage = cursor.newPage();
+        firstPage.drawForm(cursor.templates.gradeReportHeader());
+        addStudentInfo(firstPage, report.student());
+        addGradesTable(cursor, report.grades());
+
+        Double overallAverage = report.overallAverage();
+        if (overallAverage != null && !Double.isNaN(overallAverage)) {
+            cursor.y -= 30; // Space before average
+            PDType1Font fontBold = PDType1Font.HELVETICA_BOLD;
+            addText(cursor.contentStream, 50, cursor.y, "Overall Weighted Average:", fontBold, 12);
+            addText(cursor.contentStream, 250, cursor.y, String.format("%.2f", overallAverage), fontBold, 12);
+        }
     }
 
-    // --- Service Method Implementations ---
+    // Renders one grade report as its own document; runs on any thread, with no session or connection
+    private byte[] renderGradeReport(StudentReportBatch.Report report) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PageCursor cursor = new PageCursor(document, pdfReportTemplate.forDocument(document));
+            try {
+                addGradeReport(cursor, report);
+            } finally {
+                cursor.contentStream.close();
+            }
 
-    @Override
-    @Transactional(readOnly = true)
-    public ByteArrayInputStream generateStudentGradeReport(Long studentId) throws IOException {
-        Student student = studentRepository.findById(studentId)
-                .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
-        List<Grade> grades = gradeRepository.findByStudent(student);
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
 
-        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            PDPage page = new PDPage();
-            document.addPage(page);
-            PDPageContentStream contentStream = new PDPageContentStream(document, page);
-            addBackgroundImage(document, contentStream, page);
+    // Renders a report, or takes it from the cache if identical inputs were rendered before
+    private byte[] renderCached(StudentReportBatch.Report report, String digest) throws IOException {
+        byte[] pdf = reportArtifactCache.get(digest);
+        if (pdf == null) {
+            pdf = renderGradeReport(report);
+            reportArtifactCache.put(digest, pdf);
+        }
+        return pdf;
+    }
 
-            float yPosition = page.getMediaBox().getHeight() - 50; // Start near top
+    // SHA-256 of everything printed on a grade report, plus the template version
+    private static String reportDigest(StudentReportBatch.Report report) {
+        StudentReportBatch.StudentInfo student = report.student();
+        StringBuilder inputs = new StringBuilder()
+                .append("grade-report:").append(PdfReportTemplate.TEMPLATE_VERSION).append('\n')
+                .append(student.id()).append(FIELD_SEPARATOR).append(student.username()).append(FIELD_SEPARATOR)
+                .append(student.firstName()).append(FIELD_SEPARATOR).append(student.lastName()).append(FIELD_SEPARATOR)
+                .append(student.email()).append('\n')
+                .append(report.overallAverage()).append('\n');
+        for (StudentReportBatch.GradeLine grade : report.grades()) {
+            inputs.append(grade.id()).append(FIELD_SEPARATOR)
+                    .append(grade.subjectName()).append(FIELD_SEPARATOR)
+                    .append(grade.score()).append(FIELD_SEPARATOR)
+                    .append(grade.dateAssigned()).append(FIELD_SEPARATOR)
+                    .append(grade.comments()).append('\n');
+        }
+        return sha256Hex(inputs);
+    }
 
-            yPosition = addHeader(contentStream, page, yPosition, "Student Grade Report");
-            yPosition = addStudentInfo(contentStream, page, yPosition, student);
-            yPosition = addGradesTable(document, contentStream, page, yPosition, grades);
+    private static String sha256Hex(CharSequence inputs) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        return HexFormat.of().formatHex(digest.digest(inputs.toString().getBytes(StandardCharsets.UTF_8)));
+    }
 
-            Double overallAverage = calculationService.calculateOverallAverage(studentId);
-            if (overallAverage != null && !Double.isNaN(overallAverage)) {
-                yPosition -= 30; // Space before average
-                PDType1Font fontBold = PDType1Font.HELVETICA_BOLD;
-                addText(contentStream, 50, yPosition, "Overall Weighted Average:", fontBold, 12);
-                addText(contentStream, 250, yPosition, String.format("%.2f", overallAverage), fontBold, 12);
+    private static String reportFilename(StudentReportBatch.StudentInfo student) {
+        return "grade_report_" + student.username() + "_" + student.id() + ".pdf";
+    }
+
+    // --- Transcripts ---
+
+    // Content streams of standalone pages, rendered for PdfReportTemplate.fragmentForm
+    private final class FragmentPages {
+        private final PDDocument scratch;
+        private final List<byte[]> pages = new ArrayList<>();
+        private ByteArrayOutputStream content;
+        private PDPageContentStream contentStream;
+        private float y;
+
+        private FragmentPages(PDDocument scratch) {
+            this.scratch = scratch;
+        }
+
+        private PDPageContentStream newPage() throws IOException {
+            finishPage();
+            PDFormXObject form = new PDFormXObject(scratch);
+            form.setResources(pdfReportTemplate.fragmentResources());
+            content = new ByteArrayOutputStream();
+            contentStream = new PDPageContentStream(scratch, form, content);
+            y = PdfReportTemplate.TITLE_Y;
+            return contentStream;
+        }
+
+        private List<byte[]> finish() throws IOException {
+            finishPage();
+            return pages;
+        }
+
+        private void finishPage() throws IOException {
+            if (contentStream != null) {
+                contentStream.close();
+                pages.add(content.toByteArray());
+                contentStream = null;
             }
+        }
+    }
 
-            contentStream.close();
-            document.save(out);
-            logger.info("Generated grade report PDF for student ID: {}", studentId);
-            return new ByteArrayInputStream(out.toByteArray());
+    // Writes a table header with its rule at y; returns the position of the first row
+    private float addTableHeader(PDPageContentStream contentStream, float y, String[] headers, float[] colWidths) throws IOException {
+        PDType1Font fontBold = PDType1Font.HELVETICA_BOLD;
+        float x = PdfReportTemplate.MARGIN;
+        for (int i = 0; i < headers.length; i++) {
+            addText(contentStream, x + PdfReportTemplate.CELL_PADDING, y + 5, headers[i], fontBold, 10);
+            x += colWidths[i];
+        }
+        contentStream.moveTo(PdfReportTemplate.MARGIN, y - 5);
+        contentStream.lineTo(PdfReportTemplate.PAGE_SIZE.getWidth() - PdfReportTemplate.MARGIN, y - 5);
+        contentStream.stroke();
+        return y - 5 - PdfReportTemplate.ROW_HEIGHT;
+    }
 
-        } catch (IOException e) {
-            logger.error("Error generating PDF grade report for student ID {}: {}", studentId, e.getMessage(), e);
-            throw e; // Re-throw exception
+    private void addTableRow(PDPageContentStream contentStream, float y, String[] cells, float[] colWidths) throws IOException {
+        PDType1Font font = PDType1Font.HELVETICA;
+        float x = PdfReportTemplate.MARGIN;
+        for (int i = 0; i < cells.length; i++) {
+            addText(contentStream, x + PdfReportTemplate.CELL_PADDING, y + 5, cells[i], font, 10);
+            x += colWidths[i];
         }
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public ByteArrayInputStream generateStudentTranscript(Long studentId) throws IOException {
-        logger.info("Generating transcript (currently same as report) for student ID: {}", studentId);
-        return generateStudentGradeReport(studentId);
+    private static String formatAverage(Double average) {
+        return average != null && !Double.isNaN(average) ? String.format("%.2f", average) : "N/A";
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public ByteArrayInputStream generateBulkStudentReports(List<Long> studentIds) throws IOException {
-        logger.info("Generating bulk PDF reports for {} students", studentIds.size());
+    private static String termTitle(StudentTranscript.Term term) {
+        return term.name() != null ? term.name() : "Grades without semester";
+    }
 
-        if (studentIds.isEmpty()) {
-            throw new IllegalArgumentException("No student IDs provided");
+    private static String termPeriod(StudentTranscript.Term term) {
+        return term.startDate() != null
+                ? DATE_FORMATTER.format(term.startDate()) + " to " + DATE_FORMATTER.format(term.endDate())
+                : "";
+    }
+
+    // Renders the section of one semester into page fragments, continuing on new pages as needed
+    private List<byte[]> renderTermSection(StudentTranscript.Term term) throws IOException {
+        try (PDDocument scratch = new PDDocument()) {
+            FragmentPages pages = new FragmentPages(scratch);
+            PDPageContentStream contentStream = pages.newPage();
+            PDType1Font fontBold = PDType1Font.HELVETICA_BOLD;
+            addText(contentStream, PdfReportTemplate.MARGIN, pages.y, termTitle(term), fontBold, 14);
+            addText(contentStream, PdfReportTemplate.MARGIN, pages.y - PdfReportTemplate.INFO_LINE_HEIGHT,
+                    termPeriod(term), PDType1Font.HELVETICA, 12);
+            pages.y = addTableHeader(contentStream, pages.y - 2 * PdfReportTemplate.INFO_LINE_HEIGHT - 20,
+                    TERM_HEADERS, TERM_COLUMN_WIDTHS);
+
+            for (StudentTranscript.SubjectResult subject : term.subjects()) {
+                if (pages.y < 50) {
+                    contentStream = pages.newPage();
+                    addText(contentStream, PdfReportTemplate.MARGIN, pages.y, termTitle(term) + " (continued)", fontBold, 14);
+                    pages.y = addTableHeader(contentStream, pages.y - 30, TERM_HEADERS, TERM_COLUMN_WIDTHS);
+                }
+                addTableRow(contentStream, pages.y, new String[] {
+                        subject.subjectName(),
+                        subject.coefficient() != null ? String.format("%.1f", subject.coefficient()) : "N/A",
+                        String.valueOf(subject.gradeCount()),
+                        formatAverage(subject.average())
+                }, TERM_COLUMN_WIDTHS);
+                pages.y -= PdfReportTemplate.ROW_HEIGHT;
+            }
+
+            pages.y -= 30; // Space before average
+            addText(contentStream, 50, pages.y, "Semester Weighted Average:", fontBold, 12);
+            addText(contentStream, 250, pages.y, formatAverage(term.average()), fontBold, 12);
+            return pages.finish();
         }
+    }
 
-        try (ByteArrayOutputStream zipOut = new ByteArrayOutputStream();
-             ZipOutputStream zipStream = new ZipOutputStream(zipOut)) {
+    // Sections of closed semesters no longer change, so they are rendered once and then taken from the cache
+    private List<byte[]> termSection(StudentTranscript.Term term, LocalDate today) throws IOException {
+        if (!term.isClosed(today)) {
+            return renderTermSection(term);
+        }
 
-            for (Long studentId : studentIds) {
-                try {
-                    Student student = studentRepository.findById(studentId)
-                            .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
+        StringBuilder inputs = new StringBuilder()
+                .append("transcript-term:").append(PdfReportTemplate.TEMPLATE_VERSION).append('\n')
+                .append(term.semesterId()).append(FIELD_SEPARATOR).append(term.name()).append(FIELD_SEPARATOR)
+                .append(term.startDate()).append(FIELD_SEPARATOR).append(term.endDate()).append(FIELD_SEPARATOR)
+                .append(term.average()).append('\n');
+        for (StudentTranscript.SubjectResult subject : term.subjects()) {
+            inputs.append(subject.subjectName()).append(FIELD_SEPARATOR).append(subject.coefficient()).append(FIELD_SEPARATOR)
+                    .append(subject.gradeCount()).append(FIELD_SEPARATOR).append(subject.average()).append('\n');
+        }
+        String digest = sha256Hex(inputs);
 
-                    ByteArrayInputStream pdfStream = generateStudentGradeReport(studentId);
-                    byte[] pdfBytes = pdfStream.readAllBytes();
+        byte[] cached = reportArtifactCache.get(digest);
+        if (cached != null) {
+            return decodePages(cached);
+        }
+        List<byte[]> pages = renderTermSection(term);
+        reportArtifactCache.put(digest, encodePages(pages));
+        return pages;
+    }
+
+    private byte[] renderTranscript(StudentTranscript transcript, LocalDate today) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PageCursor cursor = new PageCursor(document, pdfReportTemplate.forDocument(document));
+            try {
+                // Summary page, rendered every time
+                PDPageContentStream contentStream = cursor.newPage();
+                PDType1Font fontBold = PDType1Font.HELVETICA_BOLD;
+                addText(contentStream, PdfReportTemplate.MARGIN, PdfReportTemplate.TITLE_Y, "Academic Transcript", fontBold, 16);
+                String[] labels = { "Student Name:", "Username:", "Email:" };
+                for (int i = 0; i < labels.length; i++) {
+                    addText(contentStream, PdfReportTemplate.MARGIN,
+                            PdfReportTemplate.FIRST_INFO_Y - i * PdfReportTemplate.INFO_LINE_HEIGHT, labels[i], fontBold, 12);
+                }
+                addStudentInfo(contentStream, transcript.student());
+
+                cursor.y = addTableHeader(contentStream, PdfReportTemplate.TABLE_HEADER_Y, SUMMARY_HEADERS, SUMMARY_COLUMN_WIDTHS);
+                for (StudentTranscript.Term term : transcript.terms()) {
+                    if (cursor.y < 50) {
+                        cursor.y = addTableHeader(cursor.newPage(), PdfReportTemplate.TITLE_Y, SUMMARY_HEADERS, SUMMARY_COLUMN_WIDTHS);
+                    }
+                    addTableRow(cursor.contentStream, cursor.y, new String[] {
+                            termTitle(term),
+                            termPeriod(term),
+                            term.isClosed(today) ? "Completed" : "In progress",
+                            formatAverage(term.average())
+                    }, SUMMARY_COLUMN_WIDTHS);
+                    cursor.y -= PdfReportTemplate.ROW_HEIGHT;
+                }
 
-                    String filename = "grade_report_" + student.getUsername() + "_" + studentId + ".pdf";
-                    ZipEntry entry = new ZipEntry(filename);
-                    zipStream.putNextEntry(entry);
-                    zipStream.write(pdfBytes);
-                    zipStream.closeEntry();
+                cursor.y -= 30; // Space before average
+                addText(cursor.contentStream, 50, cursor.y, "Cumulative Weighted Average:", fontBold, 12);
+                addText(cursor.contentStream, 250, cursor.y, formatAverage(transcript.cumulativeAverage()), fontBold, 12);
 
-                    logger.info("Added report for student {} to bulk ZIP", studentId);
-                } catch (EntityNotFoundException e) {
-                    logger.warn("Skipping student ID {} in bulk report: {}", studentId, e.getMessage());
+                // One section per semester, each starting on a new page
+                for (StudentTranscript.Term term : transcript.terms()) {
+                    for (byte[] page : termSection(term, today)) {
+                        cursor.newPage().drawForm(pdfReportTemplate.fragmentForm(document, page));
+                    }
                 }
+            } finally {
+                cursor.contentStream.close();
+            }
+
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    // Page fragments are cached as one entry: page count, then the length and bytes of each page
+    private static byte[] encodePages(List<byte[]> pages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(pages.size());
+            for (byte[] page : pages) {
+                out.writeInt(page.length);
+                out.write(page);
             }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<byte[]> decodePages(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            List<byte[]> pages = new ArrayList<>();
+            for (int count = in.readInt(); count > 0; count--) {
+                byte[] page = new byte[in.readInt()];
+                in.readFully(page);
+                pages.add(page);
+            }
+            return pages;
+        }
+    }
+
+    // --- Service Method Implementations ---
+
+    @Override
+    public ByteArrayInputStream generateStudentGradeReport(Long studentId) throws IOException {
+        // Unchanged since last served on this node: one version query and no rendering
+        Long reportVersion = studentRepository.findReportVersionById(studentId)
+                .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
+        String knownDigest = reportArtifactCache.digestFor(studentId, reportVersion);
+        byte[] cached = knownDigest != null ? reportArtifactCache.get(knownDigest) : null;
+        if (cached != null) {
+            logger.info("Served cached grade report PDF for student ID: {}", studentId);
+            return new ByteArrayInputStream(cached);
+        }
+
+        StudentReportBatch batch = studentReportLoader.load(List.of(studentId));
+        if (batch.reports().isEmpty()) {
+            throw new EntityNotFoundException("Student not found with ID: " + studentId);
+        }
+
+        try {
+            StudentReportBatch.Report report = batch.reports().get(0);
+            String digest = reportDigest(report);
+            byte[] pdf = renderCached(report, digest);
+            reportArtifactCache.rememberDigest(studentId, reportVersion, digest);
+            logger.info("Generated grade report PDF for student ID: {}", studentId);
+            return new ByteArrayInputStream(pdf);
+        } catch (IOException e) {
+            logger.error("Error generating PDF grade report for student ID {}: {}", studentId, e.getMessage(), e);
+            throw e; // Re-throw exception
+        }
+    }
 
-            zipStream.finish();
-            zipStream.close();
+    @Override
+    public ByteArrayInputStream generateStudentTranscript(Long studentId) throws IOException {
+        StudentTranscript transcript = studentReportLoader.loadTranscript(studentId);
 
-            logger.info("Completed bulk PDF report generation for {} students", studentIds.size());
-            return new ByteArrayInputStream(zipOut.toByteArray());
+        try {
+            byte[] pdf = renderTranscript(transcript, LocalDate.now());
+            logger.info("Generated transcript PDF for student ID: {} ({} semesters)", studentId, transcript.terms().size());
+            return new ByteArrayInputStream(pdf);
         } catch (IOException e) {
-            logger.error("Error generating bulk PDF reports: {}", e.getMessage(), e);
+            logger.error("Error generating PDF transcript for student ID {}: {}", studentId, e.getMessage(), e);
             throw e;
         }
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public ByteArrayInputStream generateClassReports(Long classSectionId) throws IOException {
-        logger.info("Generating PDF reports for all students in class ID: {}", classSectionId);
+    public StudentReportBatch prepareBulkStudentReports(List<Long> studentIds) {
+        logger.info("Preparing bulk PDF reports for {} students", studentIds.size());
 
-        ClassSection classSection = classSectionRepository.findById(classSectionId)
-                .orElseThrow(() -> new EntityNotFoundException("Class section not found with ID: " + classSectionId));
+        if (studentIds.isEmpty()) {
+            throw new IllegalArgumentException("No student IDs provided");
+        }
+        return studentReportLoader.load(studentIds);
+    }
 
-        Set<Student> students = classSection.getStudents();
+    @Override
+    @Transactional(readOnly = true)
+    public StudentReportBatch prepareClassReports(Long classSectionId) {
+        logger.info("Preparing PDF reports for all students in class ID: {}", classSectionId);
+
+        // Roster IDs only; the loader fetches the students themselves
+        List<Long> studentIds = classSectionRepository.findStudentIdsByClassId(classSectionId).stream()
+                .map(Number::longValue)
+                .collect(Collectors.toList());
 
-        if (students.isEmpty()) {
+        if (studentIds.isEmpty()) {
+            if (!classSectionRepository.existsById(classSectionId)) {
+                throw new EntityNotFoundException("Class section not found with ID: " + classSectionId);
+            }
             logger.warn("No students found in class with ID: {}", classSectionId);
             throw new IllegalStateException("No students enrolled in class with ID: " + classSectionId);
         }
 
-        List<Long> studentIds = students.stream()
-                .map(Student::getId)
-                .collect(Collectors.toList());
-
-        logger.info("Generating reports for {} students in class ID: {}", studentIds.size(), classSectionId);
-        return generateBulkStudentReports(studentIds);
+        logger.info("Preparing reports for {} students in class ID: {}", studentIds.size(), classSectionId);
+        return studentReportLoader.load(studentIds);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public ByteArrayInputStream generateSemesterReports(Long semesterId) throws IOException {
-        logger.info("Generating PDF reports for all students in semester ID: {}", semesterId);
-
-        Semester semester = semesterRepository.findById(semesterId)
-                .orElseThrow(() -> new EntityNotFoundException("Semester not found with ID: " + semesterId));
+    public StudentReportBatch prepareSemesterReports(Long semesterId) {
+        logger.info("Preparing PDF reports for all students in semester ID: {}", semesterId);
 
-        List<Grade> gradesInSemester = gradeRepository.findBySemester(semester);
+        List<Long> studentIds = gradeRepository.findStudentIdsBySemesterId(semesterId);
 
-        if (gradesInSemester.isEmpty()) {
+        if (studentIds.isEmpty()) {
+            if (!semesterRepository.existsById(semesterId)) {
+                throw new EntityNotFoundException("Semester not found with ID: " + semesterId);
+            }
             logger.warn("No grades found in semester with ID: {}", semesterId);
             throw new IllegalStateException("No grades recorded in semester with ID: " + semesterId);
         }
 
-        List<Long> studentIds = gradesInSemester.stream()
-                .map(grade -> grade.getStudent().getId())
-                .distinct()
-                .collect(Collectors.toList());
+        logger.info("Preparing reports for {} students with grades in semester ID: {}", studentIds.size(), semesterId);
+        return studentReportLoader.load(studentIds);
+    }
+
+    @Override
+    public void writeReportsZip(StudentReportBatch batch, OutputStream out, IntConsumer progress) throws IOException {
+        long start = System.nanoTime();
+
+        // Render on the worker pool, keeping at most maxInFlight reports in memory; entries are
+        // written in batch order, so the ZIP is the same whatever the completion order. PDFs are
+        // already compressed, so they are stored as-is instead of being deflated again.
+        ParallelZipWriter zip = new ParallelZipWriter(out, reportRenderExecutor, maxInFlight, progress);
+        try {
+            for (StudentReportBatch.Report report : batch.reports()) {
+                String digest = reportDigest(report);
+                byte[] cached = reportArtifactCache.get(digest);
+                if (cached != null) {
+                    zip.add(reportFilename(report.student()), cached);
+                } else {
+                    zip.add(reportFilename(report.student()), () -> renderCached(report, digest));
+                }
+            }
+            zip.finish();
+        } catch (IOException e) {
+            logger.error("Error writing PDF reports ZIP after {} of {} reports: {}",
+                    zip.entriesWritten(), batch.size(), e.getMessage(), e);
+            throw e;
+        } finally {
+            zip.abort(); // Only cancels anything after a failure
+        }
+
+        logger.info("Completed bulk PDF report generation: {} reports in {} ms",
+                zip.entriesWritten(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void writeMergedReportsPdf(StudentReportBatch batch, OutputStream out, IntConsumer progress) throws IOException {
+        long start = System.nanoTime();
+        int written = 0;
+
+        // One document for the whole batch: the background and header forms are embedded once and
+        // drawn on every page, and page content beyond the memory budget is kept in a scratch file
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupMixed(mergeMemoryBytes))) {
+            PageCursor cursor = new PageCursor(document, pdfReportTemplate.forDocument(document));
+            try {
+                for (StudentReportBatch.Report report : batch.reports()) {
+                    addGradeReport(cursor, report);
+                    progress.accept(++written);
+                }
+            } finally {
+                if (cursor.contentStream != null) {
+                    cursor.contentStream.close();
+                }
+            }
+            document.save(StreamUtils.nonClosing(out)); // PDFBox closes the stream it saves to
+        } catch (IOException e) {
+            logger.error("Error writing merged PDF reports after {} of {} reports: {}", written, batch.size(), e.getMessage(), e);
+            throw e;
+        }
 
-        logger.info("Generating reports for {} students with grades in semester ID: {}", studentIds.size(), semesterId);
-        return generateBulkStudentReports(studentIds);
+        logger.info("Completed merged PDF report generation: {} reports in {} ms",
+                written, (System.nanoTime() - start) / 1_000_000);
     }
 }
@@ -0,0 +1,267 @@
+package com.richardmogou.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Cache of generated report files, keyed by a digest of everything the report shows.
+ * <p>
+ * Since the key is derived from the content, an entry can never be stale: changed data gives
+ * a different key, and unused entries age out. Grade exports use the same guarantee with keys
+ * made of their scope's export watermark (see {@link ExportWatermarkService}). Entries live in two LRU tiers, a bounded
+ * off-heap memory tier and a bounded directory on local disk. Entries evicted from memory
+ * move to disk, and disk hits move back to memory.
+ * <p>
+ * On top of that, the cache remembers the last digest served for each student along with the
+ * student's report version (see {@link ReportVersionTracker}), so that a report whose version is
+ * still current in the database can be served without loading its data.
+ */
+@Component
+public class ReportArtifactCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportArtifactCache.class);
+
+    private static final String FILE_SUFFIX = ".bin";
+
+    @Value("${reports.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reports.cache.memory-bytes:67108864}")
+    private long maxMemoryBytes;
+
+    @Value("${reports.cache.disk-bytes:1073741824}")
+    private long maxDiskBytes;
+
+    @Value("${reports.cache.dir:report-cache}")
+    private String cacheDir;
+
+    private Path directory;
+
+    // Both tiers are guarded by this lock; file I/O happens outside of it
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, ByteBuffer> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes;
+
+    // Last digest served per student, with the report version its data was loaded at
+    private record StudentDigest(long reportVersion, String digest) {
+    }
+
+    private final Map<Long, StudentDigest> digestByStudent = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initialize() throws IOException {
+        if (!enabled) {
+            logger.info("Report artifact cache is disabled");
+            return;
+        }
+        directory = Files.createDirectories(Paths.get(cacheDir));
+
+        // Reload the disk tier left by a previous run, oldest first so that it is evicted first
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.sorted(Comparator.comparing(ReportArtifactCache::lastModified)).toList();
+        }
+        List<String> evicted = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (!name.endsWith(FILE_SUFFIX)) {
+                Files.deleteIfExists(file); // Unfinished write
+                continue;
+            }
+            String digest = name.substring(0, name.length() - FILE_SUFFIX.length());
+            long size = Files.size(file);
+            synchronized (lock) {
+                disk.put(digest, size);
+                diskBytes += size;
+                evicted.addAll(evictFromDisk());
+            }
+        }
+        evicted.forEach(this::deleteFile);
+        logger.info("Report artifact cache ready: {} entries ({} bytes) on disk in {}", disk.size(), diskBytes, directory.toAbsolutePath());
+    }
+
+    /**
+     * Gets a cached report.
+     *
+     * @param digest The digest of the report's inputs.
+     * @return The report bytes, or null if the report is not cached.
+     */
+    public byte[] get(String digest) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (lock) {
+            ByteBuffer buffer = memory.get(digest);
+            if (buffer != null) {
+                byte[] data = new byte[buffer.capacity()];
+                buffer.duplicate().get(data);
+                return data;
+            }
+            if (!disk.containsKey(digest)) {
+                return null;
+            }
+        }
+
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file(digest));
+        } catch (IOException e) {
+            logger.warn("Could not read cached report {}: {}", digest, e.getMessage());
+            synchronized (lock) {
+                Long size = disk.remove(digest);
+                if (size != null) {
+                    diskBytes -= size;
+                }
+            }
+            return null;
+        }
+        putInMemory(digest, data);
+        return data;
+    }
+
+    /**
+     * Caches a report.
+     *
+     * @param digest The digest of the report's inputs.
+     * @param data The report bytes.
+     */
+    public void put(String digest, byte[] data) {
+        if (enabled) {
+            putInMemory(digest, data);
+        }
+    }
+
+    /**
+     * Gets the digest of the last report served for a student, if it was loaded at the given version.
+     *
+     * @param studentId The ID of the student.
+     * @param reportVersion The student's current report version, read from the database.
+     * @return The digest, or null if it is unknown or outdated.
+     */
+    public String digestFor(Long studentId, long reportVersion) {
+        if (!enabled) {
+            return null;
+        }
+        StudentDigest known = digestByStudent.get(studentId);
+        return known != null && known.reportVersion() == reportVersion ? known.digest() : null;
+    }
+
+    /**
+     * Remembers the digest of a student's report.
+     *
+     * @param studentId The ID of the student.
+     * @param reportVersion The student's report version, read before loading the report's data: a
+     *                      change committed during the load then only makes the remembered version older.
+     * @param digest The digest of the report.
+     */
+    public void rememberDigest(Long studentId, long reportVersion, String digest) {
+        if (enabled) {
+            digestByStudent.merge(studentId, new StudentDigest(reportVersion, digest),
+                    (known, loaded) -> loaded.reportVersion() >= known.reportVersion() ? loaded : known);
+        }
+    }
+
+    private void putInMemory(String digest, byte[] data) {
+        if (data.length > maxMemoryBytes) {
+            writeToDisk(digest, ByteBuffer.wrap(data));
+            return;
+        }
+
+        List<Map.Entry<String, ByteBuffer>> evicted = new ArrayList<>();
+        synchronized (lock) {
+            if (memory.containsKey(digest)) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+            buffer.put(data).flip();
+            memory.put(digest, buffer);
+            memoryBytes += data.length;
+
+            Iterator<Map.Entry<String, ByteBuffer>> oldest = memory.entrySet().iterator();
+            while (memoryBytes > maxMemoryBytes && oldest.hasNext()) {
+                Map.Entry<String, ByteBuffer> entry = oldest.next();
+                oldest.remove();
+                memoryBytes -= entry.getValue().capacity();
+                evicted.add(entry);
+            }
+        }
+        evicted.forEach(entry -> writeToDisk(entry.getKey(), entry.getValue()));
+    }
+
+    private void writeToDisk(String digest, ByteBuffer buffer) {
+        synchronized (lock) {
+            if (disk.containsKey(digest)) {
+                return;
+            }
+        }
+
+        Path target = file(digest);
+        try {
+            Path temporary = Files.createTempFile(directory, digest, ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer source = buffer.duplicate();
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write cached report {} to disk: {}", digest, e.getMessage());
+            return;
+        }
+
+        List<String> evicted;
+        synchronized (lock) {
+            Long previous = disk.put(digest, (long) buffer.capacity());
+            diskBytes += buffer.capacity() - (previous != null ? previous : 0);
+            evicted = evictFromDisk();
+        }
+        evicted.forEach(this::deleteFile);
+    }
+
+    // Removes least recently used disk entries beyond the budget; the caller deletes their files
+    private List<String> evictFromDisk() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> oldest = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && oldest.hasNext()) {
+            Map.Entry<String, Long> entry = oldest.next();
+            oldest.remove();
+            diskBytes -= entry.getValue();
+            evicted.add(entry.getKey());
+        }
+        return evicted;
+    }
+
+    private void deleteFile(String digest) {
+        try {
+            Files.deleteIfExists(file(digest));
+        } catch (IOException e) {
+            logger.warn("Could not delete cached report {}: {}", digest, e.getMessage());
+        }
+    }
+
+    private Path file(String digest) {
+        return directory.resolve(digest + FILE_SUFFIX);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
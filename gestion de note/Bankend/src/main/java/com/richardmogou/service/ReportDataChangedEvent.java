@@ -0,0 +1,24 @@
+package com.richardmogou.service;
+
+import java.util.Set;
+
+/**
+ * Published when data shown on grade reports changes: grades, student details, subjects
+ * or assessment weights. {@link ReportVersionTracker} records it in the publishing transaction.
+ *
+ * @param studentIds The students whose reports changed; empty when every report may have changed.
+ */
+public record ReportDataChangedEvent(Set<Long> studentIds) {
+
+    public static ReportDataChangedEvent forStudent(Long studentId) {
+        return new ReportDataChangedEvent(Set.of(studentId));
+    }
+
+    public static ReportDataChangedEvent forAllStudents() {
+        return new ReportDataChangedEvent(Set.of());
+    }
+
+    public boolean affectsAllStudents() {
+        return studentIds.isEmpty();
+    }
+}
@@ -0,0 +1,14 @@
+package com.richardmogou.service;
+
+import java.nio.file.Path;
+
+/**
+ * The file produced by a completed report job.
+ *
+ * @param path Location of the file in the artifact directory.
+ * @param filename Name under which the file is downloaded.
+ * @param contentType Media type of the file.
+ * @param size Size of the file in bytes.
+ */
+public record ReportJobArtifact(Path path, String filename, String contentType, long size) {
+}
@@ -0,0 +1,62 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.ReportJobDto;
+import com.richardmogou.dto.ReportJobRequestDto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Background generation of PDF and Excel reports.
+ * Jobs are persisted, run on a bounded pool and write their result to the artifact directory,
+ * from which it is downloaded once the job has completed. With several nodes, a job runs on the
+ * node it was submitted to, or on the node that took it over once its owner stopped refreshing it.
+ */
+public interface ReportJobService {
+
+    /**
+     * Records a report job and queues it for execution.
+     *
+     * @param request The kind of report and its target.
+     * @param requestedById The ID of the user submitting the job.
+     * @return The queued job.
+     * @throws IllegalArgumentException If the target required by the report type is missing.
+     * @throws IllegalStateException If the job queue is full.
+     */
+    ReportJobDto submitJob(ReportJobRequestDto request, Long requestedById);
+
+    /**
+     * Gets the state and progress of a job.
+     *
+     * @param jobId The ID of the job.
+     * @return The job.
+     * @throws jakarta.persistence.EntityNotFoundException If the job is not found.
+     */
+    ReportJobDto getJob(Long jobId);
+
+    /**
+     * Lists jobs, most recent first.
+     *
+     * @param pageable Paging information.
+     * @return A page of jobs.
+     */
+    Page<ReportJobDto> listJobs(Pageable pageable);
+
+    /**
+     * Gets the file produced by a completed job.
+     *
+     * @param jobId The ID of the job.
+     * @return The artifact.
+     * @throws jakarta.persistence.EntityNotFoundException If the job or its file is not found.
+     * @throws IllegalStateException If the job has not completed.
+     */
+    ReportJobArtifact getArtifact(Long jobId);
+
+    /**
+     * Deletes a job that is not running, along with its artifact.
+     *
+     * @param jobId The ID of the job.
+     * @throws jakarta.persistence.EntityNotFoundException If the job is not found.
+     * @throws IllegalStateException If the job is running.
+     */
+    void deleteJob(Long jobId);
+}
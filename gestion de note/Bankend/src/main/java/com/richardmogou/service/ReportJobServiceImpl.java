@@ -0,0 +1,387 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.ReportJobDto;
+import com.richardmogou.dto.ReportJobRequestDto;
+import com.richardmogou.model.ReportJob;
+import com.richardmogou.model.ReportJobStatus;
+import com.richardmogou.model.ReportJobType;
+import com.richardmogou.repository.ReportJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@Service
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobServiceImpl.class);
+
+    private static final int MAX_STUDENT_IDS = 10_000;
+    private static final String ZIP_CONTENT_TYPE = "application/zip";
+    private static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    private static final List<ReportJobStatus> UNFINISHED = List.of(ReportJobStatus.QUEUED, ReportJobStatus.RUNNING);
+
+    @Autowired
+    private ReportJobRepository reportJobRepository;
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private ExcelService excelService;
+
+    @Autowired
+    @Qualifier("reportJobExecutor")
+    private ThreadPoolTaskExecutor reportJobExecutor;
+
+    @Value("${reports.jobs.artifact-dir:report-artifacts}")
+    private String artifactDir;
+
+    @Value("${reports.jobs.node-id:}")
+    private String nodeId; // Blank = the host name
+
+    @Value("${reports.jobs.heartbeat-seconds:30}")
+    private int heartbeatSeconds;
+
+    @Value("${reports.jobs.lease-seconds:120}")
+    private int leaseSeconds;
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    // Reports written so far by running jobs; persisted only when the job finishes
+    private final Map<Long, AtomicInteger> progressByJob = new ConcurrentHashMap<>();
+
+    // Type and result of one generation run
+    private record Output(String filename, String contentType) {
+    }
+
+    @PostConstruct
+    void initializeNodeId() {
+        if (nodeId == null || nodeId.isBlank()) {
+            try {
+                nodeId = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                nodeId = UUID.randomUUID().toString(); // Unique, but jobs of a previous run wait for their lease to expire
+            }
+        }
+    }
+
+    /**
+     * Puts this node's jobs interrupted by a shutdown back in its queue, takes over the jobs of nodes
+     * that stopped refreshing their heartbeat and submits them all. Jobs queued or running on other
+     * live nodes are left to them. Then refreshes the heartbeat of this node's jobs periodically.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        int requeued = reportJobRepository.requeueOwnJobs(UNFINISHED, ReportJobStatus.QUEUED, nodeId, LocalDateTime.now());
+        int takenOver = takeOverExpiredJobs().size();
+        List<ReportJob> queued = reportJobRepository.findByOwnerNodeAndStatusOrderByIdAsc(nodeId, ReportJobStatus.QUEUED);
+        if (!queued.isEmpty()) {
+            logger.info("Resuming {} queued report jobs on node {} ({} interrupted, {} taken over from other nodes)",
+                    queued.size(), nodeId, requeued, takenOver);
+            queued.forEach(this::submitQueued);
+        }
+
+        if (heartbeatExecutor != null) {
+            return;
+        }
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "report-job-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeatSafely, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stopHeartbeat() {
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+    }
+
+    // Keeps this node's jobs alive and takes over the jobs of nodes that stopped
+    private void heartbeatSafely() {
+        try {
+            reportJobRepository.heartbeat(UNFINISHED, nodeId, LocalDateTime.now());
+            for (Long jobId : takeOverExpiredJobs()) {
+                logger.warn("Report job {} taken over by node {}: its node stopped refreshing it", jobId, nodeId);
+                submitQueued(findJob(jobId));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Report job heartbeat of node {} failed: {}", nodeId, e.getMessage());
+        }
+    }
+
+    // Moves the unfinished jobs whose lease expired to this node's queue, one conditional update each
+    private List<Long> takeOverExpiredJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiredBefore = now.minusSeconds(leaseSeconds);
+        List<Long> takenOver = new ArrayList<>();
+        for (Long jobId : reportJobRepository.findExpiredJobIds(UNFINISHED, expiredBefore)) {
+            if (reportJobRepository.takeOver(jobId, UNFINISHED, ReportJobStatus.QUEUED, nodeId, now, expiredBefore) == 1) {
+                takenOver.add(jobId);
+            }
+        }
+        return takenOver;
+    }
+
+    // Hands a job queued on this node to the pool; fails it if the pool is full
+    private void submitQueued(ReportJob job) {
+        try {
+            reportJobExecutor.execute(() -> runJob(job.getId()));
+        } catch (TaskRejectedException e) {
+            logger.warn("Report job queue full while resuming; job {} marked as failed", job.getId());
+            job.setStatus(ReportJobStatus.FAILED);
+            job.setErrorMessage("Job could not be resumed: the job queue is full");
+            job.setFinishedAt(LocalDateTime.now());
+            reportJobRepository.save(job);
+        }
+    }
+
+    @Override
+    public ReportJobDto submitJob(ReportJobRequestDto request, Long requestedById) {
+        ReportJobType type = request.getType();
+        String studentIds = null;
+        if (type == ReportJobType.PDF_STUDENTS) {
+            if (request.getStudentIds() == null || request.getStudentIds().isEmpty()) {
+                throw new IllegalArgumentException("Student IDs are required for " + type + " jobs");
+            }
+            if (request.getStudentIds().size() > MAX_STUDENT_IDS) {
+                throw new IllegalArgumentException("At most " + MAX_STUDENT_IDS + " student IDs can be processed per job");
+            }
+            studentIds = request.getStudentIds().stream().map(String::valueOf).collect(Collectors.joining(","));
+        } else if (type != ReportJobType.EXCEL_ALL && request.getTargetId() == null) {
+            throw new IllegalArgumentException("Target ID is required for " + type + " jobs");
+        }
+
+        ReportJob newJob = new ReportJob(type, request.getTargetId(), studentIds, requestedById);
+        newJob.setOwnerNode(nodeId);
+        newJob.setHeartbeatAt(LocalDateTime.now());
+        ReportJob job = reportJobRepository.save(newJob);
+        try {
+            reportJobExecutor.execute(() -> runJob(job.getId()));
+        } catch (TaskRejectedException e) {
+            reportJobRepository.delete(job);
+            throw new IllegalStateException("Too many report jobs are queued, try again later");
+        }
+
+        logger.info("Queued report job {} ({}) for user {}", job.getId(), type, requestedById);
+        return convertToDto(job);
+    }
+
+    @Override
+    public ReportJobDto getJob(Long jobId) {
+        return convertToDto(findJob(jobId));
+    }
+
+    @Override
+    public Page<ReportJobDto> listJobs(Pageable pageable) {
+        return reportJobRepository.findAllByOrderByIdDesc(pageable).map(this::convertToDto);
+    }
+
+    @Override
+    public ReportJobArtifact getArtifact(Long jobId) {
+        ReportJob job = findJob(jobId);
+        if (job.getStatus() != ReportJobStatus.COMPLETED) {
+            throw new IllegalStateException("Report job " + jobId + " is " + job.getStatus() + ", no artifact available");
+        }
+        Path path = Paths.get(job.getArtifactPath());
+        if (!Files.isRegularFile(path)) {
+            if (job.getOwnerNode() != null && !job.getOwnerNode().equals(nodeId)) {
+                // The artifact directory is local unless it is shared between the nodes
+                throw new EntityNotFoundException("Artifact of report job " + jobId + " was written on node "
+                        + job.getOwnerNode() + " and is not in the artifact directory of node " + nodeId);
+            }
+            throw new EntityNotFoundException("Artifact of report job " + jobId + " no longer exists");
+        }
+        return new ReportJobArtifact(path, job.getFilename(), job.getContentType(), job.getArtifactSize());
+    }
+
+    @Override
+    public void deleteJob(Long jobId) {
+        ReportJob job = findJob(jobId);
+        if (reportJobRepository.deleteByIdAndStatusNot(jobId, ReportJobStatus.RUNNING) == 0) {
+            throw new IllegalStateException("Report job " + jobId + " is running and cannot be deleted");
+        }
+        if (job.getArtifactPath() != null) {
+            try {
+                Files.deleteIfExists(Paths.get(job.getArtifactPath()));
+            } catch (IOException e) {
+                logger.warn("Could not delete artifact {} of report job {}: {}", job.getArtifactPath(), jobId, e.getMessage());
+            }
+        }
+        logger.info("Deleted report job {}", jobId);
+    }
+
+    // --- Job execution, on the report job pool ---
+
+    private void runJob(Long jobId) {
+        // Claim the job; it may have been deleted or taken over by another node while it was queued
+        if (reportJobRepository.claim(jobId, ReportJobStatus.QUEUED, ReportJobStatus.RUNNING, nodeId, LocalDateTime.now()) == 0) {
+            logger.info("Report job {} is no longer queued, skipping", jobId);
+            return;
+        }
+        ReportJob job = findJob(jobId);
+        logger.info("Running report job {} ({})", jobId, job.getType());
+
+        AtomicInteger processed = new AtomicInteger();
+        progressByJob.put(jobId, processed);
+        Path partial = null;
+        try {
+            Path directory = Files.createDirectories(Paths.get(artifactDir));
+            partial = Files.createTempFile(directory, jobId + "-", ".part"); // Unique if two nodes ever run the job
+            Output output;
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                output = generate(job, out, processed);
+            }
+
+            Path artifact = directory.resolve(jobId + "-" + output.filename());
+            Files.move(partial, artifact, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.setFilename(output.filename());
+            job.setContentType(output.contentType());
+            job.setArtifactPath(artifact.toAbsolutePath().toString());
+            job.setArtifactSize(Files.size(artifact));
+            job.setStatus(ReportJobStatus.COMPLETED);
+            logger.info("Report job {} completed: {} ({} bytes)", jobId, output.filename(), job.getArtifactSize());
+        } catch (Exception e) {
+            logger.error("Report job {} failed: {}", jobId, e.getMessage(), e);
+            job.setStatus(ReportJobStatus.FAILED);
+            job.setErrorMessage(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            deletePartial(partial);
+        } finally {
+            job.setProcessedItems(processed.get());
+            job.setFinishedAt(LocalDateTime.now());
+            if (reportJobRepository.saveOutcomeIfOwner(job, ReportJobStatus.RUNNING) == 0) {
+                logger.warn("Report job {} was taken over by another node while running on {}; outcome discarded", jobId, nodeId);
+            }
+            progressByJob.remove(jobId);
+        }
+    }
+
+    // Writes the report of a job; each prepare call loads the data in its own transaction
+    private Output generate(ReportJob job, OutputStream out, AtomicInteger processed) throws IOException {
+        Long targetId = job.getTargetId();
+        switch (job.getType()) {
+            case PDF_STUDENTS:
+                return writeReportsZip(job, pdfService.prepareBulkStudentReports(parseStudentIds(job.getStudentIds())),
+                        out, processed, "student_reports.zip");
+            case PDF_CLASS:
+                return writeReportsZip(job, pdfService.prepareClassReports(targetId),
+                        out, processed, "class_" + targetId + "_reports.zip");
+            case PDF_SEMESTER:
+                return writeReportsZip(job, pdfService.prepareSemesterReports(targetId),
+                        out, processed, "semester_" + targetId + "_reports.zip");
+            case EXCEL_STUDENT:
+                return writeExcel(job, excelService.prepareStudentGradesExport(targetId),
+                        out, processed, "student_grades_" + targetId + ".xlsx");
+            case EXCEL_CLASS:
+                return writeExcel(job, excelService.prepareClassGradesExport(targetId),
+                        out, processed, "class_grades_" + targetId + ".xlsx");
+            case EXCEL_SEMESTER:
+                return writeExcel(job, excelService.prepareSemesterGradesExport(targetId),
+                        out, processed, "semester_grades_" + targetId + ".xlsx");
+            case EXCEL_ALL:
+                return writeExcel(job, excelService.prepareAllGradesExport(),
+                        out, processed, "all_grades.xlsx");
+            default:
+                throw new IllegalArgumentException("Unsupported report job type: " + job.getType());
+        }
+    }
+
+    private Output writeReportsZip(ReportJob job, StudentReportBatch batch, OutputStream out,
+                                   AtomicInteger processed, String filename) throws IOException {
+        recordTotal(job, batch.size());
+        pdfService.writeReportsZip(batch, out, processed::set);
+        return new Output(filename, ZIP_CONTENT_TYPE);
+    }
+
+    private Output writeExcel(ReportJob job, GradeExport export, OutputStream out,
+                              AtomicInteger processed, String filename) throws IOException {
+        recordTotal(job, 1);
+        excelService.writeExcel(export, out);
+        processed.set(1);
+        return new Output(filename, XLSX_CONTENT_TYPE);
+    }
+
+    // Saved right away so that pollers can compute a percentage while the job runs
+    private void recordTotal(ReportJob job, int totalItems) {
+        job.setTotalItems(totalItems);
+        reportJobRepository.updateTotalItems(job.getId(), totalItems);
+    }
+
+    private List<Long> parseStudentIds(String studentIds) {
+        return Arrays.stream(studentIds.split(",")).map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    private void deletePartial(Path partial) {
+        if (partial == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(partial);
+        } catch (IOException e) {
+            logger.warn("Could not delete partial artifact {}: {}", partial, e.getMessage());
+        }
+    }
+
+    private ReportJob findJob(Long jobId) {
+        return reportJobRepository.findById(jobId)
+                .orElseThrow(() -> new EntityNotFoundException("Report job not found with ID: " + jobId));
+    }
+
+    private ReportJobDto convertToDto(ReportJob job) {
+        Integer processedItems = job.getProcessedItems();
+        Integer totalItems = job.getTotalItems();
+        AtomicInteger running = progressByJob.get(job.getId());
+        if (running != null && job.getStatus() == ReportJobStatus.RUNNING) {
+            processedItems = running.get();
+        }
+        return new ReportJobDto(
+                job.getId(),
+                job.getType(),
+                job.getStatus(),
+                job.getTargetId(),
+                job.getRequestedById(),
+                processedItems,
+                totalItems,
+                job.getFilename(),
+                job.getArtifactSize(),
+                job.getErrorMessage(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt());
+    }
+}
@@ -0,0 +1,29 @@
+package com.richardmogou.service;
+
+import com.richardmogou.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Advances the report versions of the students named by a {@link ReportDataChangedEvent}, in the
+ * transaction of the change that published it. The versions live in the database, so a report
+ * remembered on any node is known to be outdated as soon as the change commits.
+ */
+@Component
+public class ReportVersionTracker {
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @EventListener
+    @Transactional
+    public void onReportDataChanged(ReportDataChangedEvent event) {
+        if (event.affectsAllStudents()) {
+            studentRepository.incrementAllReportVersions();
+        } else {
+            studentRepository.incrementReportVersions(event.studentIds());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.richardmogou.service;
+
+import com.richardmogou.repository.ClassSectionRepository;
+import com.richardmogou.repository.GradeExportRow;
+import com.richardmogou.repository.GradeRepository;
+import com.richardmogou.repository.GradebookGradeRow;
+import com.richardmogou.repository.StudentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Warms up report and export generation after startup, so that the first real requests after a
+ * deploy do not pay for PDFBox font and template setup, POI's OOXML schema classes, Hibernate query
+ * plans and the JIT compilation of the rendering code.
+ * <p>
+ * When enabled, a background thread renders a synthetic merged PDF, Excel export and gradebook, and
+ * runs the hot report and export queries with an ID that matches nothing, for a few rounds. It goes
+ * one step at a time and waits while the report pools are busy, so it never competes with real
+ * requests or resumed report jobs.
+ * <p>
+ * As a health indicator in the readiness group, it reports OUT_OF_SERVICE until the warmup is over,
+ * so that load balancers only route traffic to warmed nodes. A failed or overlong warmup reports UP
+ * with its outcome, since the node works without it.
+ */
+@Component
+public class StartupWarmup implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmup.class);
+
+    private static final Long NO_SUCH_ID = -1L; // Runs the queries without reading any data
+    private static final int SYNTHETIC_STUDENTS = 20;
+    private static final int SYNTHETIC_GRADES_PER_STUDENT = 8;
+    private static final long BUSY_WAIT_MILLIS = 200;
+
+    private enum State {
+        PENDING, RUNNING, DONE, FAILED, TIMED_OUT
+    }
+
+    // One unit of warmup work, checked against the time limit and the report pools before it runs
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    @Value("${startup.warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${startup.warmup.rounds:3}")
+    private int rounds; // Repetitions of every step, for the JIT
+
+    @Value("${startup.warmup.timeout-seconds:120}")
+    private int timeoutSeconds; // Past this, the node is reported ready, warmed or not
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private ExcelService excelService;
+
+    @Autowired
+    private CalculationService calculationService;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private ClassSectionRepository classSectionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("reportRenderExecutor")
+    private ThreadPoolTaskExecutor reportRenderExecutor;
+
+    @Autowired
+    @Qualifier("reportJobExecutor")
+    private ThreadPoolTaskExecutor reportJobExecutor;
+
+    private volatile State state = State.PENDING;
+    private volatile long durationMillis;
+    private volatile String failure;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "startup-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        if (!enabled) {
+            return Health.up().withDetail("warmup", "disabled").build();
+        }
+        return switch (state) {
+            case PENDING, RUNNING -> Health.outOfService().withDetail("warmup", state.name().toLowerCase()).build();
+            case DONE -> Health.up().withDetail("warmup", "done").withDetail("durationMs", durationMillis).build();
+            case TIMED_OUT -> Health.up().withDetail("warmup", "timed out").withDetail("durationMs", durationMillis).build();
+            case FAILED -> Health.up().withDetail("warmup", "failed").withDetail("error", failure).build();
+        };
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        long deadline = start + timeoutSeconds * 1_000_000_000L;
+        state = State.RUNNING;
+        logger.info("Starting warmup: {} rounds", rounds);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        StudentReportBatch reports = syntheticReports();
+        List<GradeExportRow> exportRows = syntheticExportRows();
+        ClassGradebook gradebook = syntheticGradebook(reports);
+        List<Step> steps = List.of(
+                () -> pdfService.writeMergedReportsPdf(reports, OutputStream.nullOutputStream(), written -> { }),
+                () -> excelService.writeExcel(new GradeExport("Warmup", exportRows::stream), OutputStream.nullOutputStream()),
+                () -> excelService.writeGradebook(gradebook, OutputStream.nullOutputStream()),
+                () -> readOnly.executeWithoutResult(status -> runHotQueries()));
+
+        try {
+            for (int round = 0; round < rounds; round++) {
+                for (Step step : steps) {
+                    if (!awaitIdlePools(deadline)) {
+                        state = State.TIMED_OUT;
+                        logger.warn("Warmup stopped after {} s in round {} of {}; reporting ready anyway",
+                                timeoutSeconds, round + 1, rounds);
+                        return;
+                    }
+                    step.run();
+                }
+            }
+            state = State.DONE;
+            logger.info("Warmup complete in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "interrupted";
+            state = State.FAILED;
+        } catch (Exception e) {
+            failure = e.getMessage();
+            state = State.FAILED;
+            logger.warn("Warmup failed, reporting ready anyway: {}", e.getMessage(), e);
+        } finally {
+            durationMillis = (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+
+    // Waits while reports are being rendered or report jobs run; false once the deadline has passed
+    private boolean awaitIdlePools(long deadline) throws InterruptedException {
+        while (reportRenderExecutor.getActiveCount() > 0 || reportJobExecutor.getActiveCount() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(BUSY_WAIT_MILLIS);
+        }
+        return System.nanoTime() <= deadline;
+    }
+
+    // The queries behind report batches, transcripts, exports and the gradebook
+    private void runHotQueries() {
+        List<Long> ids = List.of(NO_SUCH_ID);
+        studentRepository.findAllById(ids);
+        gradeRepository.findWithSubjectByStudentIdInOrderByIdAsc(ids);
+        calculationService.calculateOverallAverages(ids);
+        gradeRepository.aggregateWeightedScoresBySemesterForStudent(NO_SUCH_ID);
+        studentRepository.findWithEnrolledClassesById(NO_SUCH_ID);
+        classSectionRepository.findWithStudentsById(NO_SUCH_ID);
+        gradeRepository.findGradebookRowsByClassSectionId(NO_SUCH_ID);
+        drain(gradeRepository.streamExportRowsByStudentId(NO_SUCH_ID));
+        drain(gradeRepository.streamExportRowsByClassSectionId(NO_SUCH_ID));
+        drain(gradeRepository.streamExportRowsBySemesterId(NO_SUCH_ID));
+    }
+
+    private static void drain(Stream<?> rows) {
+        try (rows) {
+            rows.forEach(row -> { });
+        }
+    }
+
+    private static StudentReportBatch syntheticReports() {
+        List<StudentReportBatch.Report> reports = new ArrayList<>();
+        for (long student = 1; student <= SYNTHETIC_STUDENTS; student++) {
+            List<StudentReportBatch.GradeLine> grades = new ArrayList<>();
+            for (long grade = 1; grade <= SYNTHETIC_GRADES_PER_STUDENT; grade++) {
+                grades.add(new StudentReportBatch.GradeLine(student * 100 + grade, "Subject " + grade,
+                        50.0 + (student * grade) % 50, LocalDate.now().minusDays(grade), "Warmup grade"));
+            }
+            reports.add(new StudentReportBatch.Report(new StudentReportBatch.StudentInfo(student, "warmup_" + student,
+                    "Warmup", "Student " + student, "warmup" + student + "@example.com"), grades, 75.0));
+        }
+        return new StudentReportBatch(reports);
+    }
+
+    private static List<GradeExportRow> syntheticExportRows() {
+        List<GradeExportRow> rows = new ArrayList<>();
+        for (long grade = 1; grade <= SYNTHETIC_STUDENTS * SYNTHETIC_GRADES_PER_STUDENT; grade++) {
+            rows.add(new GradeExportRow(grade, grade % SYNTHETIC_STUDENTS + 1, "Warmup", "Student " + grade,
+                    "Subject " + grade % SYNTHETIC_GRADES_PER_STUDENT, 50.0 + grade % 50, LocalDate.now(),
+                    "Warmup semester", "Warmup grade"));
+        }
+        return rows;
+    }
+
+    private static ClassGradebook syntheticGradebook(StudentReportBatch reports) {
+        List<StudentReportBatch.StudentInfo> students = reports.reports().stream().map(StudentReportBatch.Report::student).toList();
+        List<ClassGradebook.Column> assessments = List.of(
+                new ClassGradebook.Column(1L, "Warmup quiz", 20.0, 1.0),
+                new ClassGradebook.Column(2L, "Warmup exam", 100.0, 2.0));
+        List<GradebookGradeRow> grades = new ArrayList<>();
+        long gradeId = 1;
+        for (StudentReportBatch.StudentInfo student : students) {
+            grades.add(new GradebookGradeRow(gradeId++, student.id(), 1L, "Warmup quiz", 20.0, 1.0,
+                    10.0 + student.id() % 10, LocalDate.now(), null));
+            grades.add(new GradebookGradeRow(gradeId++, student.id(), 2L, "Warmup exam", 100.0, 2.0,
+                    50.0 + student.id() * 2, LocalDate.now(), null));
+            grades.add(new GradebookGradeRow(gradeId++, student.id(), null, null, null, null,
+                    60.0 + student.id(), LocalDate.now(), "Warmup grade"));
+        }
+        return new ClassGradebook(new ClassGradebook.ClassInfo(NO_SUCH_ID, "Warmup class", "Warmup subject", "Warmup semester"),
+                students, assessments, grades);
+    }
+}
@@ -281,7 +281,7 @@ public class StatisticsServiceImpl implements StatisticsService {
     public StatisticsDto calculateClassStatistics(Long classSectionId) {
         logger.info("Calculating statistics for class section ID: {}", classSectionId);
         
-        ClassSection classSection = classSectionRepository.findById(classSectionId)
+        ClassSection classSection = classSectionRepository.findWithStudentsById(classSectionId)
                 .orElseThrow(() -> new EntityNotFoundException("Class section not found with ID: " + classSectionId));
         
         Subject subject = classSection.getSubject();
@@ -40,7 +40,8 @@ public class StudentInfoServiceImpl implements StudentInfoService {
     @Override
     @Transactional(readOnly = true)
     public Optional<StudentAcademicSummaryDto> getStudentAcademicSummary(Long studentId) {
-        Optional<Student> studentOptional = studentRepository.findById(studentId);
+        // Enrolled classes are mapped below, so load them with their associations up front
+        Optional<Student> studentOptional = studentRepository.findWithEnrolledClassesById(studentId);
         if (studentOptional.isEmpty()) {
             logger.warn("Student not found with ID: {}", studentId);
             return Optional.empty();
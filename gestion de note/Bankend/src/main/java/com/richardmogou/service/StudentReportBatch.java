@@ -0,0 +1,63 @@
+package com.richardmogou.service;
+
+import com.richardmogou.model.Grade;
+import com.richardmogou.model.Student;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Data for a batch of grade reports, copied out of the persistence context so that the reports
+ * can be rendered and written out with no transaction or database connection held.
+ *
+ * @param reports The reports to render, in the order they are written.
+ */
+public record StudentReportBatch(List<Report> reports) {
+
+    public StudentReportBatch {
+        reports = List.copyOf(reports);
+    }
+
+    /**
+     * Everything needed to render one student's grade report.
+     *
+     * @param student The student's details.
+     * @param grades The student's grades, in the order they are listed.
+     * @param overallAverage The weighted overall average, or null if the student has no grades.
+     */
+    public record Report(StudentInfo student, List<GradeLine> grades, Double overallAverage) {
+
+        public Report {
+            grades = List.copyOf(grades);
+        }
+    }
+
+    /**
+     * The student details printed in a report header.
+     */
+    public record StudentInfo(Long id, String username, String firstName, String lastName, String email) {
+
+        public static StudentInfo of(Student student) {
+            return new StudentInfo(student.getId(), student.getUsername(), student.getFirstName(),
+                    student.getLastName(), student.getEmail());
+        }
+    }
+
+    /**
+     * One row of a report's grade table.
+     *
+     * @param subjectName The name of the subject, or null if the grade has none.
+     */
+    public record GradeLine(Long id, String subjectName, Double score, LocalDate dateAssigned, String comments) {
+
+        // Reads Grade.subject, which must be loaded
+        public static GradeLine of(Grade grade) {
+            return new GradeLine(grade.getId(), grade.getSubject() != null ? grade.getSubject().getName() : null,
+                    grade.getScore(), grade.getDateAssigned(), grade.getComments());
+        }
+    }
+
+    public int size() {
+        return reports.size();
+    }
+}
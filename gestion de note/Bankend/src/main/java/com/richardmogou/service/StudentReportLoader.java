@@ -0,0 +1,129 @@
+package com.richardmogou.service;
+
+import com.richardmogou.model.Student;
+import com.richardmogou.repository.GradeRepository;
+import com.richardmogou.repository.StudentRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the data of grade reports for a set of students in a fixed number of queries:
+ * one for the students, one for their grades with subjects and one for their overall averages,
+ * per chunk of {@value #MAX_IDS_PER_QUERY} students. The data is copied into an immutable batch
+ * before the transaction ends, so rendering it needs no session or connection.
+ */
+@Component
+public class StudentReportLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentReportLoader.class);
+
+    // Keeps IN lists well below the PostgreSQL limit of 32767 bind parameters per statement
+    static final int MAX_IDS_PER_QUERY = 5_000;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Autowired
+    private CalculationService calculationService;
+
+    /**
+     * Loads the report data of the given students.
+     *
+     * @param studentIds The IDs of the students; duplicates are loaded once.
+     * @return A batch in the order of the given IDs; unknown IDs are skipped.
+     */
+    @Transactional(readOnly = true)
+    public StudentReportBatch load(Collection<Long> studentIds) {
+        List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(studentIds));
+
+        Map<Long, StudentReportBatch.StudentInfo> studentsById = new HashMap<>();
+        Map<Long, List<StudentReportBatch.GradeLine>> gradesByStudent = new HashMap<>();
+        Map<Long, Double> averages = new HashMap<>();
+        for (int from = 0; from < uniqueIds.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = uniqueIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, uniqueIds.size()));
+            Map<Long, StudentReportBatch.StudentInfo> students = studentRepository.findAllById(chunk).stream()
+                    .collect(Collectors.toMap(Student::getId, StudentReportBatch.StudentInfo::of));
+            if (students.isEmpty()) {
+                continue;
+            }
+            studentsById.putAll(students);
+            gradesByStudent.putAll(gradeRepository.findWithSubjectByStudentIdInOrderByIdAsc(students.keySet()).stream()
+                    .collect(Collectors.groupingBy(grade -> grade.getStudent().getId(),
+                            Collectors.mapping(StudentReportBatch.GradeLine::of, Collectors.toList()))));
+            averages.putAll(calculationService.calculateOverallAverages(students.keySet()));
+        }
+
+        List<StudentReportBatch.Report> reports = new ArrayList<>(studentsById.size());
+        for (Long studentId : uniqueIds) {
+            StudentReportBatch.StudentInfo student = studentsById.get(studentId);
+            if (student == null) {
+                logger.warn("Skipping student ID {} in report batch: Student not found with ID: {}", studentId, studentId);
+                continue;
+            }
+            reports.add(new StudentReportBatch.Report(student,
+                    gradesByStudent.getOrDefault(studentId, List.of()), averages.get(studentId)));
+        }
+        return new StudentReportBatch(reports);
+    }
+
+    /**
+     * Loads the transcript data of a student.
+     *
+     * @param studentId The ID of the student.
+     * @return The student's results per semester.
+     * @throws EntityNotFoundException If the student does not exist.
+     */
+    @Transactional(readOnly = true)
+    public StudentTranscript loadTranscript(Long studentId) {
+        Student student = studentRepository.findById(studentId)
+                .orElseThrow(() -> new EntityNotFoundException("Student not found with ID: " + studentId));
+
+        // Rows come ordered by semester, so consecutive rows make up one term
+        List<StudentTranscript.Term> terms = new ArrayList<>();
+        List<StudentTranscript.SubjectResult> subjects = new ArrayList<>();
+        Object[] termRow = null;
+        for (Object[] row : gradeRepository.aggregateWeightedScoresBySemesterForStudent(studentId)) {
+            if (termRow != null && !Objects.equals(termRow[0], row[0])) {
+                terms.add(toTerm(termRow, subjects));
+                subjects = new ArrayList<>();
+            }
+            termRow = row;
+            double weightSum = ((Number) row[7]).doubleValue();
+            subjects.add(new StudentTranscript.SubjectResult((String) row[4], (Double) row[5],
+                    weightSum > 0 ? ((Number) row[6]).doubleValue() / weightSum : null, ((Number) row[8]).longValue()));
+        }
+        if (termRow != null) {
+            terms.add(toTerm(termRow, subjects));
+        }
+
+        Double cumulativeAverage = calculationService.calculateOverallAverages(List.of(studentId)).get(studentId);
+        return new StudentTranscript(StudentReportBatch.StudentInfo.of(student), terms, cumulativeAverage);
+    }
+
+    // Weights subject averages by coefficient, skipping invalid coefficients as CalculationService does
+    private StudentTranscript.Term toTerm(Object[] row, List<StudentTranscript.SubjectResult> subjects) {
+        double weightedSum = 0;
+        double coefficientSum = 0;
+        for (StudentTranscript.SubjectResult subject : subjects) {
+            if (subject.average() == null || subject.coefficient() == null || subject.coefficient() <= 0) {
+                continue;
+            }
+            weightedSum += subject.average() * subject.coefficient();
+            coefficientSum += subject.coefficient();
+        }
+        Double average = coefficientSum > 0 ? weightedSum / coefficientSum : Double.NaN;
+        return new StudentTranscript.Term((Long) row[0], (String) row[1], (LocalDate) row[2], (LocalDate) row[3],
+                subjects, average);
+    }
+}
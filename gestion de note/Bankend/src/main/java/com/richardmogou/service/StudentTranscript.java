@@ -0,0 +1,47 @@
+package com.richardmogou.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Data for a student's transcript, copied out of the persistence context like {@link StudentReportBatch}.
+ *
+ * @param student The student's details.
+ * @param terms One entry per semester the student has grades in, in chronological order; grades
+ *              without a semester come last.
+ * @param cumulativeAverage The weighted average over all grades, or null if the student has no grades.
+ */
+public record StudentTranscript(StudentReportBatch.StudentInfo student, List<Term> terms, Double cumulativeAverage) {
+
+    public StudentTranscript {
+        terms = List.copyOf(terms);
+    }
+
+    /**
+     * The results of one semester.
+     *
+     * @param semesterId The ID of the semester, or null for grades without a semester.
+     * @param subjects The subject averages, ordered by subject name.
+     * @param average The semester average weighted by subject coefficient, NaN if no subject has a valid coefficient.
+     */
+    public record Term(Long semesterId, String name, LocalDate startDate, LocalDate endDate,
+                       List<SubjectResult> subjects, Double average) {
+
+        public Term {
+            subjects = List.copyOf(subjects);
+        }
+
+        /**
+         * @return Whether the semester has ended, so that its results are final.
+         */
+        public boolean isClosed(LocalDate today) {
+            return endDate != null && endDate.isBefore(today);
+        }
+    }
+
+    /**
+     * A student's average in one subject over one semester.
+     */
+    public record SubjectResult(String subjectName, Double coefficient, Double average, long gradeCount) {
+    }
+}
@@ -5,6 +5,7 @@ import com.richardmogou.dto.SubjectRequestDto;
 import com.richardmogou.model.Subject;
 import com.richardmogou.repository.SubjectRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +19,12 @@ public class SubjectServiceImpl implements SubjectService {
     @Autowired
     private SubjectRepository subjectRepository;
 
+    @Autowired
+    private ExportWatermarkService exportWatermarkService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // --- Helper Method for Mapping ---
     private SubjectDto mapToDto(Subject subject) {
         return new SubjectDto(subject.getId(), subject.getName(), subject.getCoefficient());
@@ -74,10 +81,16 @@ public class SubjectServiceImpl implements SubjectService {
         }
 
         // Update fields
+        String previousName = existingSubject.getName();
         existingSubject.setName(subjectRequestDto.getName());
         existingSubject.setCoefficient(subjectRequestDto.getCoefficient());
 
         Subject updatedSubject = subjectRepository.save(existingSubject);
+        if (!updatedSubject.getName().equals(previousName)) {
+            exportWatermarkService.allChanged(); // Subject names are shown in grade exports
+        }
+        // Subject names and coefficients appear on every report
+        eventPublisher.publishEvent(ReportDataChangedEvent.forAllStudents());
         return Optional.of(mapToDto(updatedSubject));
     }
 
@@ -88,6 +101,7 @@ public class SubjectServiceImpl implements SubjectService {
             // Consider adding checks here: e.g., cannot delete if grades are associated?
             // For now, simple deletion.
             subjectRepository.deleteById(id);
+            eventPublisher.publishEvent(ReportDataChangedEvent.forAllStudents());
             return true;
         }
         return false; // Subject not found
@@ -0,0 +1,33 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.UserImportResultDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bulk creation of users from a spreadsheet, for term-start provisioning.
+ * <p>
+ * Rows are validated like single user creations, checked for duplicates against the whole file and
+ * the existing users at once, and their passwords hashed in parallel; the accepted rows are then
+ * inserted with batched JDBC statements in one transaction.
+ */
+public interface UserImportService {
+
+    /**
+     * Creates users from an XLSX file (first sheet) or a CSV file. The first row names the columns:
+     * username, password, first_name, last_name, email and optionally role (STUDENT, TEACHER or
+     * ADMIN; STUDENT when absent or empty), in any order.
+     * <p>
+     * Rows that are invalid or whose username or email is already taken, by an existing user or an
+     * earlier row, are rejected and reported; the others are created. A malformed file rejects the
+     * whole import.
+     *
+     * @param file The file content.
+     * @param xlsx Whether the file is an XLSX workbook rather than CSV in UTF-8.
+     * @return The counts of the import and the outcome of every row.
+     * @throws IllegalArgumentException If the file is malformed or has too many rows.
+     * @throws IOException If the file cannot be read.
+     */
+    UserImportResultDto importUsers(InputStream file, boolean xlsx) throws IOException;
+}
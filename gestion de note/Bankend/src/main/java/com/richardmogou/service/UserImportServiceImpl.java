@@ -0,0 +1,311 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.UserCreateRequestDto;
+import com.richardmogou.dto.UserImportResultDto;
+import com.richardmogou.dto.UserImportRowDto;
+import com.richardmogou.model.Role;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportServiceImpl.class);
+
+    private static final int MAX_IMPORT_ROWS = 10_000;
+    private static final int INSERT_BATCH_SIZE = 1_000;
+    private static final int PROGRESS_LOG_INTERVAL = 500;
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("username", "password", "first_name", "last_name", "email");
+    private static final String ROLE_COLUMN = "role";
+
+    private static final String INSERT_USER =
+            "INSERT INTO users (username, password, first_name, last_name, email, role) VALUES (?, ?, ?, ?, ?, ?)";
+    // Tables of the JOINED subclasses, which only hold the ID of the user row
+    private static final Map<Role, String> ROLE_TABLES = Map.of(
+            Role.STUDENT, "students", Role.TEACHER, "teachers", Role.ADMIN, "admins");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private Validator validator; // The constraints of UserCreateRequestDto, as for single creations
+
+    @Autowired
+    @Qualifier("passwordHashExecutor")
+    private ThreadPoolTaskExecutor passwordHashExecutor;
+
+    // A data row of the file, as read and as it goes through the import
+    private static final class ImportRow {
+        private final int line;
+        private final UserCreateRequestDto user;
+        private String error;
+        private String encodedPassword;
+        private Long userId;
+
+        private ImportRow(int line, UserCreateRequestDto user) {
+            this.line = line;
+            this.user = user;
+        }
+    }
+
+    @Override
+    public UserImportResultDto importUsers(InputStream file, boolean xlsx) throws IOException {
+        long start = System.nanoTime();
+        List<ImportRow> rows = xlsx ? readXlsx(file) : readCsv(file);
+
+        validate(rows);
+        rejectTaken(rows);
+        List<ImportRow> accepted = rows.stream().filter(row -> row.error == null).toList();
+
+        // Passwords are hashed before the transaction starts, so that its connection is only held for the inserts
+        hashPasswords(accepted);
+        long hashed = System.nanoTime();
+        if (!accepted.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> insert(accepted));
+        }
+
+        List<UserImportRowDto> results = rows.stream()
+                .map(row -> new UserImportRowDto(row.line, row.user.getUsername(), row.userId, row.error))
+                .toList();
+        logger.info("Imported users: {} rows read, {} created, {} rejected; passwords hashed in {} ms, inserted in {} ms",
+                rows.size(), accepted.size(), rows.size() - accepted.size(),
+                (hashed - start) / 1_000_000, (System.nanoTime() - hashed) / 1_000_000);
+        return new UserImportResultDto(rows.size(), accepted.size(), rows.size() - accepted.size(), results);
+    }
+
+    private List<ImportRow> readCsv(InputStream file) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(file, StandardCharsets.UTF_8)));
+        List<String> header = reader.readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("Malformed user file: no header row");
+        }
+        Map<String, Integer> columns = columnIndexes(header);
+
+        List<ImportRow> rows = new ArrayList<>();
+        while (true) {
+            int line = (int) reader.lineNumber();
+            List<String> record = reader.readRecord();
+            if (record == null) {
+                break;
+            }
+            if (record.size() == 1 && record.get(0) == null) {
+                continue; // Blank line
+            }
+            addRow(rows, line, columns, record);
+        }
+        return rows;
+    }
+
+    private List<ImportRow> readXlsx(InputStream file) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            DataFormatter formatter = new DataFormatter(); // Cell text as shown, so that numeric passwords keep their digits
+            Map<String, Integer> columns = null;
+            List<ImportRow> rows = new ArrayList<>();
+            for (Row row : sheet) {
+                List<String> cells = new ArrayList<>();
+                for (int i = 0; i < row.getLastCellNum(); i++) {
+                    Cell cell = row.getCell(i);
+                    String value = cell != null ? formatter.formatCellValue(cell) : "";
+                    cells.add(value.isEmpty() ? null : value);
+                }
+                if (cells.stream().allMatch(Objects::isNull)) {
+                    continue; // Blank row
+                }
+                if (columns == null) {
+                    columns = columnIndexes(cells);
+                } else {
+                    addRow(rows, row.getRowNum() + 1, columns, cells);
+                }
+            }
+            if (columns == null) {
+                throw new IllegalArgumentException("Malformed user file: no header row");
+            }
+            return rows;
+        }
+    }
+
+    // Column names are matched ignoring case, with spaces read as underscores ("First Name")
+    private static Map<String, Integer> columnIndexes(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i) != null) {
+                columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT).replace(' ', '_'), i);
+            }
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Malformed user file: missing column(s) " + String.join(", ", missing)
+                    + " (expected " + String.join(", ", REQUIRED_COLUMNS) + " and optionally " + ROLE_COLUMN + ")");
+        }
+        return columns;
+    }
+
+    private static void addRow(List<ImportRow> rows, int line, Map<String, Integer> columns, List<String> cells) {
+        if (rows.size() == MAX_IMPORT_ROWS) {
+            throw new IllegalArgumentException("At most " + MAX_IMPORT_ROWS + " users can be imported at once");
+        }
+        UserCreateRequestDto user = new UserCreateRequestDto(
+                value(cells, columns.get("username")), value(cells, columns.get("password")),
+                value(cells, columns.get("first_name")), value(cells, columns.get("last_name")),
+                value(cells, columns.get("email")), null);
+        ImportRow row = new ImportRow(line, user);
+
+        String role = value(cells, columns.get(ROLE_COLUMN));
+        try {
+            user.setRole(role != null ? Role.valueOf(role.toUpperCase(Locale.ROOT)) : Role.STUDENT);
+        } catch (IllegalArgumentException e) {
+            row.error = "Unknown role '" + role + "'";
+        }
+        rows.add(row);
+    }
+
+    private static String value(List<String> cells, Integer column) {
+        if (column == null || column >= cells.size() || cells.get(column) == null) {
+            return null;
+        }
+        String value = cells.get(column).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Applies the single creation constraints and rejects usernames and emails repeated within the file
+    private void validate(List<ImportRow> rows) {
+        Map<String, Integer> usernameLines = new HashMap<>();
+        Map<String, Integer> emailLines = new HashMap<>();
+        for (ImportRow row : rows) {
+            if (row.error != null) {
+                continue;
+            }
+            Set<ConstraintViolation<UserCreateRequestDto>> violations = validator.validate(row.user);
+            if (!violations.isEmpty()) {
+                row.error = violations.stream()
+                        .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                        .map(ConstraintViolation::getMessage)
+                        .collect(Collectors.joining("; "));
+                continue;
+            }
+
+            Integer usernameLine = usernameLines.putIfAbsent(row.user.getUsername(), row.line);
+            Integer emailLine = emailLines.putIfAbsent(row.user.getEmail(), row.line);
+            if (usernameLine != null) {
+                row.error = "Username is already used on line " + usernameLine;
+            } else if (emailLine != null) {
+                row.error = "Email is already used on line " + emailLine;
+            }
+        }
+    }
+
+    // Checks the usernames and emails of the whole file against the existing users in one query
+    private void rejectTaken(List<ImportRow> rows) {
+        List<ImportRow> candidates = rows.stream().filter(row -> row.error == null).toList();
+        if (candidates.isEmpty()) {
+            return;
+        }
+        Object[] usernames = candidates.stream().map(row -> row.user.getUsername()).toArray();
+        Object[] emails = candidates.stream().map(row -> row.user.getEmail()).toArray();
+
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT username, email FROM users WHERE username = ANY (?) OR email = ANY (?)");
+            statement.setArray(1, connection.createArrayOf("varchar", usernames));
+            statement.setArray(2, connection.createArrayOf("varchar", emails));
+            return statement;
+        }, (RowCallbackHandler) resultSet -> {
+            takenUsernames.add(resultSet.getString(1));
+            takenEmails.add(resultSet.getString(2));
+        });
+
+        for (ImportRow row : candidates) {
+            if (takenUsernames.contains(row.user.getUsername())) {
+                row.error = "Username is already taken";
+            } else if (takenEmails.contains(row.user.getEmail())) {
+                row.error = "Email is already in use";
+            }
+        }
+    }
+
+    private void hashPasswords(List<ImportRow> rows) {
+        List<Future<String>> hashes = new ArrayList<>(rows.size());
+        try {
+            for (ImportRow row : rows) {
+                String password = row.user.getPassword();
+                hashes.add(passwordHashExecutor.submit(() -> passwordEncoder.encode(password)));
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                rows.get(i).encodedPassword = hashes.get(i).get();
+                if ((i + 1) % PROGRESS_LOG_INTERVAL == 0) {
+                    logger.info("User import: hashed {} of {} passwords", i + 1, rows.size());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error hashing passwords: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            hashes.forEach(hash -> hash.cancel(false)); // Only pending after a failure
+        }
+    }
+
+    // Inserts the user rows, reads back their generated IDs, then inserts the subclass rows
+    private void insert(List<ImportRow> rows) {
+        jdbcTemplate.batchUpdate(INSERT_USER, rows, INSERT_BATCH_SIZE, (statement, row) -> {
+            statement.setString(1, row.user.getUsername());
+            statement.setString(2, row.encodedPassword);
+            statement.setString(3, row.user.getFirstName());
+            statement.setString(4, row.user.getLastName());
+            statement.setString(5, row.user.getEmail());
+            statement.setString(6, row.user.getRole().name());
+        });
+
+        Object[] usernames = rows.stream().map(row -> row.user.getUsername()).toArray();
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT id, username FROM users WHERE username = ANY (?)");
+            statement.setArray(1, connection.createArrayOf("varchar", usernames));
+            return statement;
+        }, (RowCallbackHandler) resultSet -> ids.put(resultSet.getString(2), resultSet.getLong(1)));
+        rows.forEach(row -> row.userId = ids.get(row.user.getUsername()));
+
+        Map<Role, List<ImportRow>> rowsByRole = rows.stream()
+                .collect(Collectors.groupingBy(row -> row.user.getRole(), () -> new EnumMap<>(Role.class), Collectors.toList()));
+        rowsByRole.forEach((role, roleRows) -> jdbcTemplate.batchUpdate(
+                "INSERT INTO " + ROLE_TABLES.get(role) + " (id) VALUES (?)", roleRows, INSERT_BATCH_SIZE,
+                (statement, row) -> statement.setLong(1, row.userId)));
+    }
+}
@@ -7,11 +7,13 @@ import com.richardmogou.dto.UserUpdateRequestDto;
 import com.richardmogou.model.*;
 import com.richardmogou.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -24,6 +26,12 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private ExportWatermarkService exportWatermarkService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // --- Helper Method for Mapping ---
     private UserDto mapToDto(User user) {
         if (user == null) {
@@ -141,6 +149,13 @@ public class UserServiceImpl implements UserService {
             existingUser.setEmail(userUpdateDto.getEmail());
         }
 
+        // Student names are shown in grade exports
+        if (existingUser.getRole() == Role.STUDENT
+                && (!Objects.equals(existingUser.getFirstName(), userUpdateDto.getFirstName())
+                    || !Objects.equals(existingUser.getLastName(), userUpdateDto.getLastName()))) {
+            exportWatermarkService.allChanged();
+        }
+
         // Update other fields
         existingUser.setFirstName(userUpdateDto.getFirstName());
         existingUser.setLastName(userUpdateDto.getLastName());
@@ -151,6 +166,7 @@ public class UserServiceImpl implements UserService {
         // }
 
         User updatedUser = userRepository.save(existingUser);
+        eventPublisher.publishEvent(ReportDataChangedEvent.forStudent(id));
         return Optional.of(mapToDto(updatedUser));
     }
 
@@ -162,6 +178,7 @@ public class UserServiceImpl implements UserService {
             // Cannot delete users with associated data (grades, etc.)?
             // For now, simple deletion.
             userRepository.deleteById(id);
+            eventPublisher.publishEvent(ReportDataChangedEvent.forStudent(id));
             return true;
         }
         return false; // User not found
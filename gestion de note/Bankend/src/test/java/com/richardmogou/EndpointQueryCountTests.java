@@ -0,0 +1,222 @@
+package com.richardmogou;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that read endpoints run a fixed number of SQL statements, whatever the number of
+ * grades, classes or students returned. The seeded data has several rows behind every lazy
+ * association, so a missing fetch plan shows up as extra statements. The responses are checked
+ * against the seeded data too, so that a query plan cannot get cheaper by returning less.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+@AutoConfigureMockMvc
+class EndpointQueryCountTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private long statementsFor(String url, ResultMatcher... body) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk()).andExpectAll(body);
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Report batches load their data before streaming; rendering must not add any statement
+    private long statementsForReportBatch(String url, ResultMatcher... body) throws Exception {
+        statistics.clear();
+        MvcResult result = mockMvc.perform(post(url)).andExpect(request().asyncStarted()).andReturn();
+        long loading = statistics.getPrepareStatementCount();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpectAll(body);
+        assertEquals(loading, statistics.getPrepareStatementCount(), "Statements while rendering " + url);
+        return loading;
+    }
+
+    // Streamed downloads read their data while the response is written, on the async dispatch
+    private long statementsForStreamed(String url, ResultMatcher... body) throws Exception {
+        statistics.clear();
+        MvcResult result = mockMvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpectAll(body);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static ResultMatcher pdf() {
+        return result -> assertEquals("%PDF-", new String(result.getResponse().getContentAsByteArray(), 0, 5, StandardCharsets.US_ASCII));
+    }
+
+    // The sheet names of an XLSX download, and the number of data rows (below the header) of each
+    private static ResultMatcher xlsxSheets(Map<String, Integer> dataRowsBySheet) {
+        return result -> {
+            try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+                Map<String, Integer> actual = new LinkedHashMap<>();
+                workbook.forEach(sheet -> actual.put(sheet.getSheetName(), sheet.getLastRowNum()));
+                assertEquals(dataRowsBySheet, actual);
+            }
+        };
+    }
+
+    private static ResultMatcher gzipCsvLines(int lines) {
+        return result -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray())), StandardCharsets.UTF_8))) {
+                assertEquals(lines, reader.lines().count());
+            }
+        };
+    }
+
+    private static ResultMatcher zipEntries(String... names) {
+        return result -> {
+            List<String> actual = new ArrayList<>();
+            try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+                for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                    actual.add(entry.getName());
+                }
+            }
+            assertEquals(List.of(names), actual);
+        };
+    }
+
+    @Test
+    @WithUserDetails("admin")
+    void gradeEndpoints() throws Exception {
+        assertEquals(1, statementsFor("/api/teacher/grades",
+                jsonPath("$.length()").value(18)));
+        assertEquals(2, statementsFor("/api/teacher/grades?studentId=6",
+                jsonPath("$[*].id").value(contains(1, 2, 3, 10)),
+                jsonPath("$[*].studentUsername").value(everyItem(is("student_john")))));
+        assertEquals(1, statementsFor("/api/teacher/grades/1",
+                jsonPath("$.score").value(85.5),
+                jsonPath("$.studentFullName").value("John Smith"),
+                jsonPath("$.subjectName").value("Mathematics"),
+                jsonPath("$.semesterName").value("Fall 2024")));
+    }
+
+    @Test
+    @WithUserDetails("admin")
+    void classEndpoints() throws Exception {
+        assertEquals(2, statementsFor("/api/teacher/classes",
+                jsonPath("$.length()").value(6),
+                jsonPath("$[?(@.id == 1)].teacherUsername").value(contains("teacher_jane")),
+                jsonPath("$[?(@.id == 1)].studentCount").value(contains(3))));
+        assertEquals(2, statementsFor("/api/teacher/classes/1",
+                jsonPath("$.name").value("Mathematics 101"),
+                jsonPath("$.subjectName").value("Mathematics"),
+                jsonPath("$.semesterName").value("Fall 2024"),
+                jsonPath("$.teacherFullName").value("Jane Doe"),
+                jsonPath("$.studentCount").value(3)));
+        assertEquals(4, statementsFor("/api/teacher/classes/1/students",
+                jsonPath("$.content[*].username").value(containsInAnyOrder("student_john", "student_lisa", "student_sam")),
+                jsonPath("$.page.totalElements").value(3)));
+    }
+
+    @Test
+    @WithUserDetails("student_john")
+    void studentSummaryEndpoint() throws Exception {
+        assertEquals(4, statementsFor("/api/student/info/summary",
+                jsonPath("$.username").value("student_john"),
+                jsonPath("$.enrolledClasses[*].classSectionName").value(
+                        containsInAnyOrder("Mathematics 101", "Physics 101", "Chemistry 101", "History 101")),
+                jsonPath("$.gradesBySubject.length()").value(4),
+                jsonPath("$.overallAverage").value(85.5625)));
+    }
+
+    @Test
+    @WithUserDetails("admin")
+    void exportEndpoints() throws Exception {
+        assertEquals(2, statementsForStreamed("/api/excel/student/6",
+                header().string(HttpHeaders.CONTENT_DISPOSITION, containsString("student_grades_6.xlsx")),
+                xlsxSheets(Map.of("Student Grades - student_john", 4))));
+        assertEquals(2, statementsForStreamed("/api/excel/class/1",
+                xlsxSheets(Map.of("Class Grades - Mathematics", 3))));
+        assertEquals(3, statementsForStreamed("/api/excel/class/1/gradebook",
+                xlsxSheets(Map.of("Roster - Mathematics 101", 3, "Statistics", 2, "Grades", 3))));
+        assertEquals(1, statementsForStreamed("/api/excel/all",
+                xlsxSheets(Map.of("All Grades", 18))));
+        assertEquals(1, statementsForStreamed("/api/excel/all?format=csv.gz",
+                content().contentType("application/gzip"),
+                gzipCsvLines(19)));
+        // The report version, then the report's data unless the version is the one last served
+        assertEquals(4, statementsFor("/api/admin/reports/student/6",
+                content().contentType(MediaType.APPLICATION_PDF), pdf()));
+        assertEquals(3, statementsFor("/api/admin/reports/student/6/transcript",
+                content().contentType(MediaType.APPLICATION_PDF), pdf()));
+    }
+
+    @Test
+    @WithUserDetails("admin")
+    void reportBatchEndpoints() throws Exception {
+        assertEquals(4, statementsForReportBatch("/api/admin/reports/class/1",
+                zipEntries("grade_report_student_john_6.pdf", "grade_report_student_lisa_7.pdf",
+                        "grade_report_student_sam_8.pdf")));
+        assertEquals(4, statementsForReportBatch("/api/admin/reports/semester/1",
+                zipEntries("grade_report_student_john_6.pdf", "grade_report_student_lisa_7.pdf",
+                        "grade_report_student_sam_8.pdf", "grade_report_student_emma_9.pdf",
+                        "grade_report_student_michael_10.pdf")));
+    }
+
+    @Test
+    @WithUserDetails("admin")
+    void statisticsEndpoints() throws Exception {
+        assertEquals(2, statementsFor("/api/statistics/class/1",
+                jsonPath("$.totalGrades").value(3),
+                jsonPath("$.averageScore").value(closeTo(83.8333, 1e-4)),
+                jsonPath("$.topStudentAverages.['Lisa Miller']").value(91.0)));
+        assertEquals(2, statementsFor("/api/statistics/semester/1",
+                jsonPath("$.totalGrades").value(9),
+                jsonPath("$.totalStudents").value(5),
+                jsonPath("$.subjectAverages.Physics").value(closeTo(91.6667, 1e-4))));
+    }
+}
@@ -0,0 +1,97 @@
+package com.richardmogou.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class FileDownloadResponderTests {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @TempDir
+    private Path directory;
+
+    private final FileDownloadResponder responder = new FileDownloadResponder();
+
+    private Path file;
+    private String etag;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.writeString(directory.resolve("report.zip"), CONTENT, StandardCharsets.US_ASCII);
+        etag = serve(new MockHttpServletRequest("GET", "/download")).getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        responder.serve(file, "report.zip", "application/zip", request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest rangeRequest(String range, String ifRange) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.RANGE, range);
+        if (ifRange != null) {
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+        }
+        return request;
+    }
+
+    @Test
+    void wholeFileWithoutRange() throws Exception {
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/download"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+        assertEquals("attachment; filename=report.zip", response.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    }
+
+    @Test
+    void rangeWithMatchingStrongValidator() throws Exception {
+        MockHttpServletResponse response = serve(rangeRequest("bytes=5-9", etag));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 5-9/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("56789", response.getContentAsString());
+    }
+
+    @Test
+    void rangeWithChangedOrWeakValidatorSendsWholeFile() throws Exception {
+        for (String ifRange : new String[]{"\"0-0\"", "W/" + etag}) {
+            MockHttpServletResponse response = serve(rangeRequest("bytes=5-9", ifRange));
+
+            assertEquals(200, response.getStatus(), ifRange);
+            assertEquals(CONTENT, response.getContentAsString(), ifRange);
+        }
+    }
+
+    @Test
+    void unsatisfiableRange() throws Exception {
+        MockHttpServletResponse response = serve(rangeRequest("bytes=20-", null));
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void notModifiedForMatchingIfNoneMatch() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag);
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+}
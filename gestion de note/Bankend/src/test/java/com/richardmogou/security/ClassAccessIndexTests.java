@@ -0,0 +1,73 @@
+package com.richardmogou.security;
+
+import com.richardmogou.repository.StudentRepository;
+import com.richardmogou.service.ClassSectionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that roster changes reach the index once committed, on this node through the service and
+ * from other nodes through the access versions. Changes are committed, and undone at the end.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ClassAccessIndexTests {
+
+    private static final long CLASS_ID = 1L; // Mathematics 101, without student_emma
+
+    @Autowired
+    private ClassAccessIndex classAccessIndex;
+
+    @Autowired
+    private ClassSectionService classSectionService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long emmaId() {
+        return studentRepository.findByUsername("student_emma").orElseThrow().getId();
+    }
+
+    @Test
+    void committedChangesAreVisibleAtOnce() {
+        long studentId = emmaId();
+        assertFalse(classAccessIndex.isStudentInClass(CLASS_ID, studentId));
+        try {
+            classSectionService.enrollStudents(CLASS_ID, List.of(studentId));
+            assertTrue(classAccessIndex.isStudentInClass(CLASS_ID, studentId));
+        } finally {
+            classSectionService.unenrollStudents(CLASS_ID, List.of(studentId));
+        }
+        assertFalse(classAccessIndex.isStudentInClass(CLASS_ID, studentId));
+    }
+
+    @Test
+    void changesFromOtherNodesAreSynced() {
+        long studentId = emmaId();
+        try {
+            // What another node commits: the roster change and its access version
+            jdbcTemplate.update("INSERT INTO class_student (class_id, student_id) VALUES (?, ?)", CLASS_ID, studentId);
+            jdbcTemplate.update("UPDATE class_sections SET access_version = COALESCE(access_version, 0) + 1 WHERE id = ?", CLASS_ID);
+            assertFalse(classAccessIndex.isStudentInClass(CLASS_ID, studentId));
+
+            classAccessIndex.sync();
+            assertTrue(classAccessIndex.isStudentInClass(CLASS_ID, studentId));
+        } finally {
+            jdbcTemplate.update("DELETE FROM class_student WHERE class_id = ? AND student_id = ?", CLASS_ID, studentId);
+            jdbcTemplate.update("UPDATE class_sections SET access_version = COALESCE(access_version, 0) + 1 WHERE id = ?", CLASS_ID);
+            classAccessIndex.sync();
+        }
+        assertFalse(classAccessIndex.isStudentInClass(CLASS_ID, studentId));
+    }
+}
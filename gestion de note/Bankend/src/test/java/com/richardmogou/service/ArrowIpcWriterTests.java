@@ -0,0 +1,158 @@
+package com.richardmogou.service;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads the streams written by {@link ArrowIpcWriter} back with the Arrow Java library.
+ */
+class ArrowIpcWriterTests {
+
+    private static final List<ArrowIpcWriter.Column> COLUMNS = List.of(
+            ArrowIpcWriter.Column.of("id", ArrowIpcWriter.Type.INT64, false),
+            ArrowIpcWriter.Column.dictionary("subject", 0, false),
+            ArrowIpcWriter.Column.dictionary("semester", 1, true),
+            ArrowIpcWriter.Column.of("assessment_id", ArrowIpcWriter.Type.INT64, true),
+            ArrowIpcWriter.Column.of("score", ArrowIpcWriter.Type.FLOAT64, false),
+            ArrowIpcWriter.Column.of("date_assigned", ArrowIpcWriter.Type.DATE32, false));
+
+    private static final List<String> SUBJECTS = List.of("Mathematics", "Physique, chimie", "Histoire-géographie");
+    private static final List<String> SEMESTERS = List.of("Fall 2024", "Spring 2025");
+
+    // One row as written and as read: dictionary values already looked up
+    private record Row(long id, String subject, String semester, Long assessmentId, double score, LocalDate date) {
+    }
+
+    private static final List<Row> ROWS = List.of(
+            new Row(1, "Mathematics", "Fall 2024", 10L, 85.5, LocalDate.of(2024, 10, 1)),
+            new Row(2, "Histoire-géographie", null, null, 0.0, LocalDate.of(1969, 12, 31)),
+            new Row(3, "Physique, chimie", "Spring 2025", null, 92.25, LocalDate.of(2025, 3, 15)),
+            new Row(4, "Mathematics", null, 11L, 100.0, LocalDate.of(2025, 5, 1)),
+            new Row(5, "Physique, chimie", "Fall 2024", 12L, 47.0, LocalDate.of(2024, 12, 20)));
+
+    // Three rows per batch, so the second batch reuses the buffers of the first one
+    private static byte[] write(List<Row> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ArrowIpcWriter writer = new ArrowIpcWriter(out, COLUMNS, 3);
+        writer.start(Map.of(0L, SUBJECTS, 1L, SEMESTERS));
+        for (Row row : rows) {
+            writer.setLong(0, row.id());
+            writer.setIndex(1, SUBJECTS.indexOf(row.subject()));
+            if (row.semester() == null) {
+                writer.setNull(2);
+            } else {
+                writer.setIndex(2, SEMESTERS.indexOf(row.semester()));
+            }
+            if (row.assessmentId() == null) {
+                writer.setNull(3);
+            } else {
+                writer.setLong(3, row.assessmentId());
+            }
+            writer.setDouble(4, row.score());
+            writer.setDate(5, row.date());
+            writer.endRow();
+        }
+        assertEquals(rows.size(), writer.finish());
+        return out.toByteArray();
+    }
+
+    private static List<String> values(Dictionary dictionary) {
+        VarCharVector vector = (VarCharVector) dictionary.getVector();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < vector.getValueCount(); i++) {
+            values.add(vector.getObject(i).toString());
+        }
+        return values;
+    }
+
+    @Test
+    void streamReadsBackWithArrowJava() throws IOException {
+        byte[] stream = write(ROWS);
+
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(stream), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+
+            List<Field> fields = root.getSchema().getFields();
+            assertEquals(List.of("id", "subject", "semester", "assessment_id", "score", "date_assigned"),
+                    fields.stream().map(Field::getName).toList());
+            assertEquals(List.of(false, false, true, true, false, false),
+                    fields.stream().map(Field::isNullable).toList());
+            assertEquals(new ArrowType.Int(64, true), fields.get(0).getType());
+            // Dictionary-encoded columns hold int32 indices into a dictionary of UTF-8 strings
+            assertEquals(new ArrowType.Int(32, true), fields.get(1).getType());
+            assertEquals(0L, fields.get(1).getDictionary().getId());
+            assertEquals(1L, fields.get(2).getDictionary().getId());
+            assertEquals(new ArrowType.Utf8(), reader.getDictionaryVectors().get(0L).getVectorType());
+            assertEquals(new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE), fields.get(4).getType());
+            assertEquals(new ArrowType.Date(DateUnit.DAY), fields.get(5).getType());
+
+            List<Row> rows = new ArrayList<>();
+            List<Integer> batchSizes = new ArrayList<>();
+            while (reader.loadNextBatch()) {
+                Map<Long, Dictionary> dictionaries = reader.getDictionaryVectors();
+                List<String> subjects = values(dictionaries.get(0L));
+                List<String> semesters = values(dictionaries.get(1L));
+                assertEquals(SUBJECTS, subjects);
+                assertEquals(SEMESTERS, semesters);
+
+                List<FieldVector> vectors = root.getFieldVectors();
+                BigIntVector ids = (BigIntVector) vectors.get(0);
+                IntVector subjectIndexes = (IntVector) vectors.get(1);
+                IntVector semesterIndexes = (IntVector) vectors.get(2);
+                BigIntVector assessmentIds = (BigIntVector) vectors.get(3);
+                Float8Vector scores = (Float8Vector) vectors.get(4);
+                DateDayVector dates = (DateDayVector) vectors.get(5);
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    rows.add(new Row(ids.get(i), subjects.get(subjectIndexes.get(i)),
+                            semesterIndexes.isNull(i) ? null : semesters.get(semesterIndexes.get(i)),
+                            assessmentIds.isNull(i) ? null : assessmentIds.get(i),
+                            scores.get(i), LocalDate.ofEpochDay(dates.get(i))));
+                }
+                batchSizes.add(root.getRowCount());
+            }
+
+            assertEquals(List.of(3, 2), batchSizes);
+            assertEquals(ROWS, rows);
+        }
+    }
+
+    @Test
+    void emptyTableHasSchemaAndNoBatches() throws IOException {
+        byte[] stream = write(List.of());
+
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(stream), allocator)) {
+            assertEquals(6, reader.getVectorSchemaRoot().getSchema().getFields().size());
+            assertFalse(reader.loadNextBatch());
+            assertTrue(reader.getDictionaryVectors().keySet().containsAll(Arrays.asList(0L, 1L)));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.EnrollmentImportResultDto;
+import com.richardmogou.model.ClassSection;
+import com.richardmogou.model.Semester;
+import com.richardmogou.model.Subject;
+import com.richardmogou.repository.ClassSectionRepository;
+import com.richardmogou.repository.SemesterRepository;
+import com.richardmogou.repository.SubjectRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class ClassSectionServiceTests {
+
+    @Autowired
+    private ClassSectionService classSectionService;
+
+    @Autowired
+    private ClassSectionRepository classSectionRepository;
+
+    @Autowired
+    private SemesterRepository semesterRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Test
+    void semesterMappingReadsQuotedClassNames() throws Exception {
+        Semester semester = semesterRepository.save(new Semester("Mapping test semester", LocalDate.of(2026, 9, 1), LocalDate.of(2026, 12, 20)));
+        Subject subject = subjectRepository.save(new Subject("Mapping test subject", 1.0));
+        ClassSection classSection = classSectionRepository.save(new ClassSection("Algebra, group A", subject, semester));
+
+        String mapping = """
+                class_name,username
+                "Algebra, group A",student_john
+                "Algebra, group A", student_lisa
+                Algebra, group A,student_sam
+                "Algebra, group A",student_nobody
+                """;
+        EnrollmentImportResultDto result = classSectionService.importSemesterEnrollments(semester.getId(),
+                new ByteArrayInputStream(mapping.getBytes(StandardCharsets.UTF_8)), false);
+
+        assertEquals(3, result.getLinesRead());
+        assertEquals(2, result.getTotalAdded());
+        assertEquals(List.of("Line 4: expected 'class_name,username'", "Line 5: unknown student 'student_nobody'"),
+                result.getErrors());
+        assertEquals(2, classSectionRepository.countStudentsByClassId(classSection.getId()));
+    }
+}
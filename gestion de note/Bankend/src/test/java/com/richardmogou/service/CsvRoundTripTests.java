@@ -0,0 +1,122 @@
+package com.richardmogou.service;
+
+import com.richardmogou.repository.GradeExportRow;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that what {@link CsvWriter} writes reads back field for field with {@link CsvReader}.
+ */
+class CsvRoundTripTests {
+
+    private static List<List<String>> readAll(InputStream in) throws IOException {
+        CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        List<List<String>> records = new ArrayList<>();
+        for (List<String> record = reader.readRecord(); record != null; record = reader.readRecord()) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    @Test
+    void specialCharactersRoundTrip() throws IOException {
+        List<String> fields = List.of("plain", "a, b", "say \"hi\"", "two\nlines", "crlf\r\nline", "\"", ",", "é à ü");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter csv = new CsvWriter(out);
+        for (String field : fields) {
+            csv.field(field);
+        }
+        csv.endRow().field("next").endRow().flush();
+
+        assertEquals(List.of(fields, List.of("next")), readAll(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void joinedFieldsAndNumbersRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter csv = new CsvWriter(out);
+        csv.field("Jean", ' ', "O\"Neil, Jr").field("a", ',', "b").field("x", '"', "y")
+                .field(-42L).field(12.5).field(80.0).field(LocalDate.of(2025, 1, 31)).endRow().flush();
+
+        assertEquals(List.of(List.of("Jean O\"Neil, Jr", "a,b", "x\"y", "-42", "12.5", "80", "2025-01-31")),
+                readAll(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void fieldsLongerThanTheBufferRoundTrip() throws IOException {
+        char[] chars = new char[20_000];
+        Arrays.fill(chars, 'x');
+        chars[8191] = ',';
+        chars[8192] = '"';
+        String longField = new String(chars);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CsvWriter(out).field(longField).field("after").endRow().flush();
+
+        assertEquals(List.of(List.of(longField, "after")), readAll(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    void nullsAndEmptyStrings() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CsvWriter(out).field((String) null).field("").field((LocalDate) null).endRow().flush();
+
+        // The writer does not distinguish them; a quoted empty field written by hand reads as ""
+        assertEquals(Arrays.asList(null, null, null), readAll(new ByteArrayInputStream(out.toByteArray())).get(0));
+        List<String> record = new CsvReader(new StringReader("\"\",,\"\"\n")).readRecord();
+        assertEquals(Arrays.asList("", null, ""), record);
+    }
+
+    @Test
+    void lineNumbersCountLineBreaksInsideFields() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,\"b\nc\"\r\nd\n"));
+        assertEquals(1, reader.lineNumber());
+        assertEquals(List.of("a", "b\nc"), reader.readRecord());
+        assertEquals(3, reader.lineNumber());
+        assertEquals(List.of("d"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void unterminatedQuoteIsRejected() {
+        CsvReader reader = new CsvReader(new StringReader("a,\"b\nc\n"));
+        IOException error = assertThrows(IOException.class, reader::readRecord);
+        assertEquals("Line 1: unterminated quoted field", error.getMessage());
+    }
+
+    @Test
+    void gzipExportRoundTrip() throws IOException {
+        List<GradeExportRow> rows = List.of(
+                new GradeExportRow(1L, 6L, "John", "Smith", "Maths, advanced", 85.5, LocalDate.of(2025, 1, 15),
+                        "Fall 2024", "Said \"well done\",\nsee you"),
+                new GradeExportRow(2L, 7L, "Lisa", "Miller", null, null, null, null, null));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // As the csv.gz download writes it
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            new ExcelServiceImpl().writeCsv(new GradeExport("Test", rows::stream), gzip);
+        }
+
+        List<List<String>> records = readAll(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(List.of(
+                List.of("Student ID", "Student Name", "Subject", "Score", "Date Assigned", "Semester", "Comments"),
+                List.of("6", "John Smith", "Maths, advanced", "85.5", "2025-01-15", "Fall 2024", "Said \"well done\",\nsee you"),
+                Arrays.asList("7", "Lisa Miller", "N/A", "0", null, "N/A", null)), records);
+    }
+}
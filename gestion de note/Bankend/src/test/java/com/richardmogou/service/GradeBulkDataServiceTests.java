@@ -0,0 +1,168 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.GradeImportResultDto;
+import com.richardmogou.model.Assessment;
+import com.richardmogou.model.Grade;
+import com.richardmogou.model.Semester;
+import com.richardmogou.model.Student;
+import com.richardmogou.model.Subject;
+import com.richardmogou.repository.AssessmentRepository;
+import com.richardmogou.repository.GradeRepository;
+import com.richardmogou.repository.SemesterRepository;
+import com.richardmogou.repository.StudentRepository;
+import com.richardmogou.repository.SubjectRepository;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs imports through the batched-insert path (H2 has no COPY). The staging table's DDL commits,
+ * so the tests work on their own subject and delete it afterwards instead of rolling back.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class GradeBulkDataServiceTests {
+
+    @Autowired
+    private GradeBulkDataService gradeBulkDataService;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private SemesterRepository semesterRepository;
+
+    @Autowired
+    private AssessmentRepository assessmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Subject subject;
+    private Grade quizGrade;
+
+    @BeforeEach
+    void setUp() {
+        Student student = studentRepository.findByUsername("student_john").orElseThrow();
+        Semester fall = semesterRepository.findAll().stream()
+                .filter(semester -> semester.getName().equals("Fall 2024")).findFirst().orElseThrow();
+        subject = subjectRepository.save(new Subject("Bulk import test subject", 1.0));
+        Assessment quiz = assessmentRepository.save(new Assessment("Quiz out of 20", subject, fall, 1.0, 20.0));
+        quizGrade = new Grade(12.0, null, student, subject, fall);
+        quizGrade.setAssessment(quiz);
+        quizGrade = gradeRepository.save(quizGrade);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM grades WHERE subject_id = ?", subject.getId());
+        jdbcTemplate.update("DELETE FROM subject_averages WHERE subject_id = ?", subject.getId());
+        jdbcTemplate.update("DELETE FROM assessments WHERE subject_id = ?", subject.getId());
+        jdbcTemplate.update("DELETE FROM subjects WHERE id = ?", subject.getId());
+    }
+
+    private GradeImportResultDto importCsv(String... rows) throws Exception {
+        String csv = "grade_id,username,subject,semester,score,date_assigned,comments\n" + String.join("\n", rows) + "\n";
+        return gradeBulkDataService.importGrades(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private double scoreOf(Grade grade) {
+        return jdbcTemplate.queryForObject("SELECT score FROM grades WHERE id = ?", Double.class, grade.getId());
+    }
+
+    @Test
+    void scoresAboveTheAssessmentPointsAreRejected() throws Exception {
+        long id = quizGrade.getId();
+        GradeImportResultDto result = importCsv(
+                id + ",student_john,Bulk import test subject,Fall 2024,25,,Over the scale");
+
+        assertEquals(1, result.getRejected());
+        assertEquals(0, result.getUpdated());
+        assertEquals(List.of("Row 1: score exceeds the maximum of 20.0 points for assessment 'Quiz out of 20'"),
+                result.getErrors());
+        assertEquals(12.0, scoreOf(quizGrade));
+
+        result = importCsv(id + ",student_john,Bulk import test subject,Fall 2024,18,,Within the scale");
+        assertEquals(1, result.getUpdated());
+        assertEquals(18.0, scoreOf(quizGrade));
+    }
+
+    @Test
+    void semesterChangesAreRejected() throws Exception {
+        long id = quizGrade.getId();
+        GradeImportResultDto result = importCsv(
+                id + ",student_john,Bulk import test subject,Spring 2025,15,,",
+                id + ",student_john,Bulk import test subject,,15,,");
+
+        assertEquals(2, result.getRejected());
+        assertEquals(List.of(
+                "Row 1: grade " + id + " is not in semester 'Spring 2025'",
+                "Row 2: grade " + id + " is not in semester ''"), result.getErrors());
+        assertEquals(12.0, scoreOf(quizGrade));
+    }
+
+    @Test
+    void newRowsKeepTheirSemester() throws Exception {
+        GradeImportResultDto result = importCsv(
+                ",student_john,Bulk import test subject,Spring 2025,70,2025-02-01,",
+                ",student_john,Bulk import test subject,,60,,");
+
+        assertEquals(2, result.getInserted());
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(List.of("Spring 2025"), jdbcTemplate.queryForList(
+                "SELECT sem.name FROM grades g JOIN semesters sem ON sem.id = g.semester_id " +
+                "WHERE g.subject_id = ? AND g.score = 70", String.class, subject.getId()));
+    }
+
+    @Test
+    void arrowExportResolvesSubjectsThroughTheDictionary() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        gradeBulkDataService.exportGradesArrow(out);
+
+        long rows = 0;
+        String quizSubject = null;
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            while (reader.loadNextBatch()) {
+                VarCharVector subjects = (VarCharVector) reader.getDictionaryVectors().get(0L).getVector();
+                BigIntVector ids = (BigIntVector) root.getVector("grade_id");
+                IntVector subjectIndexes = (IntVector) root.getVector("subject");
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    if (ids.get(i) == quizGrade.getId()) {
+                        quizSubject = subjects.getObject(subjectIndexes.get(i)).toString();
+                    }
+                }
+                rows += root.getRowCount();
+            }
+        }
+
+        assertEquals(gradeRepository.count(), rows);
+        assertEquals("Bulk import test subject", quizSubject);
+    }
+}
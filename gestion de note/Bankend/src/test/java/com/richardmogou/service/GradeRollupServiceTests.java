@@ -0,0 +1,140 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.AssessmentRequestDto;
+import com.richardmogou.model.Assessment;
+import com.richardmogou.model.Grade;
+import com.richardmogou.model.Student;
+import com.richardmogou.model.Subject;
+import com.richardmogou.model.SubjectAverage;
+import com.richardmogou.repository.AssessmentRepository;
+import com.richardmogou.repository.GradeRepository;
+import com.richardmogou.repository.StudentRepository;
+import com.richardmogou.repository.SubjectAverageRepository;
+import com.richardmogou.repository.SubjectRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the rollups kept up to date by grade deltas match the ones rebuilt from the grades.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class GradeRollupServiceTests {
+
+    private static final double TOLERANCE = 1e-9;
+
+    @Autowired
+    private GradeRollupService gradeRollupService;
+
+    @Autowired
+    private AssessmentService assessmentService;
+
+    @Autowired
+    private GradeRepository gradeRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private AssessmentRepository assessmentRepository;
+
+    @Autowired
+    private SubjectAverageRepository subjectAverageRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Student student;
+    private Subject subject;
+    private Assessment quiz;
+
+    @BeforeEach
+    void setUp() {
+        student = studentRepository.findByUsername("student_john").orElseThrow();
+        subject = subjectRepository.save(new Subject("Rollup test subject", 1.0));
+        quiz = assessmentRepository.save(new Assessment("Quiz out of 20", subject, null, 2.0, 20.0));
+    }
+
+    private Grade addGrade(double score, Assessment assessment) {
+        Grade grade = new Grade(score, null, student, subject);
+        grade.setAssessment(assessment);
+        gradeRepository.saveAndFlush(grade);
+        gradeRollupService.gradeAdded(grade);
+        return grade;
+    }
+
+    // Compares the maintained rollup with the sums rebuilt from the grades
+    private void assertMatchesRebuild(double expectedAverage) {
+        entityManager.flush();
+        entityManager.clear();
+        SubjectAverage maintained = subjectAverageRepository
+                .findByStudentIdAndSubjectId(student.getId(), subject.getId()).orElseThrow();
+        Object[] rebuilt = gradeRepository.aggregateWeightedScoresByStudentId(student.getId()).stream()
+                .filter(row -> subject.getId().equals(row[1]))
+                .findFirst().orElseThrow();
+
+        assertEquals(((Number) rebuilt[2]).doubleValue(), maintained.getWeightedScoreSum(), TOLERANCE);
+        assertEquals(((Number) rebuilt[3]).doubleValue(), maintained.getWeightSum(), TOLERANCE);
+        assertEquals(((Number) rebuilt[4]).longValue(), maintained.getGradeCount());
+        assertEquals(expectedAverage, maintained.getAverage(), TOLERANCE);
+    }
+
+    @Test
+    void deltasMatchRebuild() {
+        // First grade in the subject: no rollup yet, so it is rebuilt
+        Grade plain = addGrade(80.0, null);
+        assertMatchesRebuild(80.0);
+
+        // 15/20 is 75 on the 0-100 scale, with weight 2
+        Grade quizGrade = addGrade(15.0, quiz);
+        assertMatchesRebuild((80.0 + 75.0 * 2) / 3);
+
+        // Score change, in the assessment's scale: 12/20 is 60
+        quizGrade.setScore(12.0);
+        gradeRepository.saveAndFlush(quizGrade);
+        gradeRollupService.gradeUpdated(quizGrade, 15.0);
+        assertMatchesRebuild((80.0 + 60.0 * 2) / 3);
+
+        gradeRepository.delete(plain);
+        gradeRepository.flush();
+        gradeRollupService.gradeRemoved(plain);
+        assertMatchesRebuild(60.0);
+    }
+
+    @Test
+    void missingRollupIsRebuiltFromExistingGrades() {
+        // Grades written before rollups existed: the next delta rebuilds the whole student
+        Grade earlier = new Grade(40.0, null, student, subject);
+        gradeRepository.saveAndFlush(earlier);
+        assertTrue(subjectAverageRepository.findByStudentIdAndSubjectId(student.getId(), subject.getId()).isEmpty());
+
+        addGrade(10.0, quiz);
+        assertMatchesRebuild((40.0 + 50.0 * 2) / 3);
+    }
+
+    @Test
+    void maxPointsCannotDropBelowRecordedScores() {
+        addGrade(15.0, quiz);
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> assessmentService.updateAssessment(
+                quiz.getId(), new AssessmentRequestDto(quiz.getName(), subject.getId(), null, 2.0, 10.0)));
+        assertEquals("Cannot lower the max points of an assessment below its highest recorded score (15.0).", error.getMessage());
+
+        // Down to the highest score is allowed: 15/15 is 100
+        assessmentService.updateAssessment(quiz.getId(), new AssessmentRequestDto(quiz.getName(), subject.getId(), null, 2.0, 15.0));
+        assertMatchesRebuild(100.0);
+    }
+}
@@ -0,0 +1,231 @@
+package com.richardmogou.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads the archives written by {@link ParallelZipWriter} back with {@link ZipInputStream} and {@link ZipFile}.
+ */
+class ParallelZipWriterTests {
+
+    @TempDir
+    private Path directory;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ParallelZipWriter newWriter(int maxInFlight) {
+        return new ParallelZipWriter(out, executor, maxInFlight, progress::add);
+    }
+
+    private static byte[] text(String line, int repeat) {
+        return line.repeat(repeat).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Entries of the archive in stream order, read through the local headers
+    private Map<String, byte[]> readStream() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private Path saveArchive() throws IOException {
+        return Files.write(directory.resolve("archive.zip"), out.toByteArray());
+    }
+
+    @Test
+    void entriesRoundTripThroughStreamAndCentralDirectory() throws IOException {
+        Map<String, byte[]> expected = new LinkedHashMap<>();
+        expected.put("bulletins/Élève Dupont.txt", text("Moyenne générale: 14.5\n", 200));
+        expected.put("bulletins/report.pdf", text("%PDF-1.7 not really compressed\n", 100));
+        expected.put("empty.txt", new byte[0]);
+        expected.put("one-byte", new byte[]{42});
+
+        ParallelZipWriter zip = newWriter(2);
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            zip.add(entry.getKey(), entry.getValue());
+        }
+        assertEquals(4, zip.finish());
+        assertEquals(List.of(1, 2, 3, 4), progress);
+
+        Map<String, byte[]> streamed = readStream();
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(streamed.keySet()));
+        try (ZipFile zipFile = new ZipFile(saveArchive().toFile())) {
+            assertEquals(4, zipFile.size());
+            for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+                assertArrayEquals(entry.getValue(), streamed.get(entry.getKey()), entry.getKey());
+                ZipEntry zipEntry = zipFile.getEntry(entry.getKey());
+                assertEquals(entry.getValue().length, zipEntry.getSize(), entry.getKey());
+                assertArrayEquals(entry.getValue(), zipFile.getInputStream(zipEntry).readAllBytes(), entry.getKey());
+            }
+        }
+    }
+
+    @Test
+    void compressedFormatsAreStoredAndOthersDeflated() throws IOException {
+        byte[] compressible = text("Mathematics;85.5;Fall 2024\n", 100);
+        byte[] random = new byte[1024];
+        new Random(7).nextBytes(random);
+
+        ParallelZipWriter zip = newWriter(4);
+        zip.add("report.pdf", compressible);
+        zip.add("grades.XLSX", compressible);
+        zip.add("grades.csv", compressible);
+        zip.add("noise.bin", random); // Deflating does not make it smaller
+        zip.finish();
+
+        try (ZipFile zipFile = new ZipFile(saveArchive().toFile())) {
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("report.pdf").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("grades.XLSX").getMethod());
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("noise.bin").getMethod());
+            ZipEntry csv = zipFile.getEntry("grades.csv");
+            assertEquals(ZipEntry.DEFLATED, csv.getMethod());
+            assertTrue(csv.getCompressedSize() < compressible.length);
+            assertArrayEquals(compressible, zipFile.getInputStream(csv).readAllBytes());
+            assertArrayEquals(random, zipFile.getInputStream(zipFile.getEntry("noise.bin")).readAllBytes());
+        }
+    }
+
+    @Test
+    void duplicateNamesAreRejected() throws IOException {
+        ParallelZipWriter zip = newWriter(2);
+        zip.add("report.pdf", new byte[]{1});
+
+        ZipException error = assertThrows(ZipException.class, () -> zip.add("report.pdf", new byte[]{2}));
+        assertEquals("duplicate entry: report.pdf", error.getMessage());
+        assertEquals(1, zip.finish());
+        assertArrayEquals(new byte[]{1}, readStream().get("report.pdf"));
+    }
+
+    @Test
+    void entriesKeepTheirOrderWhenTasksFinishOutOfOrder() throws Exception {
+        // The first entry is only produced once the last one is done
+        CountDownLatch lastDone = new CountDownLatch(1);
+        ParallelZipWriter zip = newWriter(3);
+        zip.add("first.txt", () -> {
+            assertTrue(lastDone.await(10, TimeUnit.SECONDS));
+            return text("first", 1);
+        });
+        zip.add("second.txt", () -> text("second", 1));
+        zip.add("third.txt", () -> {
+            lastDone.countDown();
+            return text("third", 1);
+        });
+        zip.finish();
+
+        assertEquals(List.of("first.txt", "second.txt", "third.txt"), List.copyOf(readStream().keySet()));
+        assertArrayEquals(text("first", 1), readStream().get("first.txt"));
+    }
+
+    @Test
+    void failuresSurfaceFromFinish() throws IOException {
+        IOException cause = new IOException("Disk full");
+        ParallelZipWriter zip = newWriter(4);
+        zip.add("ok.txt", new byte[]{1});
+        zip.add("broken.txt", () -> {
+            throw cause;
+        });
+
+        assertSame(cause, assertThrows(IOException.class, zip::finish));
+        assertEquals(1, zip.entriesWritten());
+    }
+
+    @Test
+    void failuresSurfaceFromAddOnceTheWindowIsFull() throws IOException {
+        ParallelZipWriter zip = newWriter(1);
+        zip.add("broken.pdf", () -> {
+            throw new IllegalStateException("Template missing");
+        });
+
+        IOException error = assertThrows(IOException.class, () -> zip.add("next.pdf", new byte[]{1}));
+        assertEquals("Error preparing archive entry: Template missing", error.getMessage());
+        assertTrue(error.getCause() instanceof IllegalStateException);
+        assertEquals(0, zip.entriesWritten());
+    }
+
+    @Test
+    void abortCancelsPendingEntries() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ParallelZipWriter zip = newWriter(4);
+        zip.add("slow.pdf", () -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return new byte[0];
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        zip.abort();
+
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(0, zip.finish()); // Nothing left to write but an empty directory
+        assertTrue(readStream().isEmpty());
+    }
+
+    @Test
+    void entryCountsFromTheClassicLimitGetZip64Records() throws IOException {
+        int count = 0xFFFF;
+        ParallelZipWriter zip = new ParallelZipWriter(out, Runnable::run, 1, written -> {
+        });
+        for (int i = 0; i < count; i++) {
+            zip.add(Integer.toString(i), new byte[0]);
+        }
+        assertEquals(count, zip.finish());
+
+        byte[] archive = out.toByteArray();
+        // The ZIP64 end record (56 bytes) and locator (20 bytes) precede the classic end record (22 bytes)
+        assertEquals(0x06064b50, littleEndianInt(archive, archive.length - 22 - 20 - 56));
+        assertEquals(0x07064b50, littleEndianInt(archive, archive.length - 22 - 20));
+        try (ZipFile zipFile = new ZipFile(saveArchive().toFile())) {
+            assertEquals(count, zipFile.size());
+            assertNotNull(zipFile.getEntry("65534"));
+        }
+    }
+
+    private static int littleEndianInt(byte[] data, int at) {
+        return (data[at] & 0xFF) | (data[at + 1] & 0xFF) << 8 | (data[at + 2] & 0xFF) << 16 | (data[at + 3] & 0xFF) << 24;
+    }
+}
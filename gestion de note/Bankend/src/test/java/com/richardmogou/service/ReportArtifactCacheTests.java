@@ -0,0 +1,140 @@
+package com.richardmogou.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportArtifactCacheTests {
+
+    @TempDir
+    private Path directory;
+
+    private ReportArtifactCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cache = newCache(100, 100);
+    }
+
+    // A cache with budgets small enough to count in entries of 40 bytes
+    private ReportArtifactCache newCache(long memoryBytes, long diskBytes) throws IOException {
+        ReportArtifactCache newCache = new ReportArtifactCache();
+        ReflectionTestUtils.setField(newCache, "enabled", true);
+        ReflectionTestUtils.setField(newCache, "maxMemoryBytes", memoryBytes);
+        ReflectionTestUtils.setField(newCache, "maxDiskBytes", diskBytes);
+        ReflectionTestUtils.setField(newCache, "cacheDir", directory.toString());
+        newCache.initialize();
+        return newCache;
+    }
+
+    private static byte[] data(int value) {
+        byte[] data = new byte[40];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    private boolean onDisk(String digest) {
+        return Files.exists(directory.resolve(digest + ".bin"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesMoveToDisk() {
+        cache.put("a", data(1));
+        cache.put("b", data(2));
+        assertArrayEquals(data(1), cache.get("a")); // "b" is now the least recently used
+        cache.put("c", data(3));
+
+        assertTrue(onDisk("b"));
+        assertFalse(onDisk("a"));
+        assertFalse(onDisk("c"));
+        assertArrayEquals(data(2), cache.get("b"));
+    }
+
+    @Test
+    void diskBudgetEvictsOldestFiles() {
+        for (int i = 0; i < 6; i++) {
+            cache.put("e" + i, data(i));
+        }
+        // Memory keeps e4 and e5; e0 to e3 went to disk, whose budget only holds the last two
+        assertFalse(onDisk("e0"));
+        assertFalse(onDisk("e1"));
+        assertTrue(onDisk("e2"));
+        assertTrue(onDisk("e3"));
+        assertNull(cache.get("e0"));
+        assertArrayEquals(data(3), cache.get("e3"));
+    }
+
+    @Test
+    void entriesLargerThanMemoryGoStraightToDisk() throws IOException {
+        ReportArtifactCache largeDisk = newCache(100, 200);
+        byte[] large = new byte[150];
+        largeDisk.put("large", large);
+        assertTrue(onDisk("large"));
+        assertArrayEquals(large, largeDisk.get("large"));
+
+        // Beyond the disk budget as well, the entry is not kept at all
+        cache.put("too-large", large);
+        assertFalse(onDisk("too-large"));
+        assertNull(cache.get("too-large"));
+    }
+
+    @Test
+    void diskHitsArePromotedToMemory() throws IOException {
+        cache.put("a", data(1));
+        cache.put("b", data(2));
+        cache.put("c", data(3)); // "a" moves to disk
+        assertTrue(onDisk("a"));
+
+        assertArrayEquals(data(1), cache.get("a"));
+        Files.delete(directory.resolve("a.bin"));
+        assertArrayEquals(data(1), cache.get("a")); // Served from memory now
+    }
+
+    @Test
+    void initializeReloadsDiskTierAndDeletesUnfinishedWrites() throws IOException {
+        Files.write(directory.resolve("old.bin"), data(1));
+        Files.write(directory.resolve("new.bin"), data(2));
+        Files.setLastModifiedTime(directory.resolve("old.bin"), FileTime.fromMillis(1_000));
+        Files.write(directory.resolve("partial1234.tmp"), data(3));
+
+        ReportArtifactCache reloaded = newCache(100, 40);
+
+        assertFalse(Files.exists(directory.resolve("partial1234.tmp")));
+        assertFalse(onDisk("old"), "Oldest file evicted to fit the disk budget");
+        assertNull(reloaded.get("old"));
+        assertArrayEquals(data(2), reloaded.get("new"));
+    }
+
+    @Test
+    void digestsAreOnlyReturnedForTheVersionTheyWereLoadedAt() {
+        cache.rememberDigest(1L, 3L, "digest-1");
+        cache.rememberDigest(2L, 0L, "digest-2");
+        assertEquals("digest-1", cache.digestFor(1L, 3L));
+        assertEquals("digest-2", cache.digestFor(2L, 0L));
+
+        // The report changed, on this node or another one
+        assertNull(cache.digestFor(1L, 4L));
+    }
+
+    @Test
+    void digestOfAnOlderLoadDoesNotReplaceANewerOne() {
+        cache.rememberDigest(1L, 5L, "current");
+        cache.rememberDigest(1L, 4L, "outdated"); // A slower request that read the version before a change
+
+        assertEquals("current", cache.digestFor(1L, 5L));
+        assertNull(cache.digestFor(1L, 4L));
+    }
+}
@@ -0,0 +1,103 @@
+package com.richardmogou.service;
+
+import com.richardmogou.model.ReportJob;
+import com.richardmogou.model.ReportJobStatus;
+import com.richardmogou.model.ReportJobType;
+import com.richardmogou.repository.ReportJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which unfinished jobs a starting node resumes when other nodes share the job table.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+class ReportJobServiceTests {
+
+    @Autowired
+    private ReportJobServiceImpl reportJobService;
+
+    @Autowired
+    private ReportJobRepository reportJobRepository;
+
+    private final List<Long> jobIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        reportJobRepository.deleteAllById(jobIds);
+    }
+
+    private String nodeId() {
+        return (String) ReflectionTestUtils.getField(reportJobService, "nodeId");
+    }
+
+    private ReportJob runningJob(String ownerNode, LocalDateTime heartbeatAt) {
+        ReportJob job = new ReportJob(ReportJobType.EXCEL_ALL, null, null, null);
+        job.setStatus(ReportJobStatus.RUNNING);
+        job.setStartedAt(heartbeatAt);
+        job.setOwnerNode(ownerNode);
+        job.setHeartbeatAt(heartbeatAt);
+        job = reportJobRepository.save(job);
+        jobIds.add(job.getId());
+        return job;
+    }
+
+    private ReportJob awaitFinished(ReportJob job) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            ReportJob current = reportJobRepository.findById(job.getId()).orElseThrow();
+            if (current.getStatus() == ReportJobStatus.COMPLETED || current.getStatus() == ReportJobStatus.FAILED) {
+                return current;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Report job " + job.getId() + " did not finish");
+    }
+
+    @Test
+    void startupResumesOwnAndAbandonedJobsOnly() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        ReportJob own = runningJob(nodeId(), now);
+        ReportJob abandoned = runningJob("stopped-node", now.minusHours(1));
+        ReportJob elsewhere = runningJob("live-node", now);
+
+        reportJobService.resumeUnfinishedJobs();
+
+        for (ReportJob resumed : List.of(own, abandoned)) {
+            ReportJob finished = awaitFinished(resumed);
+            assertEquals(ReportJobStatus.COMPLETED, finished.getStatus(), finished.getErrorMessage());
+            assertEquals(nodeId(), finished.getOwnerNode());
+            assertTrue(finished.getArtifactPath() != null && reportJobService.getArtifact(finished.getId()).path().toFile().isFile());
+        }
+        ReportJob untouched = reportJobRepository.findById(elsewhere.getId()).orElseThrow();
+        assertEquals(ReportJobStatus.RUNNING, untouched.getStatus());
+        assertEquals("live-node", untouched.getOwnerNode());
+    }
+
+    @Test
+    void outcomeOfAJobTakenOverMeanwhileIsDiscarded() {
+        ReportJob job = runningJob(nodeId(), LocalDateTime.now());
+        ReportJob stale = reportJobRepository.findById(job.getId()).orElseThrow();
+        LocalDateTime later = LocalDateTime.now().plusMinutes(10);
+        assertEquals(1, reportJobRepository.takeOver(job.getId(), List.of(ReportJobStatus.QUEUED, ReportJobStatus.RUNNING),
+                ReportJobStatus.QUEUED, "other-node", later, later));
+
+        stale.setStatus(ReportJobStatus.FAILED);
+        stale.setErrorMessage("Late outcome");
+        assertEquals(0, reportJobRepository.saveOutcomeIfOwner(stale, ReportJobStatus.RUNNING));
+
+        ReportJob current = reportJobRepository.findById(job.getId()).orElseThrow();
+        assertEquals(ReportJobStatus.QUEUED, current.getStatus());
+        assertEquals("other-node", current.getOwnerNode());
+    }
+}
@@ -0,0 +1,90 @@
+package com.richardmogou.service;
+
+import com.richardmogou.dto.GradeRequestDto;
+import com.richardmogou.model.Student;
+import com.richardmogou.model.Subject;
+import com.richardmogou.repository.StudentRepository;
+import com.richardmogou.repository.SubjectRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that cached grade reports follow the report versions kept in the database.
+ */
+@SpringBootTest
+@ActiveProfiles("h2")
+@Transactional
+class ReportVersionTrackerTests {
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private GradeService gradeService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private SubjectRepository subjectRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private Student student;
+    private Student otherStudent;
+
+    @BeforeEach
+    void setUp() {
+        student = studentRepository.findByUsername("student_john").orElseThrow();
+        otherStudent = studentRepository.findAll().stream()
+                .filter(candidate -> !candidate.getId().equals(student.getId())).findFirst().orElseThrow();
+    }
+
+    private long versionOf(Student target) {
+        return studentRepository.findReportVersionById(target.getId()).orElseThrow();
+    }
+
+    @Test
+    void gradeChangesOutdateTheCachedReport() throws Exception {
+        byte[] first = pdfService.generateStudentGradeReport(student.getId()).readAllBytes();
+        assertArrayEquals(first, pdfService.generateStudentGradeReport(student.getId()).readAllBytes());
+
+        long before = versionOf(student);
+        Subject subject = subjectRepository.save(new Subject("Report version test subject", 1.0));
+        GradeRequestDto request = new GradeRequestDto();
+        request.setScore(75.0);
+        request.setStudentId(student.getId());
+        request.setSubjectId(subject.getId());
+        gradeService.createGrade(request);
+
+        assertEquals(before + 1, versionOf(student));
+        byte[] second = pdfService.generateStudentGradeReport(student.getId()).readAllBytes();
+        assertFalse(Arrays.equals(first, second));
+    }
+
+    @Test
+    void changesForAllStudentsAdvanceEveryVersion() {
+        long studentBefore = versionOf(student);
+        long otherBefore = versionOf(otherStudent);
+
+        eventPublisher.publishEvent(ReportDataChangedEvent.forStudent(student.getId()));
+        assertEquals(studentBefore + 1, versionOf(student));
+        assertEquals(otherBefore, versionOf(otherStudent));
+
+        eventPublisher.publishEvent(ReportDataChangedEvent.forAllStudents());
+        assertEquals(studentBefore + 2, versionOf(student));
+        assertEquals(otherBefore + 1, versionOf(otherStudent));
+    }
+}